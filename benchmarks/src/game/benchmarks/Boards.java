@@ -0,0 +1,69 @@
+package game.benchmarks;
+
+import java.util.Random;
+
+import game.Game;
+import game.data.FieldCalculator;
+import game.data.FlatLevel;
+import game.data.Level;
+
+/**
+ * the boards the benchmarks work on, always generated from the same seed.
+ *
+ * @author Holger Dörner
+ *
+ */
+final class Boards {
+	static final long SEED = 42;
+
+	private Boards() {
+	}
+
+	/**
+	 * returns the number of bombs of a square level.
+	 *
+	 * @param size    the vertical and horizontal size
+	 * @param density the share of bombs, e.g. 0.2
+	 * @return the number of bombs, at least 1
+	 */
+	static int bombs(final int size, final double density) {
+		return Math.max(1, (int) (density * size * size));
+	}
+
+	/**
+	 * generates a square level with bombs, the numbers are not calculated.
+	 *
+	 * @param size    the vertical and horizontal size
+	 * @param density the share of bombs, e.g. 0.2
+	 * @return the level
+	 */
+	static Level uncalculated(final int size, final double density) {
+		return Level.generateNew(size, size, bombs(size, density), new Random(SEED));
+	}
+
+	/**
+	 * generates a square level with bombs and calculates its numbers.
+	 *
+	 * @param size    the vertical and horizontal size
+	 * @param density the share of bombs, e.g. 0.2
+	 * @return the level
+	 */
+	static Level calculated(final int size, final double density) {
+		final Level level = uncalculated(size, density);
+		FieldCalculator.calculate(level);
+		return level;
+	}
+
+	/**
+	 * creates a square level without any bombs. revealing any field reveals
+	 * the whole level, the worst case of a flood fill.
+	 *
+	 * @param size the vertical and horizontal size
+	 * @return the level
+	 */
+	static Level empty(final int size) {
+		final Level level = new FlatLevel(size, size, Game.UNTOUCHED);
+		FieldCalculator.calculate(level);
+		return level;
+	}
+}
@@ -0,0 +1,75 @@
+package game.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.data.FieldCalculator;
+import game.data.Level;
+
+/**
+ * <p>
+ * measures the calculation of the numbers of a level, in parallel with the
+ * common pool and in a single band on the calling thread.
+ * </p>
+ *
+ * <p>
+ * the numbers are only written into untouched fields, so every invocation
+ * works on a fresh copy of the level. the copy is made in the setup and not
+ * measured.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CalculationBenchmark {
+	@Param({ "64", "512", "2048" })
+	public int size;
+
+	@Param({ "0.1", "0.2" })
+	public double density;
+
+	private Level template;
+	private Level level;
+	private ForkJoinPool single;
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void generate() {
+		template = Boards.uncalculated(size, density);
+		single = new ForkJoinPool(1);
+	}
+
+	@Setup(org.openjdk.jmh.annotations.Level.Invocation)
+	public void copy() {
+		level = template.copy();
+	}
+
+	@Benchmark
+	public Level calculate() {
+		FieldCalculator.calculate(level);
+		return level;
+	}
+
+	@Benchmark
+	public Level calculateSingleBand() {
+		FieldCalculator.calculate(level, single, size);
+		return level;
+	}
+}
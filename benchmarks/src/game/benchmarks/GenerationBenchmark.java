@@ -0,0 +1,60 @@
+package game.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.data.Level;
+
+/**
+ * <p>
+ * measures the generation of random levels, the bombs are placed but the
+ * numbers aren't calculated.
+ * </p>
+ *
+ * <p>
+ * the random numbers come from a seeded generator, so every run places the
+ * bombs the same way.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GenerationBenchmark {
+	@Param({ "64", "512", "2048" })
+	public int size;
+
+	@Param({ "0.1", "0.2" })
+	public double density;
+
+	private int bombs;
+	private Random random;
+
+	@Setup
+	public void setup() {
+		bombs = Boards.bombs(size, density);
+		random = new Random(Boards.SEED);
+	}
+
+	@Benchmark
+	public Level generate() {
+		return Level.generateNew(size, size, bombs, random);
+	}
+}
@@ -0,0 +1,101 @@
+package game.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.data.CellSet;
+import game.data.FloodFill;
+import game.data.Level;
+import game.util.SaveGame;
+import game.util.SaveGameUtility;
+
+/**
+ * <p>
+ * measures saving a level and loading it again, in each of the savegame
+ * formats.
+ * </p>
+ *
+ * <p>
+ * the level is partly revealed, like a game in progress. the file is written
+ * to the temporary directory, so the result depends on its file system and
+ * includes the page cache, not the disk.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PersistenceBenchmark {
+	public enum Format {
+		TEXT, BINARY, COMPRESSED
+	}
+
+	@Param({ "64", "512", "2048" })
+	public int size;
+
+	@Param({ "0.15" })
+	public double density;
+
+	@Param({ "TEXT", "BINARY", "COMPRESSED" })
+	public Format format;
+
+	private SaveGame saveGame;
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		final Level level = Boards.calculated(size, density);
+		final CellSet revealed = new CellSet();
+
+		// reveal a few regions, the rest stays hidden
+		for (int y = 0; y < size; y += 16)
+			for (int x = 0; x < size; x += 16)
+				FloodFill.reveal(level, y, x, revealed);
+
+		saveGame = new SaveGame(level, Boards.bombs(size, density), Boards.bombs(size, density),
+				SaveGame.UNKNOWN, 0);
+		file = Files.createTempFile("jminesweeper-benchmark", ".sav");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Object roundTrip() throws IOException {
+		switch (format) {
+			case TEXT:
+				SaveGameUtility.saveToFile(file, saveGame.getLevel());
+				return SaveGameUtility.readFromFile(file);
+
+			case BINARY:
+				SaveGameUtility.saveBinary(file, saveGame);
+				return SaveGameUtility.readSaveGame(file);
+
+			default:
+				SaveGameUtility.saveCompressed(file, saveGame);
+				return SaveGameUtility.readSaveGame(file);
+		}
+	}
+}
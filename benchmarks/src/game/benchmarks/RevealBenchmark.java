@@ -0,0 +1,73 @@
+package game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.GameEngine;
+import game.data.CellSet;
+import game.data.FloodFill;
+import game.data.Level;
+
+/**
+ * <p>
+ * measures revealing a field of a level without bombs, which reveals every
+ * field of the level: the worst case of the flood fill.
+ * </p>
+ *
+ * <p>
+ * {@code floodFill} measures the algorithm alone, {@code engine} the whole
+ * move including the listeners of the engine, of which there are none. every
+ * invocation works on a fresh copy of the level, made in the setup.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RevealBenchmark {
+	@Param({ "64", "512", "2048" })
+	public int size;
+
+	private Level template;
+	private Level level;
+	private final CellSet revealed = new CellSet();
+	private final GameEngine engine = new GameEngine();
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void generate() {
+		template = Boards.empty(size);
+	}
+
+	@Setup(org.openjdk.jmh.annotations.Level.Invocation)
+	public void copy() {
+		level = template.copy();
+		revealed.clear();
+		engine.newGame(level, 0);
+	}
+
+	@Benchmark
+	public int floodFill() {
+		return FloodFill.reveal(level, size / 2, size / 2, revealed);
+	}
+
+	@Benchmark
+	public int engine() {
+		return engine.reveal(size / 2, size / 2);
+	}
+}
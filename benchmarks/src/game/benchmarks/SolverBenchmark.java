@@ -0,0 +1,94 @@
+package game.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.data.CellSet;
+import game.data.FieldCalculator;
+import game.data.FloodFill;
+import game.data.Level;
+import game.solver.Solution;
+import game.solver.Solver;
+
+/**
+ * <p>
+ * measures the solver on an expert level in the middle of a game.
+ * </p>
+ *
+ * <p>
+ * the game is played in the setup: the safe fields the solver finds are
+ * revealed, if it finds none a safe field is picked with knowledge of the
+ * bombs. it stops when {@code revealed} of the safe fields are revealed.
+ * solving doesn't change the level, so all invocations work on the same one.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SolverBenchmark {
+	private static final int SIZE_Y = 16;
+	private static final int SIZE_X = 30;
+	private static final int BOMBS = 99;
+
+	@Param({ "0.25", "0.5" })
+	public double revealed;
+
+	private Level level;
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void play() {
+		final Random random = new Random(Boards.SEED);
+		final CellSet changed = new CellSet();
+		final int target = (int) (revealed * (SIZE_Y * SIZE_X - BOMBS));
+
+		level = Level.generateNew(SIZE_Y, SIZE_X, BOMBS, random);
+		FieldCalculator.calculate(level);
+
+		while (changed.size() < target) {
+			final CellSet safe = Solver.solve(level, BOMBS).getSafe();
+
+			if (!safe.isEmpty()) {
+				FloodFill.reveal(level, safe.getY(0), safe.getX(0), changed);
+				continue;
+			}
+
+			int y;
+			int x;
+
+			do {
+				y = random.nextInt(SIZE_Y);
+				x = random.nextInt(SIZE_X);
+			} while (!FloodFill.isRevealable(level.get(y, x)));
+
+			FloodFill.reveal(level, y, x, changed);
+		}
+	}
+
+	@Benchmark
+	public Solution solve() {
+		return Solver.solve(level, BOMBS);
+	}
+
+	@Benchmark
+	public Solution solveWithoutBombCount() {
+		return Solver.solve(level);
+	}
+}
@@ -0,0 +1,237 @@
+package game;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import game.data.Level;
+
+/**
+ * <p>
+ * levels which are ready to be played, generated in the background.
+ * </p>
+ *
+ * <p>
+ * a level is taken as a future which completes once its numbers are
+ * calculated, so a level can't be played before it is finished. for every
+ * preset and for the last other size one level is prepared in advance,
+ * taking it costs constant time. a taken level is replaced in the
+ * background.
+ * </p>
+ *
+ * <p>
+ * levels are only prepared after {@code start()}, before that every level is
+ * generated when it is taken. small levels are generated by the taking
+ * thread, bigger ones by the executor. levels with more than
+ * {@code PREPARE_LIMIT} fields are never prepared, they would take up too
+ * much memory while they wait.
+ * </p>
+ *
+ * <p>
+ * the methods of a pool are thread-safe.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class BoardPool {
+	/**
+	 * the maximum number of fields of a prepared level.
+	 */
+	public static final long PREPARE_LIMIT = 1L << 24;
+
+	/**
+	 * the maximum number of fields of a level generated by the taking thread,
+	 * if none is prepared.
+	 */
+	public static final long INLINE_LIMIT = 1L << 12;
+
+	private final Executor executor;
+	private final Size[] presets;
+
+	// guarded by this
+	private final Map<Size, CompletableFuture<Level>> prepared = new HashMap<>();
+	private Size custom;
+	private boolean started;
+	private long hits;
+	private long misses;
+
+	/**
+	 * the size and the number of bombs of a level.
+	 */
+	private static final class Size {
+		private final int y;
+		private final int x;
+		private final long b;
+
+		private Size(final int y, final int x, final long b) {
+			this.y = y;
+			this.x = x;
+			this.b = b;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			if (!(other instanceof Size))
+				return false;
+
+			final Size size = (Size) other;
+			return y == size.y & x == size.x & b == size.b;
+		}
+
+		@Override
+		public int hashCode() {
+			return (y * 31 + x) * 31 + Long.hashCode(b);
+		}
+	}
+
+	/**
+	 * creates an empty pool.
+	 *
+	 * @param executor generates the levels
+	 * @param presets  the presets, each as {y, x, bombs}
+	 */
+	public BoardPool(final Executor executor, final int[]... presets) {
+		if (executor == null || presets == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		this.executor = executor;
+		this.presets = new Size[presets.length];
+
+		for (int i = 0; i < presets.length; i++)
+			this.presets[i] = new Size(presets[i][0], presets[i][1], presets[i][2]);
+	}
+
+	/**
+	 * starts preparing levels, one for every preset.
+	 */
+	public void start() {
+		synchronized (this) {
+			started = true;
+		}
+
+		for (Size preset : presets)
+			prepare(preset);
+	}
+
+	/**
+	 * <p>
+	 * takes a level of the given size, the prepared one if there is one. a
+	 * new level of that size is prepared in the background.
+	 * </p>
+	 *
+	 * <p>
+	 * if the level can't be generated, e.g. because there are too many bombs,
+	 * the future completes exceptionally.
+	 * </p>
+	 *
+	 * @param y the vertical size
+	 * @param x the horizontal size
+	 * @param b the number of bombs
+	 * @return the future level, its numbers are calculated
+	 */
+	public CompletableFuture<Level> take(final int y, final int x, final long b) {
+		final Size size = new Size(y, x, b);
+		CompletableFuture<Level> level;
+
+		synchronized (this) {
+			level = prepared.remove(size);
+
+			if (level != null)
+				hits++;
+			else
+				misses++;
+
+			// only the last size which isn't a preset is kept
+			if (!isPreset(size) && !size.equals(custom)) {
+				if (custom != null)
+					prepared.remove(custom);
+
+				custom = size;
+			}
+		}
+
+		if (level == null) {
+			if ((long) y * x <= INLINE_LIMIT) {
+				try {
+					level = CompletableFuture.completedFuture(GameEngine.generate(y, x, b));
+				} catch (RuntimeException e) {
+					level = CompletableFuture.failedFuture(e);
+				}
+			} else {
+				try {
+					level = CompletableFuture.supplyAsync(() -> GameEngine.generate(y, x, b), executor);
+				} catch (RejectedExecutionException e) {
+					level = CompletableFuture.failedFuture(e);
+				}
+			}
+		}
+
+		prepare(size);
+
+		return level;
+	}
+
+	/**
+	 * returns the number of levels taken which were prepared.
+	 *
+	 * @return the number of prepared levels taken
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * returns the number of levels taken which had to be generated.
+	 *
+	 * @return the number of levels generated when taken
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * returns the number of sizes a level is prepared or being prepared for.
+	 *
+	 * @return the number of prepared levels
+	 */
+	public synchronized int getPrepared() {
+		return prepared.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "prepared " + prepared.size() + ", hits " + hits + ", misses " + misses;
+	}
+
+	private boolean isPreset(final Size size) {
+		for (Size preset : presets)
+			if (preset.equals(size))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * prepares a level of the given size, unless there already is one or the
+	 * executor is too busy.
+	 */
+	private void prepare(final Size size) {
+		if ((long) size.y * size.x > PREPARE_LIMIT)
+			return;
+
+		synchronized (this) {
+			if (!started || prepared.containsKey(size) || !(isPreset(size) || size.equals(custom)))
+				return;
+
+			try {
+				prepared.put(size, CompletableFuture.supplyAsync(() -> GameEngine.generate(size.y, size.x, size.b),
+						executor));
+			} catch (RejectedExecutionException e) {
+				// the queue is full, the level is generated when it is taken
+			}
+		}
+	}
+}
@@ -1,102 +1,124 @@
 package game;
 
+import java.awt.GraphicsEnvironment;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import javax.management.JMException;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import game.data.CellSet;
+import game.data.FloodFill;
 import game.data.Level;
 import game.gui.GameDialogs;
 import game.gui.GameWindow;
+import game.gui.ProgressDialog;
+import game.solver.Solution;
+import game.solver.Solver;
 import game.util.DebugView;
-import game.util.SaveGameUtility;
+import game.util.Diagnostics;
+import game.util.Diagnostics.Severity;
+import game.util.GameExecutors;
+import game.util.GameExecutors.Subsystem;
+import game.util.Metrics;
+import game.util.MoveJournal;
+import game.util.SaveGame;
+import game.util.SaveGameTasks;
+import game.util.StartupTimer;
 
 /**
+ * <p>
  * main class of the game
+ * </p>
+ *
+ * <p>
+ * the rules and the state of the game live in a {@code game.GameEngine}, this
+ * class connects the engine of the player's game with the user interface.
+ * </p>
  *
  * @author Holger Dörner
  */
 public class Game {
 	// global game constants
 	////////////////////////
-	public static final boolean DEBUG = true;
 	public static final char BOMB = '@';
 	public static final char EMPTY = '0';
 	public static final char UNTOUCHED = 'O';
 	public static final char FLAGGED = 'P';
 	public static final char FLAGGED_BOMB = '#';
+	public static final long JOURNAL_FLUSH_INTERVAL = 1000;
+	public static final long JOURNAL_COMPACT_EVERY = 10000;
+	public static final String COMPRESSED_SUFFIX = ".jmz";
+	public static final int CLOCK_DISPLAY_INTERVAL = 100;
+	public static final int DEFERRED_STARTUP_DELAY = 1000;
 
-	// public static fields
-	///////////////////////
-	public static volatile boolean gameRunning = true;
-	public static volatile boolean victory = false;
-	public static CyclicBarrier barrier;
-	public static ExecutorService threadPool;
+	/**
+	 * the sizes of the easy, medium and hard games as {y, x, bombs}.
+	 */
+	private static final int[][] PRESETS = { { 8, 8, 10 }, { 16, 16, 40 }, { 16, 30, 99 } };
 
 	// private static fields
 	////////////////////////
-	private static Level level;
-	private static int sizeY;
-	private static int sizeX;
-	private static int numBombs;
-	private static int bombCount;
-	private static int safeFields;
-	private static GameWindow gameWindow;
-	private static Map<String, Character> touchedFields;
-	private static Future<?> timer;
+	private static final GameEngine engine = new GameEngine();
+	private static volatile GameWindow gameWindow;
+	private static final GameClock clock = new GameClock();
+	private static final Timer clockDisplay = new Timer(CLOCK_DISPLAY_INTERVAL, e -> updateClock());
+	private static MoveJournal journal;
+	private static Path journalSnapshot;
+
+	// the levels are generated with the queue of the generation, which is only
+	// started when the pool needs it
+	private static final BoardPool boards = new BoardPool(
+			task -> GameExecutors.get(Subsystem.GENERATION).execute(task), PRESETS);
+	private static final AtomicLong newGameRequests = new AtomicLong();
+
+	// checking for a newer request and starting the game are one step
+	private static final Object newGameLock = new Object();
 
 	/**
-	 * calculates the fields of an level and updates the array before the game
-	 * starts.
-	 *
-	 * it traverses an two-dimensional array linear and checks the neighbor indexes
-	 * for bombs. if it finds one it updates the current index and increases the
-	 * value by 1.
+	 * forwards the state-changes of the engine to the user interface.
 	 */
-	private static synchronized void calculateFields() {
-		Thread.currentThread().setName("Calculate-Fields");
-
-		for (int y = 0; y < level.getSizeY(); y++) {
-			for (int x = 0; x < level.getSizeX(); x++) {
-				if (level.get(y, x) == UNTOUCHED) {
-					level.set(y, x, EMPTY);
-
-					for (int i = -1, j = 1; i <= 1; i++, j--) {
-						// above-right <-> beneath-left
-						try {
-							if (level.get(y + i, x + j) == BOMB)
-								level.increment(y, x);
-						} catch (Exception e) {
-						}
-
-						// above-left <-> beneath-right
-						try {
-							if (level.get(y + i, x + i) == BOMB)
-								level.increment(y, x);
-						} catch (Exception e) {
-						}
-
-						// above <-> beneath
-						try {
-							if (level.get(y, x + i) == BOMB)
-								level.increment(y, x);
-						} catch (Exception e) {
-						}
-
-						// left <-> right
-						try {
-							if (level.get(y + i, x) == BOMB)
-								level.increment(y, x);
-						} catch (Exception e) {
-						}
-					}
-				}
-			}
+	private static final class WindowUpdater implements GameListener {
+		@Override
+		public void newBoard(final GameEngine engine) {
+			gameWindow.newBoard(engine.getLevel());
+
+			gameWindow.updateTimer(0);
+			gameWindow.updateBombCounter(engine.getBombCount());
+			gameWindow.updateStatusLabel(
+					"Size: " + engine.getSizeY() + "x" + engine.getSizeX() + " Bombs: " + engine.getNumBombs());
+
+			if (Diagnostics.isEnabled(Severity.DEBUG))
+				gameWindow.debugView();
+		}
+
+		@Override
+		public void fieldsChanged(final GameEngine engine, final CellSet changed) {
+			gameWindow.updateFields(changed);
+		}
+
+		@Override
+		public void countersChanged(final GameEngine engine) {
+			// the status only changes with a new board
+			gameWindow.updateBombCounter(engine.getBombCount());
+		}
+
+		@Override
+		public void gameOver(final GameEngine engine, final boolean victory) {
+			stopTimer();
+
+			gameWindow.updateAllFields(engine.getExplodedY(), engine.getExplodedX());
+			gameWindow.updateSmilie(victory ? 2 : 3);
+
+			if (victory)
+				gameWindow.updateStatusLabel(
+						String.format("Solved in %.3f seconds", clock.getElapsedMillis() / 1000.0));
 		}
 	}
 
@@ -106,253 +128,310 @@ public class Game {
 	 * @param positionY the vertical position
 	 * @param positionX the horizontal position
 	 */
-	public static synchronized void markField(final int positionY, final int positionX) {
-		if (level.get(positionY, positionX) == BOMB) {
-			level.set(positionY, positionX, FLAGGED_BOMB);
-			threadPool.execute(() -> gameWindow.updateField(positionY, positionX, FLAGGED_BOMB));
-			bombCount--;
-		} else if (level.get(positionY, positionX) == FLAGGED_BOMB) {
-			level.set(positionY, positionX, BOMB);
-			threadPool.execute(() -> gameWindow.updateField(positionY, positionX, UNTOUCHED));
-			bombCount++;
-		} else if (level.get(positionY, positionX) >= 'a') {
-			level.set(positionY, positionX, (char) (level.get(positionY, positionX) - 49));
-			threadPool.execute(() -> gameWindow.updateField(positionY, positionX, UNTOUCHED));
-		} else {
-			level.set(positionY, positionX, (char) (level.get(positionY, positionX) + 49));
-			threadPool.execute(() -> gameWindow.updateField(positionY, positionX, level.get(positionY, positionX)));
-		}
+	public static void markField(final int positionY, final int positionX) {
+		final long start = System.nanoTime();
 
-		gameWindow.updateBombCounter("" + bombCount);
-		gameWindow.updateStatusLabel("Size: " + sizeY + "x" + sizeX + " Bombs: " + numBombs);
+		engine.toggleFlag(positionY, positionX);
+		Metrics.MARK.recordSince(start);
 	}
 
 	/**
-	 * reveals a field and checks if neighbor fields can also be revealed. if this
-	 * is the case it calls itself in a new process for the neighbor field and so on
-	 * until no neighbor field is left to reveal.
+	 * reveals a field when the player left-clicks on it. if it is empty, the
+	 * whole empty region around it is revealed as well.
 	 *
 	 * @param positionY the vertical position of the field
 	 * @param positionX the horizontal position of the field
 	 */
-	public static synchronized void revealField(final int positionY, final int positionX) {
-		Thread.currentThread().setName("Revealing-Field-" + positionY + "x" + positionX);
+	public static void revealField(final int positionY, final int positionX) {
+		final long start = System.nanoTime();
+		final int revealed = engine.reveal(positionY, positionX);
 
-		if (level.get(positionY, positionX) >= 'A' & level.get(positionY, positionX) <= 'I') // TOUCHED
-			return;
-		else if (level.get(positionY, positionX) >= 'a' & level.get(positionY, positionX) <= 'i') // FLAGGED
-			return;
-		else if (level.get(positionY, positionX) == BOMB) {
-			gameOver();
-			return;
-		} else if (level.get(positionY, positionX) == FLAGGED_BOMB)
-			;
-		else if (level.get(positionY, positionX) == EMPTY) {
-			for (int i = -1, j = 1; i <= 1; i++, j--) {
-				if (i == 0)
-					continue;
-
-				// check left <-> right
-				try {
-					if (level.get(positionY, positionX + i) == BOMB)
-						;
-					else if (level.get(positionY, positionX + i) == FLAGGED_BOMB)
-						;
-					else if (level.get(positionY, positionX + i) >= 'a' & level.get(positionY, positionX) <= 'i')
-						; // FLAGGED
-					else if (level.get(positionY, positionX + i) >= 'A' & level.get(positionY, positionX) <= 'I')
-						; // TOUCHED
-					else {
-						final int nextX = positionX + i;
-						threadPool.execute(() -> revealField(positionY, nextX));
-					}
-				} catch (ArrayIndexOutOfBoundsException e) {
-				}
+		Metrics.REVEAL.recordSince(start);
+		Metrics.REVEALED_FIELDS.record(revealed);
+	}
 
-				// check above <-> beneath
-				try {
-					if (level.get(positionY + i, positionX) == BOMB)
-						;
-					else if (level.get(positionY + i, positionX) == FLAGGED_BOMB)
-						;
-					else if (level.get(positionY + i, positionX) >= 'a' & level.get(positionY, positionX) <= 'i')
-						; // FLAGGED
-					else if (level.get(positionY + i, positionX) >= 'A' & level.get(positionY, positionX) <= 'I')
-						; // TOUCHED
-					else {
-						final int nextY = positionY + i;
-						threadPool.execute(() -> revealField(nextY, positionX));
-					}
-				} catch (ArrayIndexOutOfBoundsException e) {
-				}
+	/**
+	 * checks if the player's game is running.
+	 *
+	 * @return true if the game is running
+	 */
+	public static boolean isGameRunning() {
+		return engine.isRunning();
+	}
 
-				// check above-left <-> beneath-right
-				try {
-					if (level.get(positionY + i, positionX + i) == BOMB)
-						;
-					else if (level.get(positionY + i, positionX + i) == FLAGGED_BOMB)
-						;
-					else if (level.get(positionY + i, positionX + i) >= 'a' & level.get(positionY, positionX) <= 'i') // FLAGGED
-						;
-					else if (level.get(positionY + i, positionX + i) >= 'A' & level.get(positionY, positionX) <= 'I') // TOUCHED
-						;
-					else {
-						final int nextY = positionY + i;
-						final int nextX = positionX + i;
-						threadPool.execute(() -> revealField(nextY, nextX));
-					}
-				} catch (ArrayIndexOutOfBoundsException e) {
+	/**
+	 * <p>
+	 * makes a move the player could deduce from the revealed numbers and the
+	 * flags, see {@code game.solver.Solver}: reveals a safe field or, if there
+	 * is none, flags the fields which certainly hold a bomb. if nothing is
+	 * certain, the status says so.
+	 * </p>
+	 *
+	 * <p>
+	 * a copy of the level is solved in the background, the game goes on
+	 * meanwhile. the move itself is made like a click of the player, while the
+	 * game is kept from changing. only fields which are still hidden and not
+	 * flagged are changed, so a hint can't undo a move the player made during
+	 * the solve. levels with more than {@code Solver.MAX_FIELDS} fields get no
+	 * hints.
+	 * </p>
+	 */
+	public static void hint() {
+		GameExecutors.get(Subsystem.BACKGROUND).execute(() -> {
+			final Lock exclusive = engine.getExclusiveLock();
+			final Level solved;
+			final Level copy;
+			final long numBombs;
+			exclusive.lock();
+
+			try {
+				if (!engine.isRunning())
+					return;
+
+				if ((long) engine.getSizeY() * engine.getSizeX() > Solver.MAX_FIELDS) {
+					gameWindow.updateStatusLabel("No hints for levels of this size");
+					return;
 				}
 
-				// check above-right <-> beneath-left
-				try {
-					if (level.get(positionY + i, positionX + j) == BOMB)
-						;
-					else if (level.get(positionY + i, positionX + j) == FLAGGED_BOMB)
-						;
-					else if (level.get(positionY + i, positionX + j) >= 'a' & level.get(positionY, positionX) <= 'i') // FLAGGED
-						;
-					else if (level.get(positionY + i, positionX + j) >= 'A' & level.get(positionY, positionX) <= 'I') // TOUCHED
-						;
-					else {
-						final int nextY = positionY + i;
-						final int nextX = positionX + j;
-						threadPool.execute(() -> revealField(nextY, nextX));
-					}
-				} catch (ArrayIndexOutOfBoundsException e) {
-				}
+				solved = engine.getLevel();
+				copy = solved.copy();
+				numBombs = engine.getNumBombs();
+			} finally {
+				exclusive.unlock();
 			}
 
-			gameWindow.updateField(positionY, positionX, level.get(positionY, positionX));
-			level.set(positionY, positionX, (char) (level.get(positionY, positionX) + 17));
-		} else {
-			gameWindow.updateField(positionY, positionX, level.get(positionY, positionX));
-			level.set(positionY, positionX, (char) (level.get(positionY, positionX) + 17));
-		}
+			final long start = System.nanoTime();
+			final Solution solution = Solver.solve(copy, numBombs);
 
-		safeFields--;
+			if (Diagnostics.isEnabled(Severity.DEBUG))
+				Diagnostics.debug("solver", "Found " + solution + " in " + (System.nanoTime() - start) / 1000 + " µs");
 
-		gameWindow.updateStatusLabel("Size: " + sizeY + "x" + sizeX + " Bombs: " + numBombs);
+			if (solution.isEmpty()) {
+				gameWindow.updateStatusLabel("No certain move, you have to guess");
+				return;
+			}
+
+			exclusive.lock();
 
-		if (safeFields == 0)
-			gameVictory();
+			try {
+				if (engine.getLevel() == solved && engine.isRunning() && !makeHint(solution))
+					gameWindow.updateStatusLabel("The board has changed, ask again for a hint");
+			} finally {
+				exclusive.unlock();
+			}
+		});
 	}
 
 	/**
-	 * player clicked on a bomb-field, too bad...
+	 * reveals the first safe field of a solution or, if there is none, flags
+	 * its bombs. fields the player has revealed or flagged meanwhile are
+	 * skipped. the exclusive lock of the engine is held by the caller.
+	 *
+	 * @return false if every field of the solution was skipped
 	 */
-	private static void gameOver() {
-		stopTimer();
+	private static boolean makeHint(final Solution solution) {
+		final CellSet safe = solution.getSafe();
+		final CellSet mines = solution.getMines();
+
+		for (int i = 0; i < safe.size(); i++) {
+			if (isUntouched(safe.getY(i), safe.getX(i))) {
+				revealField(safe.getY(i), safe.getX(i));
+				return true;
+			}
+		}
 
-		gameRunning = false;
-		victory = false;
+		boolean flagged = false;
 
-		gameWindow.updateAllFields(level.getLevelData());
-		gameWindow.updateSmilie(3);
+		for (int i = 0; i < mines.size(); i++) {
+			if (isUntouched(mines.getY(i), mines.getX(i))) {
+				markField(mines.getY(i), mines.getX(i));
+				flagged = true;
+			}
+		}
+
+		return flagged;
 	}
 
 	/**
-	 * player has revealed all save fields in the level.
+	 * checks if a field is still hidden and not flagged.
 	 */
-	private static void gameVictory() {
-		stopTimer();
-
-		gameRunning = false;
-		victory = true;
-
-		gameWindow.updateAllFields(level.getLevelData());
-		gameWindow.updateSmilie(2);
+	private static boolean isUntouched(final int positionY, final int positionX) {
+		final char value = engine.getField(positionY, positionX);
+		return value == BOMB || FloodFill.isRevealable(value);
 	}
 
 	/**
-	 * saves the current level to a file on disc and produces some kind of
-	 * 'savegame'. if the file already exists it will be ovewritten, if not a new
-	 * file will be created.
+	 * <p>
+	 * saves the current game to a file on disc and produces some kind of
+	 * 'savegame' in the binary format of {@code game.util.SaveGameUtility}. if
+	 * the file already exists it will be ovewritten, if not a new file will be
+	 * created. savegames with the extension {@code COMPRESSED_SUFFIX} are
+	 * compressed.
+	 * </p>
+	 *
+	 * <p>
+	 * a copy of the level is written in the background, so the game goes on
+	 * while it is saved. a failed or cancelled save leaves an existing file
+	 * untouched.
+	 * </p>
 	 *
-	 * @param path a path to a file on disc
+	 * <p>
+	 * from then on every move is appended to the journal of the savegame (see
+	 * {@code game.util.MoveJournal}). saving again to the same file only writes
+	 * the moves which are not yet in the journal. the moves made while the
+	 * savegame is written are held in memory, the journal is only written once
+	 * the savegame replaced the file.
+	 * </p>
 	 */
 	public static void saveToFile() {
 		Path path = GameDialogs.showSaveGameDialog(gameWindow);
 
+		if (path == null)
+			return;
+
+		final SaveGame saveGame;
+		final MoveJournal held;
+
 		try {
-			SaveGameUtility.saveToFile(path, level.getLevelData());
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			synchronized (Game.class) {
+				if (journal != null && path.equals(journalSnapshot)) {
+					journal.flush();
+					return;
+				}
+			}
+
+			closeJournal();
+
+			// the moves made while the copy is written go to the new journal. the
+			// old journal belongs to the old file, without it the old file is
+			// still consistent if the save fails or the game crashes meanwhile.
+			final Lock exclusive = engine.getExclusiveLock();
+			exclusive.lock();
+
+			try {
+				saveGame = snapshot();
+				MoveJournal.delete(path);
+				held = holdJournal(path);
+			} finally {
+				exclusive.unlock();
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			showError("Could not save the game to " + path, e);
+			return;
 		}
+
+		final ProgressDialog progress = new ProgressDialog(gameWindow, "Saving " + path.getFileName());
+
+		final boolean compressed = path.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+
+		SaveGameTasks.save(path, saveGame, compressed, GameExecutors.get(Subsystem.IO), progress)
+				.whenComplete((result, failure) -> {
+					progress.close();
+
+					if (failure == null) {
+						releaseJournal(held);
+						return;
+					}
+
+					synchronized (Game.class) {
+						if (journal == held)
+							closeJournal();
+					}
+
+					showError("Could not save the game to " + path, failure);
+				});
 	}
 
 	/**
-	 * loads a level from a file
+	 * <p>
+	 * loads a level from a file, both the binary and the plain text format are
+	 * accepted.
+	 * </p>
+	 *
+	 * <p>
+	 * the file is read and verified in the background. the current game is only
+	 * replaced once the savegame was loaded completely, a failed or cancelled
+	 * load leaves it untouched.
+	 * </p>
 	 */
 	public static void loadFromFile() {
-		stopTimer();
+		Path filePath = GameDialogs.showLoadGameDialog(gameWindow);
 
-		gameRunning = false;
+		if (filePath == null)
+			return;
 
-		sizeY = 0;
-		sizeX = 0;
-		numBombs = 0;
-		safeFields = 0;
+		if (Diagnostics.isEnabled(Severity.DEBUG))
+			Diagnostics.debug("io", "Loading level from file: " + filePath);
 
-		Path filePath = GameDialogs.showLoadGameDialog(gameWindow);
+		final ProgressDialog progress = new ProgressDialog(gameWindow, "Loading " + filePath.getFileName());
 
-		if (filePath == null)
-			System.exit(0);
+		SaveGameTasks.load(filePath, true, GameExecutors.get(Subsystem.IO), progress)
+				.thenAcceptAsync(saveGame -> resumeSaveGame(filePath, saveGame),
+						GameExecutors.get(Subsystem.BACKGROUND))
+				.whenComplete((result, failure) -> {
+					progress.close();
 
-		if (Game.DEBUG)
-			System.out.println("Loading level from file: " + filePath);
+					if (failure != null)
+						showError("Could not load the game from " + filePath, failure);
+				});
+	}
 
+	/**
+	 * replaces the current game by a loaded savegame.
+	 *
+	 * @param filePath the file the savegame was loaded from
+	 * @param saveGame the savegame
+	 */
+	private static void resumeSaveGame(final Path filePath, final SaveGame saveGame) {
+		stopTimer();
+		closeJournal();
+
+		// the board paints the revealed and flagged fields from the level, so a
+		// savegame with counters doesn't have to be scanned.
+		if (saveGame.hasCounters())
+			engine.resumeGame(saveGame.getLevel(), saveGame.getNumBombs(), saveGame.getBombCount(),
+					saveGame.getSafeFields());
+		else
+			engine.loadGame(saveGame.getLevel());
+
+		// the moves made after the savegame was written, the journal is started
+		// afterwards so that the replayed moves are not journaled again.
 		try {
-			level = Level.fromExistingData(SaveGameUtility.readFromFile(filePath));
-		} catch (IOException e) {
-			if (Game.DEBUG)
-				e.printStackTrace();
-			System.exit(1);
-		} finally {
-			if (level == null)
-				System.exit(1);
-		}
+			final long replayed = MoveJournal.replay(filePath, engine);
 
-		sizeY = level.getSizeY();
-		sizeX = level.getSizeX();
-
-		touchedFields = new LinkedHashMap<>();
-
-		// determine the state of the savegame.
-		// count bombs and safe fields, determine wich fields are
-		// allready 'touched'
-		for (int y = 0; y < sizeY; y++) {
-			for (int x = 0; x < sizeX; x++) {
-				if (level.get(y, x) == BOMB)
-					numBombs++;
-				else if (level.get(y, x) == FLAGGED_BOMB) {
-					touchedFields.put(y + "-" + x, level.get(y, x));
-				} else if (level.get(y, x) >= 'a' & level.get(y, x) <= 'i') { // FLAGGED
-					touchedFields.put(y + "-" + x, level.get(y, x));
-				} else if (level.get(y, x) >= 'A' & level.get(y, x) <= 'I') { // TOUCHED
-					touchedFields.put(y + "-" + x, (char) (level.get(y, x) - 17));
-					level.set(y, x, (char) (level.get(y, x) - 17));
-				} else
-					safeFields++;
-			}
+			if (Diagnostics.isEnabled(Severity.DEBUG))
+				Diagnostics.debug("journal", "Replayed " + replayed + " moves from the journal");
+
+			startJournal(filePath);
+		} catch (IOException e) {
+			Diagnostics.warn("journal", "Could not replay the journal of " + filePath, e);
 		}
 
-		bombCount = numBombs;
+		clock.reset(saveGame.getElapsedMillis());
+		updateClock();
 
-		gameWindow.newBoard(sizeY, sizeX);
+		if (engine.isRunning())
+			startTimer();
+	}
 
-		if (DEBUG)
-			gameWindow.debugView(level.getLevelData());
+	/**
+	 * tells the player that a background task failed. nothing is shown if the
+	 * player cancelled the task.
+	 *
+	 * @param message the message
+	 * @param failure the cause
+	 */
+	private static void showError(final String message, final Throwable failure) {
+		final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+				? failure.getCause()
+				: failure;
 
-		gameWindow.updateTouchedFields(touchedFields);
-		gameWindow.updateTimer("000");
-		gameWindow.updateBombCounter("" + bombCount);
-		gameWindow.updateStatusLabel("Size: " + sizeY + "x" + sizeX + " Bombs: " + numBombs);
+		if (cause instanceof CancellationException)
+			return;
 
-		gameRunning = true;
+		Diagnostics.error("game", message, cause);
 
-		startTimer();
+		SwingUtilities.invokeLater(() -> GameDialogs.showErrorDialog(gameWindow, message, cause));
 	}
 
     /**
@@ -364,7 +443,7 @@ public class Game {
         if  (lastSettings == false)
             return;
 
-        newGame(sizeY, sizeX, numBombs);
+        newGame(engine.getSizeY(), engine.getSizeX(), engine.getNumBombs());
     }
 
 	/**
@@ -374,62 +453,84 @@ public class Game {
 	 * </p>
 	 *
 	 * <p>
-	 * deligates to newGame(int, int, int).
+	 * deligates to newGame(int, int, long).
 	 * </p>
 	 *
-	 * @see game.Game.newGame(int,int,int)
+	 * @see game.Game.newGame(int,int,long)
 	 */
 	public static void newGame() {
-		int[] newSettings = GameDialogs.showNewGameDialog(gameWindow);
+		long[] newSettings = GameDialogs.showNewGameDialog(gameWindow);
 
 		if (newSettings == null)
 			return;
 
-		newGame(newSettings[0], newSettings[1], newSettings[2]);
+		newGame((int) newSettings[0], (int) newSettings[1], newSettings[2]);
 	}
 
 	/**
+	 * <p>
 	 * starts a new game with the settings passed as arguments.
+	 * </p>
+	 *
+	 * <p>
+	 * the level is taken from the pool of prepared levels. if there is none,
+	 * the current game goes on until the new level is generated completely.
+	 * only the last game requested is started.
+	 * </p>
 	 *
 	 * @param y the vertical size
 	 * @param x the horizontal size
 	 * @param b the number of bombs
 	 */
-	public static void newGame(final int y, final int x, final int b) {
-		stopTimer();
-
-		gameRunning = false;
-
-		sizeY = y;
-		sizeX = x;
-		numBombs = b;
-		bombCount = numBombs;
-
-		safeFields = (sizeY * sizeX) - numBombs;
-
-		level = Level.generateNew(sizeY, sizeX, numBombs);
-
-		threadPool.execute(() -> calculateFields());
+	public static void newGame(final int y, final int x, final long b) {
+		final long request = newGameRequests.incrementAndGet();
+		final CompletableFuture<Level> level = boards.take(y, x, b);
+
+		if (!level.isDone())
+			gameWindow.updateStatusLabel("Generating " + y + "x" + x + " ...");
+
+		// a prepared level is started right away by this thread. a request
+		// replaced by a newer one is dropped silently, even if it failed.
+		level.whenComplete((fresh, failure) -> {
+			synchronized (newGameLock) {
+				if (newGameRequests.get() != request)
+					return;
+
+				if (failure != null) {
+					showError("Could not create a new game", failure);
+					return;
+				}
 
-		gameWindow.newBoard(sizeY, sizeX);
+				try {
+					startGame(fresh, b);
+				} catch (RuntimeException e) {
+					showError("Could not start the new game", e);
+				}
+			}
+		});
+	}
 
-		gameWindow.updateTimer("000");
-		gameWindow.updateBombCounter("" + bombCount);
-		gameWindow.updateStatusLabel("Size: " + sizeY + "x" + sizeX + " Bombs: " + numBombs);
+	/**
+	 * replaces the current game by a new level.
+	 *
+	 * @param fresh the level, its numbers are calculated
+	 * @param b     the number of bombs
+	 */
+	private static void startGame(final Level fresh, final long b) {
+		stopTimer();
+		closeJournal();
 
-		gameRunning = true;
+		engine.newGame(fresh, b);
 
+		clock.reset(0);
 		startTimer();
-
-		if (DEBUG)
-			gameWindow.debugView(level.getLevelData());
 	}
 
 	/**
-	 * prints the current level-layout to console. only used when DEBUG=true.
+	 * prints the current level-layout to the diagnostic output.
 	 */
 	public static void printLevel() {
-		DebugView.printLevel(level.getLevelData());
+		DebugView.printLevel(engine.getLevel());
 	}
 
 	/**
@@ -438,67 +539,193 @@ public class Game {
 	 * @see java.lang.System.exit
 	 */
 	public static void exitGame() {
+		closeJournal();
 		System.exit(0);
 	}
 
 	/**
-	 * measures the elapsed time for the current level in seconds.
+	 * the current state of the game with a copy of the level, the engine has to
+	 * be locked by the caller.
 	 */
-	private static synchronized void startTimer() {
-		timer = threadPool.submit(() -> {
-			Thread.currentThread().setName("Time-Counter");
+	private static SaveGame snapshot() {
+		return new SaveGame(engine.getLevel().copy(), engine.getNumBombs(), engine.getBombCount(), engine.getSafeFields(),
+				clock.getElapsedMillis());
+	}
 
-			if (DEBUG)
-				System.out.println(Thread.currentThread().getName() + " started!");
+	/**
+	 * starts journaling the moves of the current game next to a savegame.
+	 */
+	private static synchronized void startJournal(final Path path) throws IOException {
+		journal = MoveJournal.start(path, engine, Game::snapshot, GameExecutors.get(Subsystem.IO),
+				JOURNAL_FLUSH_INTERVAL, JOURNAL_COMPACT_EVERY);
+		journalSnapshot = path;
+	}
 
-			int time = 0;
+	/**
+	 * starts journaling the moves of the current game in memory, while its
+	 * savegame is written.
+	 */
+	private static synchronized MoveJournal holdJournal(final Path path) {
+		journal = MoveJournal.hold(path, engine, Game::snapshot, GameExecutors.get(Subsystem.IO),
+				JOURNAL_FLUSH_INTERVAL, JOURNAL_COMPACT_EVERY);
+		journalSnapshot = path;
+		return journal;
+	}
 
-			while (!Thread.currentThread().isInterrupted()) {
-				try {
-					Thread.sleep(1000);
-					gameWindow.updateTimer("" + time++);
-				} catch (InterruptedException e) {
-					break;
-				}
-			}
+	/**
+	 * writes a held journal once its savegame replaced the file. nothing
+	 * happens if another game or savegame replaced the journal meanwhile.
+	 */
+	private static synchronized void releaseJournal(final MoveJournal held) {
+		if (journal != held)
+			return;
 
-			if (DEBUG)
-				System.out.println(Thread.currentThread().getName() + " stopped!");
+		try {
+			held.release();
+		} catch (IOException e) {
+			Diagnostics.warn("journal", "Could not start the journal of " + journalSnapshot, e);
+			closeJournal();
+		}
+	}
 
+	/**
+	 * flushes and stops the journal of the current game, if there is one.
+	 */
+	private static synchronized void closeJournal() {
+		if (journal == null)
 			return;
+
+		try {
+			journal.close();
+		} catch (IOException e) {
+			Diagnostics.warn("journal", "Could not close the journal", e);
+		}
+
+		journal = null;
+		journalSnapshot = null;
+	}
+
+	/**
+	 * returns the time the current game has been played, without the time it
+	 * was paused.
+	 *
+	 * @return the elapsed time in milliseconds
+	 */
+	public static long getElapsedMillis() {
+		return clock.getElapsedMillis();
+	}
+
+	/**
+	 * pauses the clock of the current game, e.g. while the window is
+	 * minimized. the clock is paused on the input queue, after the moves the
+	 * player made before.
+	 */
+	public static void pauseClock() {
+		GameExecutors.get(Subsystem.INPUT).execute(Game::stopTimer);
+	}
+
+	/**
+	 * resumes the clock of the current game, if it is still running. the clock
+	 * is resumed on the input queue, so the event dispatch thread doesn't wait
+	 * for the engine.
+	 */
+	public static void resumeClock() {
+		GameExecutors.get(Subsystem.INPUT).execute(() -> {
+			// the engine is locked before the clock, like when the game ends
+			final Lock exclusive = engine.getExclusiveLock();
+			exclusive.lock();
+
+			try {
+				if (engine.isRunning())
+					startTimer();
+			} finally {
+				exclusive.unlock();
+			}
 		});
 	}
 
 	/**
-	 * resets the timer by setting time to 0 (zero)
+	 * starts the clock of the current level. the clock isn't a thread, the
+	 * display reads it every {@code CLOCK_DISPLAY_INTERVAL} milliseconds on the
+	 * event dispatch thread.
+	 */
+	private static synchronized void startTimer() {
+		clock.resume();
+		clockDisplay.start();
+	}
+
+	/**
+	 * stops the clock of the current level and shows the time it stopped at.
 	 */
 	private static synchronized void stopTimer() {
-		if (timer != null)
-			timer.cancel(true);
+		clock.pause();
+		clockDisplay.stop();
+		updateClock();
+	}
+
+	/**
+	 * shows the elapsed time in whole seconds, the window only repaints the
+	 * timer when the second changes.
+	 */
+	private static void updateClock() {
+		if (gameWindow != null)
+			gameWindow.updateTimer(clock.getElapsedMillis() / 1000);
 	}
 
 	/**
+	 * <p>
 	 * entry point of the game
+	 * </p>
+	 *
+	 * <p>
+	 * the window is built and shown on the event dispatch thread right away,
+	 * nobody waits for anybody. the background threads are only started when a
+	 * task needs them, see {@code game.util.GameExecutors}.
+	 * </p>
 	 *
 	 * @param args
-	 * @throws InterruptedException
-	 * @throws BrokenBarrierException
 	 */
-	public static void main(String[] args) throws InterruptedException, BrokenBarrierException {
-        barrier = new CyclicBarrier(2, () -> {
-			if (DEBUG)
-				System.out.println("- - - GAME START - - -");
-		});
+	public static void main(String[] args) {
+		StartupTimer.mainStarted();
 
-		threadPool = Executors.newFixedThreadPool(4);
-		Thread.currentThread().setName("Main-Thread");
-		gameWindow = new GameWindow();
-		threadPool.execute(gameWindow);
+		// without a display the window would never be shown
+		if (GraphicsEnvironment.isHeadless()) {
+			System.err.println("jMinesweeper needs a display!");
+			System.exit(1);
+		}
 
-		// at startup always start a default game.
-		// y=8, x=8, bombs=10
-		threadPool.execute(() -> newGame(8, 8, 10));
+		Thread.currentThread().setName("Main-Thread");
+		engine.addListener(new WindowUpdater());
+
+		SwingUtilities.invokeLater(() -> {
+			gameWindow = new GameWindow();
+
+			// at startup always start a default game, small enough to be
+			// created on the event dispatch thread.
+			// y=8, x=8, bombs=10
+			newGame(8, 8, 10);
+
+			gameWindow.run();
+
+			// not needed for the first frame, the management classes take a
+			// while to load and the levels take a while to generate
+			final Timer deferred = new Timer(DEFERRED_STARTUP_DELAY, e -> {
+				GameExecutors.get(Subsystem.BACKGROUND).execute(Game::registerMetrics);
+				boards.start();
+			});
+			deferred.setRepeats(false);
+			deferred.start();
+		});
+	}
 
-		barrier.await();
+	/**
+	 * makes the metrics of the game available through JMX.
+	 */
+	private static void registerMetrics() {
+		try {
+			Metrics.register();
+		} catch (JMException e) {
+			Diagnostics.warn("metrics", "Could not register the metrics", e);
+		}
 	}
 }
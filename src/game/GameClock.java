@@ -0,0 +1,103 @@
+package game;
+
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ * measures the time a game is played, in milliseconds.
+ * </p>
+ *
+ * <p>
+ * the clock doesn't count ticks, it reads a monotonic time source, i.e.
+ * {@code System.nanoTime()}. so it doesn't drift and doesn't need a thread of
+ * its own, whoever shows the time reads it as often as needed. the clock can
+ * be paused and resumed, the paused time isn't counted.
+ * </p>
+ *
+ * <p>
+ * the methods of a clock are thread-safe.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public class GameClock {
+	private final LongSupplier nanoTime;
+
+	private long elapsedNanos;
+	private long startedAt;
+	private boolean running;
+
+	/**
+	 * creates a stopped clock reading {@code System.nanoTime()}.
+	 */
+	public GameClock() {
+		this(System::nanoTime);
+	}
+
+	/**
+	 * creates a stopped clock reading another time source, e.g. in tests.
+	 *
+	 * @param nanoTime the time source in nanoseconds
+	 */
+	public GameClock(final LongSupplier nanoTime) {
+		if (nanoTime == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * stops the clock and sets the elapsed time, e.g. of a loaded savegame.
+	 *
+	 * @param elapsedMillis the elapsed time in milliseconds
+	 */
+	public synchronized void reset(final long elapsedMillis) {
+		if (elapsedMillis < 0)
+			throw new IllegalArgumentException("Values can't be less than 0!");
+
+		elapsedNanos = elapsedMillis * 1_000_000L;
+		running = false;
+	}
+
+	/**
+	 * starts or resumes the clock, nothing happens if it is running.
+	 */
+	public synchronized void resume() {
+		if (running)
+			return;
+
+		startedAt = nanoTime.getAsLong();
+		running = true;
+	}
+
+	/**
+	 * pauses the clock, nothing happens if it is paused.
+	 */
+	public synchronized void pause() {
+		if (!running)
+			return;
+
+		elapsedNanos += nanoTime.getAsLong() - startedAt;
+		running = false;
+	}
+
+	/**
+	 * checks if the clock is running.
+	 *
+	 * @return true if the clock is running
+	 */
+	public synchronized boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * returns the elapsed time without the paused time.
+	 *
+	 * @return the elapsed time in milliseconds
+	 */
+	public synchronized long getElapsedMillis() {
+		final long nanos = running ? elapsedNanos + nanoTime.getAsLong() - startedAt : elapsedNanos;
+		return nanos / 1_000_000L;
+	}
+}
@@ -0,0 +1,664 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import game.data.CellSet;
+import game.data.ChunkedLevel;
+import game.data.FieldCalculator;
+import game.data.FloodFill;
+import game.data.Level;
+import game.util.Metrics;
+
+/**
+ * <p>
+ * the rules and the state of a single game.
+ * </p>
+ *
+ * <p>
+ * an engine does not depend on the user interface and does not start any
+ * threads, so any number of engines can be used independently in the same
+ * process, e.g. to let bots play thousands of games concurrently. all
+ * state-changes are reported to the registered {@code game.GameListener}s.
+ * </p>
+ *
+ * <p>
+ * the methods of an engine are thread-safe. moves share a lock, they don't
+ * wait for each other: the fields are changed with
+ * {@code Level.compareAndSet} and the counters are atomic, so reveals and
+ * flags on different parts of the board run in parallel and no field is
+ * revealed twice. only a new game and {@code getExclusiveLock()} take the
+ * lock exclusively, holding it keeps the game from changing, e.g. while a
+ * snapshot is taken.
+ * </p>
+ *
+ * <p>
+ * the moves are reported to {@code GameListener.moveMade} in an order which
+ * replays to the same game, e.g. from a journal. concurrent reveals commute.
+ * a flag doesn't: whether a region stops at a field depends on whether it was
+ * flagged first. so a flag is reported in the moment it is set, and a reveal
+ * once its region is complete. a region which stopped at a flag that was
+ * removed meanwhile is continued from there before it is reported. only
+ * these short steps are serialized, never a whole region.
+ * </p>
+ *
+ * <p>
+ * the getters don't lock. read them while holding the exclusive lock, or
+ * from a listener, to get a consistent view of several of them.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public class GameEngine {
+	/**
+	 * the offset between a hidden field and its flagged counterpart,
+	 * {@code '0'-'8'} become {@code 'a'-'i'}.
+	 */
+	public static final int FLAGGED_OFFSET = 'a' - Game.EMPTY;
+
+	/**
+	 * the moves reported to {@code GameListener.moveMade}.
+	 */
+	public static final int MOVE_REVEAL = 1;
+	public static final int MOVE_FLAG = 2;
+	public static final int MOVE_UNFLAG = 3;
+
+	/**
+	 * the number of fields above which new levels are generated lazily.
+	 */
+	public static final long CHUNKED_THRESHOLD = 1L << 27;
+
+	private static final GameListener[] NO_LISTENERS = new GameListener[0];
+
+	private static final int RUNNING = 0;
+	private static final int WON = 1;
+	private static final int LOST = 2;
+
+	// copied on write, notifying the listeners doesn't allocate
+	private final Object listenerLock = new Object();
+	private volatile GameListener[] listeners = NO_LISTENERS;
+
+	// moves hold the read lock, a new game and snapshots the write lock
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// orders the reported moves, held to set a flag or to check the flags a
+	// region stopped at, never while a region is revealed
+	private final Object moveOrder = new Object();
+
+	// every thread making moves has its own set of changed fields and of
+	// flagged fields its region stopped at
+	private final ThreadLocal<CellSet> changedFields = ThreadLocal.withInitial(CellSet::new);
+	private final ThreadLocal<CellSet> stoppedFields = ThreadLocal.withInitial(CellSet::new);
+
+	private volatile Level level;
+	private volatile long numBombs;
+	private final AtomicLong bombCount = new AtomicLong();
+	private final AtomicLong safeFields = new AtomicLong();
+	private final AtomicInteger state = new AtomicInteger(LOST);
+
+	// the bomb which ended the game, y << 32 | x, or -1
+	private volatile long exploded = -1;
+
+	/**
+	 * registers a listener for the state-changes of this engine.
+	 *
+	 * @param listener the listener
+	 */
+	public void addListener(final GameListener listener) {
+		if (listener == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		synchronized (listenerLock) {
+			final GameListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+			added[added.length - 1] = listener;
+			listeners = added;
+		}
+	}
+
+	/**
+	 * removes a previously registered listener.
+	 *
+	 * @param listener the listener
+	 */
+	public void removeListener(final GameListener listener) {
+		synchronized (listenerLock) {
+			final GameListener[] current = listeners;
+
+			for (int i = 0; i < current.length; i++) {
+				if (current[i].equals(listener)) {
+					final GameListener[] removed = Arrays.copyOf(current, current.length - 1);
+					System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+					listeners = removed;
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * starts a new game with a randomly generated level.
+	 * </p>
+	 *
+	 * <p>
+	 * levels with more than {@code CHUNKED_THRESHOLD} fields are generated
+	 * lazily by a {@code game.data.ChunkedLevel}, smaller ones are generated
+	 * and calculated completely up front.
+	 * </p>
+	 *
+	 * @param y the vertical size
+	 * @param x the horizontal size
+	 * @param b the number of bombs
+	 */
+	public void newGame(final int y, final int x, final long b) {
+		newGame(generate(y, x, b), b);
+	}
+
+	/**
+	 * generates a random level whose numbers are calculated, ready to be
+	 * passed to {@code newGame(Level, long)}. levels with more than
+	 * {@code CHUNKED_THRESHOLD} fields are generated lazily by a
+	 * {@code game.data.ChunkedLevel}.
+	 *
+	 * @param y the vertical size
+	 * @param x the horizontal size
+	 * @param b the number of bombs
+	 * @return the level
+	 */
+	public static Level generate(final int y, final int x, final long b) {
+		final Level newLevel;
+		final long start = System.nanoTime();
+
+		if ((long) y * x > CHUNKED_THRESHOLD) {
+			// the chunks are generated and calculated when they are used
+			newLevel = new ChunkedLevel(y, x, b, ThreadLocalRandom.current().nextLong());
+			Metrics.BOARD_GENERATION.recordSince(start);
+		} else {
+			// fewer fields than int values, generateNew rejects more bombs
+			// than fields
+			newLevel = Level.generateNew(y, x, (int) Math.min(b, (long) y * x));
+			final long generated = System.nanoTime();
+			Metrics.BOARD_GENERATION.record(generated - start);
+
+			FieldCalculator.calculate(newLevel);
+			Metrics.CALCULATE_FIELDS.recordSince(generated);
+		}
+
+		return newLevel;
+	}
+
+	/**
+	 * starts a new game with a freshly generated level whose numbers are already
+	 * calculated. nothing is revealed or flagged yet, so the level is not
+	 * scanned, which makes this suitable for huge lazily generated levels.
+	 *
+	 * @param fresh the new level
+	 * @param b     the number of bombs in the level
+	 */
+	public void newGame(final Level fresh, final long b) {
+		if (fresh == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		lock.writeLock().lock();
+
+		try {
+			start(fresh, b, b, (long) fresh.getSizeY() * fresh.getSizeX() - b);
+
+			for (GameListener listener : listeners)
+				listener.newBoard(this);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * <p>
+	 * continues a game from an existing level, e.g. a savegame.
+	 * </p>
+	 *
+	 * <p>
+	 * the numbers of the level have to be calculated already. revealed and
+	 * flagged fields are kept and reported to the listeners after the new board.
+	 * </p>
+	 *
+	 * @param existing the level to continue
+	 */
+	public void loadGame(final Level existing) {
+		if (existing == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		final CellSet changed = changedFields.get();
+		long bombs = 0;
+		long remaining = 0;
+		long safe = 0;
+
+		changed.clear();
+
+		// determine the state of the savegame. count bombs and safe fields,
+		// determine which fields are already revealed or flagged.
+		for (int y = 0; y < existing.getSizeY(); y++) {
+			for (int x = 0; x < existing.getSizeX(); x++) {
+				final char value = existing.get(y, x);
+
+				if (value == Game.BOMB) {
+					bombs++;
+					remaining++;
+				} else if (value == Game.FLAGGED_BOMB) {
+					bombs++;
+					changed.add(y, x);
+				} else if (value >= 'a' & value <= 'i') { // FLAGGED
+					safe++;
+					changed.add(y, x);
+				} else if (value >= 'A' & value <= 'I') { // REVEALED
+					changed.add(y, x);
+				} else {
+					safe++;
+				}
+			}
+		}
+
+		lock.writeLock().lock();
+
+		try {
+			start(existing, bombs, remaining, safe);
+
+			for (GameListener listener : listeners)
+				listener.newBoard(this);
+
+			if (!changed.isEmpty())
+				fireFieldsChanged(changed);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * <p>
+	 * continues a game from an existing level whose counters are known, e.g. a
+	 * binary savegame.
+	 * </p>
+	 *
+	 * <p>
+	 * the level is not scanned, so this takes constant time even for huge
+	 * levels. listeners only receive {@code newBoard} and have to read revealed
+	 * and flagged fields from the level themselves.
+	 * </p>
+	 *
+	 * @param existing   the level to continue
+	 * @param numBombs   the number of bombs in the level
+	 * @param bombCount  the number of bombs which are not flagged
+	 * @param safeFields the number of safe fields which are not revealed
+	 */
+	public void resumeGame(final Level existing, final long numBombs, final long bombCount,
+			final long safeFields) {
+		if (existing == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		lock.writeLock().lock();
+
+		try {
+			start(existing, numBombs, bombCount, safeFields);
+
+			for (GameListener listener : listeners)
+				listener.newBoard(this);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * reveals a field. if it is empty, the whole empty region around it is
+	 * revealed as well. revealing a bomb ends the game.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @return the number of revealed fields
+	 */
+	public int reveal(final int positionY, final int positionX) {
+		lock.readLock().lock();
+
+		try {
+			if (state.get() != RUNNING)
+				return 0;
+
+			if (level.get(positionY, positionX) == Game.BOMB)
+				return revealBomb(positionY, positionX);
+
+			return revealRegion(positionY, positionX);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * reveals a field which isn't a bomb and the empty region around it, the
+	 * lock is shared by the caller.
+	 */
+	private int revealRegion(final int positionY, final int positionX) {
+		final Level current = level;
+		final CellSet changed = changedFields.get();
+		final CellSet stopped = stoppedFields.get();
+		changed.clear();
+		stopped.clear();
+
+		if (FloodFill.reveal(current, positionY, positionX, changed, stopped) == 0)
+			return 0;
+
+		final long remaining;
+
+		while (true) {
+			final int checked = stopped.size();
+
+			synchronized (moveOrder) {
+				if (!unflagged(current, stopped)) {
+					// no flag the region stopped at was removed, so the flags
+					// reported so far lead to the same region. every field is
+					// revealed by one thread only, so exactly one of them sees
+					// the last safe field go
+					remaining = safeFields.addAndGet(-changed.size());
+					fireMoveMade(MOVE_REVEAL, positionY, positionX);
+					break;
+				}
+			}
+
+			// a removed flag would have been revealed if it was removed
+			// before the region reached it
+			for (int i = 0; i < checked; i++)
+				FloodFill.reveal(current, stopped.getY(i), stopped.getX(i), changed, stopped);
+		}
+
+		fireFieldsChanged(changed);
+
+		for (GameListener listener : listeners)
+			listener.countersChanged(this);
+
+		if (remaining == 0)
+			finish(WON, -1);
+
+		return changed.size();
+	}
+
+	/**
+	 * checks if one of the flagged fields a region stopped at was unflagged
+	 * meanwhile, the order of the moves is held by the caller.
+	 */
+	private static boolean unflagged(final Level current, final CellSet stopped) {
+		for (int i = 0; i < stopped.size(); i++)
+			if (FloodFill.isRevealable(current.get(stopped.getY(i), stopped.getX(i))))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * reveals a bomb and ends the game, unless the bomb was flagged or the game
+	 * ended meanwhile. the lock is shared by the caller.
+	 */
+	private int revealBomb(final int positionY, final int positionX) {
+		synchronized (moveOrder) {
+			// a bomb is only flagged in the order of the moves, so it can't be
+			// flagged between the check and the report
+			if (state.get() != RUNNING || level.get(positionY, positionX) != Game.BOMB)
+				return 0;
+
+			fireMoveMade(MOVE_REVEAL, positionY, positionX);
+			finish(LOST, (long) positionY << 32 | positionX);
+			return 0;
+		}
+	}
+
+	/**
+	 * puts a flag on a hidden field, or removes it if the field is already
+	 * flagged. revealed fields are not changed.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @return true if the field was changed
+	 */
+	public boolean toggleFlag(final int positionY, final int positionX) {
+		lock.readLock().lock();
+
+		try {
+			synchronized (moveOrder) {
+				// no flag follows the reveal of the last safe field
+				if (state.get() != RUNNING || safeFields.get() == 0)
+					return false;
+
+				final int move = flip(positionY, positionX);
+
+				if (move == 0)
+					return false;
+
+				fireMoveMade(move, positionY, positionX);
+			}
+
+			final CellSet changed = changedFields.get();
+			changed.clear();
+			changed.add(positionY, positionX);
+
+			fireFieldsChanged(changed);
+
+			for (GameListener listener : listeners)
+				listener.countersChanged(this);
+
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * returns the lock which keeps the game from changing while it is held.
+	 * moves and new games wait for it, the getters don't. its holder may make
+	 * moves itself. it must not be taken by a listener of a move, and a
+	 * listener must not make moves.
+	 *
+	 * @return the exclusive lock
+	 */
+	public Lock getExclusiveLock() {
+		return lock.writeLock();
+	}
+
+	/**
+	 * returns the current level.
+	 *
+	 * @return the level, or null if no game was started yet
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * returns the vertical size of the current level.
+	 *
+	 * @return the vertical size
+	 */
+	public int getSizeY() {
+		final Level current = level;
+		return current == null ? 0 : current.getSizeY();
+	}
+
+	/**
+	 * returns the horizontal size of the current level.
+	 *
+	 * @return the horizontal size
+	 */
+	public int getSizeX() {
+		final Level current = level;
+		return current == null ? 0 : current.getSizeX();
+	}
+
+	/**
+	 * returns the value of a field in the current level.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @return the raw value of the field
+	 */
+	public char getField(final int positionY, final int positionX) {
+		return level.get(positionY, positionX);
+	}
+
+	/**
+	 * checks if a field in the current level is flagged.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @return true if the field carries a flag
+	 */
+	public boolean isFlagged(final int positionY, final int positionX) {
+		final char value = level.get(positionY, positionX);
+		return value == Game.FLAGGED_BOMB | (value >= 'a' & value <= 'i');
+	}
+
+	/**
+	 * returns the number of bombs in the current level.
+	 *
+	 * @return the number of bombs
+	 */
+	public long getNumBombs() {
+		return numBombs;
+	}
+
+	/**
+	 * returns the number of bombs which are not flagged yet.
+	 *
+	 * @return the number of remaining bombs
+	 */
+	public long getBombCount() {
+		return bombCount.get();
+	}
+
+	/**
+	 * returns the number of safe fields which are not revealed yet.
+	 *
+	 * @return the number of remaining safe fields
+	 */
+	public long getSafeFields() {
+		return safeFields.get();
+	}
+
+	/**
+	 * checks if a game is running.
+	 *
+	 * @return true if the game is running
+	 */
+	public boolean isRunning() {
+		return state.get() == RUNNING;
+	}
+
+	/**
+	 * returns the vertical position of the bomb which ended the last game.
+	 *
+	 * @return the vertical position, -1 if the game wasn't lost by revealing a
+	 *         bomb
+	 */
+	public int getExplodedY() {
+		final long position = exploded;
+		return position < 0 ? -1 : (int) (position >>> 32);
+	}
+
+	/**
+	 * returns the horizontal position of the bomb which ended the last game.
+	 *
+	 * @return the horizontal position, -1 if the game wasn't lost by revealing
+	 *         a bomb
+	 */
+	public int getExplodedX() {
+		final long position = exploded;
+		return position < 0 ? -1 : (int) position;
+	}
+
+	/**
+	 * checks if the last game was won.
+	 *
+	 * @return true if all safe fields were revealed
+	 */
+	public boolean isVictory() {
+		return state.get() == WON;
+	}
+
+	/**
+	 * sets the level and the counters of a new game, the write lock is held by
+	 * the caller.
+	 */
+	private void start(final Level fresh, final long bombs, final long remaining, final long safe) {
+		level = fresh;
+		numBombs = bombs;
+		bombCount.set(remaining);
+		safeFields.set(safe);
+		exploded = -1;
+		state.set(safe > 0 ? RUNNING : WON);
+	}
+
+	/**
+	 * puts a flag on a hidden field or removes it, the order of the moves is
+	 * held by the caller. a region may reveal the field meanwhile.
+	 *
+	 * @return the move, or 0 if the field can't be flagged
+	 */
+	private int flip(final int positionY, final int positionX) {
+		while (true) {
+			final char value = level.get(positionY, positionX);
+			final char flipped;
+			final int move;
+
+			if (value == Game.BOMB) {
+				flipped = Game.FLAGGED_BOMB;
+				move = MOVE_FLAG;
+			} else if (value == Game.FLAGGED_BOMB) {
+				flipped = Game.BOMB;
+				move = MOVE_UNFLAG;
+			} else if (value >= 'a' & value <= 'i') { // FLAGGED
+				flipped = (char) (value - FLAGGED_OFFSET);
+				move = MOVE_UNFLAG;
+			} else if (FloodFill.isRevealable(value)) {
+				flipped = (char) (value + FLAGGED_OFFSET);
+				move = MOVE_FLAG;
+			} else {
+				return 0;
+			}
+
+			if (level.compareAndSet(positionY, positionX, value, flipped)) {
+				if (value == Game.BOMB)
+					bombCount.decrementAndGet();
+				else if (value == Game.FLAGGED_BOMB)
+					bombCount.incrementAndGet();
+
+				return move;
+			}
+		}
+	}
+
+	/**
+	 * ends the current game, only the first of several threads ending it at
+	 * once notifies the listeners.
+	 *
+	 * @param result {@code WON} or {@code LOST}
+	 */
+	private void finish(final int result, final long position) {
+		if (!state.compareAndSet(RUNNING, result))
+			return;
+
+		// only the move which ended the game is shown as exploded
+		exploded = position;
+
+		for (GameListener listener : listeners)
+			listener.gameOver(this, result == WON);
+	}
+
+	private void fireMoveMade(final int move, final int positionY, final int positionX) {
+		for (GameListener listener : listeners)
+			listener.moveMade(this, move, positionY, positionX);
+	}
+
+	private void fireFieldsChanged(final CellSet changed) {
+		for (GameListener listener : listeners)
+			listener.fieldsChanged(this, changed);
+	}
+}
@@ -0,0 +1,70 @@
+package game;
+
+import game.data.CellSet;
+
+/**
+ * <p>
+ * receives the state-changes of a {@code game.GameEngine}.
+ * </p>
+ *
+ * <p>
+ * all methods are called synchronously by the thread which changed the state,
+ * while the engine is still locked. moves only share the lock, so the methods
+ * may be called by several threads at once and have to be thread-safe.
+ * implementations should return quickly and must not keep a reference to the
+ * passed {@code CellSet}, it is reused by the engine.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public interface GameListener {
+	/**
+	 * a new level was generated or loaded.
+	 *
+	 * @param engine the engine
+	 */
+	public default void newBoard(final GameEngine engine) {
+	}
+
+	/**
+	 * the player made a move which changed the game. called before the
+	 * resulting {@code fieldsChanged} and {@code gameOver}.
+	 *
+	 * @param engine    the engine
+	 * @param move      one of {@code GameEngine.MOVE_REVEAL},
+	 *                  {@code GameEngine.MOVE_FLAG} or
+	 *                  {@code GameEngine.MOVE_UNFLAG}
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 */
+	public default void moveMade(final GameEngine engine, final int move, final int positionY, final int positionX) {
+	}
+
+	/**
+	 * fields were revealed, flagged or unflagged.
+	 *
+	 * @param engine  the engine
+	 * @param changed the positions of the changed fields
+	 */
+	public default void fieldsChanged(final GameEngine engine, final CellSet changed) {
+	}
+
+	/**
+	 * the number of remaining bombs or safe fields has changed.
+	 *
+	 * @param engine the engine
+	 */
+	public default void countersChanged(final GameEngine engine) {
+	}
+
+	/**
+	 * the game is over.
+	 *
+	 * @param engine  the engine
+	 * @param victory true if the player has revealed all safe fields, false if a
+	 *                bomb was hit
+	 */
+	public default void gameOver(final GameEngine engine, final boolean victory) {
+	}
+}
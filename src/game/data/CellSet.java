@@ -0,0 +1,114 @@
+package game.data;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * a growable list of cell positions.
+ * </p>
+ *
+ * <p>
+ * it is used to collect the cells changed by a single operation, so the user
+ * interface can apply them in one batch. the positions are kept in primitive
+ * arrays which are reused after {@code clear()}, so a set that is used over
+ * and over again stops allocating once it has reached its working size.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class CellSet {
+	private int[] positionsY;
+	private int[] positionsX;
+	private int size;
+
+	/**
+	 * creates an empty set with a small initial capacity.
+	 */
+	public CellSet() {
+		this(16);
+	}
+
+	/**
+	 * creates an empty set.
+	 *
+	 * @param capacity the initial capacity
+	 */
+	public CellSet(final int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		this.positionsY = new int[capacity];
+		this.positionsX = new int[capacity];
+	}
+
+	/**
+	 * adds a position to the end of the set.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 */
+	public void add(final int positionY, final int positionX) {
+		if (size == positionsY.length) {
+			final int capacity = Math.max(size + 1, size + (size >> 1));
+			positionsY = Arrays.copyOf(positionsY, capacity);
+			positionsX = Arrays.copyOf(positionsX, capacity);
+		}
+
+		positionsY[size] = positionY;
+		positionsX[size] = positionX;
+		size++;
+	}
+
+	/**
+	 * returns the vertical position of the n-th cell.
+	 *
+	 * @param index the index of the cell
+	 * @return the vertical position
+	 */
+	public int getY(final int index) {
+		checkIndex(index);
+		return positionsY[index];
+	}
+
+	/**
+	 * returns the horizontal position of the n-th cell.
+	 *
+	 * @param index the index of the cell
+	 * @return the horizontal position
+	 */
+	public int getX(final int index) {
+		checkIndex(index);
+		return positionsX[index];
+	}
+
+	/**
+	 * returns the number of cells in the set.
+	 *
+	 * @return the number of cells
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * checks if the set is empty.
+	 *
+	 * @return true if there are no cells in the set
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * removes all cells but keeps the allocated capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 | index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+	}
+}
@@ -0,0 +1,332 @@
+package game.data;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import game.Game;
+
+/**
+ * <p>
+ * implementation of {@code game.data.Level} for boards which are far too big
+ * to be held in memory, e.g. 1,000,000 x 1,000,000 fields.
+ * </p>
+ *
+ * <p>
+ * the level is split into chunks of 64x64 fields which are generated on first
+ * access. the bombs of a chunk are a pure function of the seed and the
+ * position of the chunk, so a chunk can be thrown away and generated again at
+ * any time. the numbers are calculated when a chunk is generated, from the
+ * bombs of the chunk and its eight neighbors.
+ * </p>
+ *
+ * <p>
+ * chunks which were changed (revealed or flagged fields) are kept forever,
+ * untouched chunks are kept in a LRU-cache and evicted as soon as the memory
+ * budget is exceeded. so the memory use follows the explored area, not the
+ * size of the board.
+ * </p>
+ *
+ * <p>
+ * the number of bombs per chunk is proportional to its size (the rounding is
+ * spread so that the total is exact), the bombs inside of a chunk are placed
+ * uniformly.
+ * </p>
+ *
+ * <p>
+ * all methods are synchronized, since even reading a field may change the
+ * cache.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class ChunkedLevel implements Level {
+	/**
+	 * the number of bits of a position inside of a chunk, chunks are 64x64
+	 * fields so every row of a chunk fits into a {@code long}.
+	 */
+	private static final int CHUNK_BITS = 6;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE;
+
+	/**
+	 * the default memory budget for untouched chunks, 64 MiB.
+	 */
+	public static final long DEFAULT_BUDGET = 64L << 20;
+
+	private final int sizeY;
+	private final int sizeX;
+	private final long numBombs;
+	private final long seed;
+	private final BigInteger bigBombs;
+	private final BigInteger bigFields;
+
+	private final Map<Long, byte[]> touched = new HashMap<>();
+	private final LinkedHashMap<Long, byte[]> untouched;
+
+	private long lastKey = -1;
+	private byte[] lastChunk;
+	private boolean lastTouched;
+
+	/**
+	 * creates a new level with the default memory budget.
+	 *
+	 * @param sizeY    the vertical size
+	 * @param sizeX    the horizontal size
+	 * @param numBombs the number of bombs
+	 * @param seed     the seed the bombs are generated from
+	 */
+	public ChunkedLevel(final int sizeY, final int sizeX, final long numBombs, final long seed) {
+		this(sizeY, sizeX, numBombs, seed, DEFAULT_BUDGET);
+	}
+
+	/**
+	 * creates a new level.
+	 *
+	 * @param sizeY    the vertical size
+	 * @param sizeX    the horizontal size
+	 * @param numBombs the number of bombs
+	 * @param seed     the seed the bombs are generated from
+	 * @param budget   the maximum number of bytes used by untouched chunks
+	 * @throws IllegalArgumentException if argument(s) are <=0
+	 * @throws IllegalStateException    if there are more bombs than fields
+	 */
+	public ChunkedLevel(final int sizeY, final int sizeX, final long numBombs, final long seed, final long budget) {
+		if (sizeY <= 0 | sizeX <= 0 | numBombs <= 0 | budget <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		if ((long) sizeY * sizeX <= numBombs)
+			throw new IllegalStateException("Number of Bombs musst be lower than size of level!");
+
+		this.sizeY = sizeY;
+		this.sizeX = sizeX;
+		this.numBombs = numBombs;
+		this.seed = seed;
+		this.bigBombs = BigInteger.valueOf(numBombs);
+		this.bigFields = BigInteger.valueOf((long) sizeY * sizeX);
+
+		final long maxChunks = Math.max(1, budget / CHUNK_BYTES);
+
+		this.untouched = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> eldest) {
+				return size() > maxChunks;
+			}
+		};
+	}
+
+	@Override
+	public synchronized char get(final int positionY, final int positionX) {
+		checkBounds(positionY, positionX);
+		return (char) (chunk(positionY, positionX, false)[offset(positionY, positionX)] & 0xFF);
+	}
+
+	@Override
+	public synchronized void set(final int positionY, final int positionX, final char value) {
+		checkBounds(positionY, positionX);
+		chunk(positionY, positionX, true)[offset(positionY, positionX)] = (byte) value;
+	}
+
+	@Override
+	public synchronized void increment(final int positionY, final int positionX) {
+		checkBounds(positionY, positionX);
+		chunk(positionY, positionX, true)[offset(positionY, positionX)]++;
+	}
+
+	@Override
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	@Override
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	/**
+	 * returns the number of bombs in the level.
+	 *
+	 * @return the number of bombs
+	 */
+	public long getNumBombs() {
+		return numBombs;
+	}
+
+	/**
+	 * returns the number of chunks currently held in memory.
+	 *
+	 * @return the number of resident chunks
+	 */
+	public synchronized int getResidentChunks() {
+		return touched.size() + untouched.size();
+	}
+
+	/**
+	 * returns the number of chunks which were changed and are therefore never
+	 * evicted.
+	 *
+	 * @return the number of touched chunks
+	 */
+	public synchronized int getTouchedChunks() {
+		return touched.size();
+	}
+
+	/**
+	 * only supported for levels which fit into an array.
+	 *
+	 * @throws UnsupportedOperationException if the level has more than
+	 *                                       {@code Integer.MAX_VALUE} fields
+	 */
+	@Override
+	@Deprecated
+	public char[][] getLevelData() {
+		if ((long) sizeY * sizeX > Integer.MAX_VALUE)
+			throw new UnsupportedOperationException("Level is too big: " + sizeY + "x" + sizeX);
+
+		final char[][] levelData = new char[sizeY][sizeX];
+
+		for (int y = 0; y < sizeY; y++)
+			for (int x = 0; x < sizeX; x++)
+				levelData[y][x] = get(y, x);
+
+		return levelData;
+	}
+
+	/**
+	 * returns the chunk containing the given position, generating it if needed.
+	 *
+	 * @param forWrite true if the chunk is about to be changed, it is then moved
+	 *                 to the touched chunks
+	 */
+	private byte[] chunk(final int positionY, final int positionX, final boolean forWrite) {
+		final long key = ((long) (positionY >>> CHUNK_BITS) << 32) | (positionX >>> CHUNK_BITS);
+
+		if (key == lastKey & (lastTouched | !forWrite))
+			return lastChunk;
+
+		byte[] chunk = touched.get(key);
+		boolean isTouched = chunk != null;
+
+		if (chunk == null) {
+			chunk = forWrite ? untouched.remove(key) : untouched.get(key);
+
+			if (chunk == null) {
+				chunk = generateChunk(positionY >>> CHUNK_BITS, positionX >>> CHUNK_BITS);
+
+				if (!forWrite)
+					untouched.put(key, chunk);
+			}
+
+			if (forWrite) {
+				touched.put(key, chunk);
+				isTouched = true;
+			}
+		}
+
+		lastKey = key;
+		lastChunk = chunk;
+		lastTouched = isTouched;
+
+		return chunk;
+	}
+
+	/**
+	 * the index of a position inside of its chunk.
+	 */
+	private static int offset(final int positionY, final int positionX) {
+		return ((positionY & CHUNK_MASK) << CHUNK_BITS) | (positionX & CHUNK_MASK);
+	}
+
+	/**
+	 * generates the fields of a chunk: bombs and the numbers of all other
+	 * fields.
+	 */
+	private byte[] generateChunk(final int chunkY, final int chunkX) {
+		final long[][] bombs = new long[9][];
+
+		for (int dy = -1; dy <= 1; dy++)
+			for (int dx = -1; dx <= 1; dx++)
+				bombs[(dy + 1) * 3 + dx + 1] = generateBombs(chunkY + dy, chunkX + dx);
+
+		final long[] above = new long[3];
+		final long[] current = new long[3];
+		final long[] below = new long[3];
+		final byte[] counts = new byte[CHUNK_SIZE];
+		final byte[] chunk = new byte[CHUNK_BYTES];
+
+		for (int row = 0; row < CHUNK_SIZE; row++) {
+			for (int column = 0; column < 3; column++) {
+				above[column] = row > 0 ? bombs[3 + column][row - 1] : bombs[column][CHUNK_MASK];
+				current[column] = bombs[3 + column][row];
+				below[column] = row < CHUNK_MASK ? bombs[3 + column][row + 1] : bombs[6 + column][0];
+			}
+
+			MineBitBoard.countNeighbors(above[0], above[1], above[2], current[0], current[1], current[2], below[0],
+					below[1], below[2], counts);
+
+			for (int column = 0; column < CHUNK_SIZE; column++) {
+				chunk[(row << CHUNK_BITS) | column] = (current[1] & (1L << column)) != 0 ? (byte) Game.BOMB
+						: (byte) (Game.EMPTY + counts[column]);
+			}
+		}
+
+		return chunk;
+	}
+
+	/**
+	 * <p>
+	 * places the bombs of a chunk, one {@code long} per row. positions outside
+	 * of the level never hold a bomb.
+	 * </p>
+	 *
+	 * <p>
+	 * the number of bombs is the share of the chunk in the cumulative
+	 * distribution {@code floor(numBombs * fieldsBefore / fields)}, the bombs
+	 * are placed with Robert Floyd's sampling algorithm.
+	 * </p>
+	 */
+	private long[] generateBombs(final int chunkY, final int chunkX) {
+		final long[] bombs = new long[CHUNK_SIZE];
+
+		if (chunkY < 0 | chunkX < 0 | chunkY > (sizeY - 1) >>> CHUNK_BITS | chunkX > (sizeX - 1) >>> CHUNK_BITS)
+			return bombs;
+
+		final int height = Math.min(CHUNK_SIZE, sizeY - (chunkY << CHUNK_BITS));
+		final int width = Math.min(CHUNK_SIZE, sizeX - (chunkX << CHUNK_BITS));
+		final long fieldsBefore = ((long) chunkY << CHUNK_BITS) * sizeX + (long) height * ((long) chunkX << CHUNK_BITS);
+		final int count = (int) (bombsBefore(fieldsBefore + (long) height * width) - bombsBefore(fieldsBefore));
+
+		final SplittableRandom random = new SplittableRandom(
+				seed ^ (0x9E3779B97F4A7C15L * (((long) chunkY << 32) | chunkX)));
+		final int fields = height * width;
+
+		for (int j = fields - count; j < fields; j++) {
+			int t = random.nextInt(j + 1);
+
+			if ((bombs[t / width] & (1L << (t % width))) != 0)
+				t = j;
+
+			bombs[t / width] |= 1L << (t % width);
+		}
+
+		return bombs;
+	}
+
+	/**
+	 * the number of bombs in the first {@code fields} fields of the chunk order.
+	 */
+	private long bombsBefore(final long fields) {
+		return bigBombs.multiply(BigInteger.valueOf(fields)).divide(bigFields).longValue();
+	}
+
+	private void checkBounds(final int positionY, final int positionX) {
+		if (positionY < 0 | positionY >= sizeY | positionX < 0 | positionX >= sizeX)
+			throw new ArrayIndexOutOfBoundsException("Position " + positionY + "x" + positionX + " is out of bounds");
+	}
+}
@@ -0,0 +1,116 @@
+package game.data;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * calculates the numbers of a level in parallel.
+ * </p>
+ *
+ * <p>
+ * the level is split into bands of rows which are processed with fork/join.
+ * first every band copies its bombs into a shared {@code MineBitBoard}, then
+ * every band counts the neighbors of its own rows. the bitboard reads the
+ * rows above and beneath a band from the shared board and returns zero for
+ * rows and words outside of the level, so the edges need no exception
+ * handling, and bands only ever write to their own rows.
+ * </p>
+ *
+ * <p>
+ * the result is identical to the sequential calculation.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class FieldCalculator {
+	/**
+	 * the minimum number of cells in a band, smaller bands are not worth the
+	 * overhead of a task.
+	 */
+	private static final int MIN_BAND_CELLS = 1 << 16;
+
+	private FieldCalculator() {
+	}
+
+	/**
+	 * one band of rows, splits itself in halves until it is small enough.
+	 */
+	private static final class Band extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final MineBitBoard board;
+		private final Level level;
+		private final boolean count;
+		private final int fromY;
+		private final int toY;
+		private final int bandRows;
+
+		private Band(final MineBitBoard board, final Level level, final boolean count, final int fromY,
+				final int toY, final int bandRows) {
+			this.board = board;
+			this.level = level;
+			this.count = count;
+			this.fromY = fromY;
+			this.toY = toY;
+			this.bandRows = bandRows;
+		}
+
+		@Override
+		protected void compute() {
+			if (toY - fromY <= bandRows) {
+				if (count)
+					board.writeCounts(level, fromY, toY);
+				else
+					board.readBombs(level, fromY, toY);
+			} else {
+				final int middle = (fromY + toY) >>> 1;
+				invokeAll(new Band(board, level, count, fromY, middle, bandRows),
+						new Band(board, level, count, middle, toY, bandRows));
+			}
+		}
+	}
+
+	/**
+	 * calculates the numbers of a level using the common fork/join pool.
+	 *
+	 * @param level the level to update
+	 */
+	public static void calculate(final Level level) {
+		calculate(level, ForkJoinPool.commonPool(), defaultBandRows(level));
+	}
+
+	/**
+	 * calculates the numbers of a level.
+	 *
+	 * @param level    the level to update
+	 * @param pool     the pool to run the bands in
+	 * @param bandRows the maximum number of rows per band
+	 */
+	public static void calculate(final Level level, final ForkJoinPool pool, final int bandRows) {
+		if (level == null || pool == null)
+			throw new IllegalArgumentException("Arguments can't be NULL!");
+
+		if (bandRows <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		final MineBitBoard board = new MineBitBoard(level.getSizeY(), level.getSizeX());
+
+		// the counts of a band depend on the bombs of its neighbors, so all
+		// bombs have to be read before counting starts.
+		pool.invoke(new Band(board, level, false, 0, level.getSizeY(), bandRows));
+		pool.invoke(new Band(board, level, true, 0, level.getSizeY(), bandRows));
+	}
+
+	/**
+	 * returns the number of rows per band, so that a band holds at least
+	 * {@code MIN_BAND_CELLS} cells.
+	 *
+	 * @param level the level
+	 * @return the number of rows per band
+	 */
+	private static int defaultBandRows(final Level level) {
+		return Math.max(1, MIN_BAND_CELLS / level.getSizeX());
+	}
+}
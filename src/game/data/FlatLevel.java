@@ -0,0 +1,158 @@
+package game.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * concrete implementation of {@code game.data.Level} backed by a single flat
+ * byte-array.
+ * </p>
+ *
+ * <p>
+ * the cells are stored in row-major order, one byte per cell. all values used
+ * by the game are plain ASCII characters, so a byte is enough to hold them.
+ * compared to a {@code char[][]} this needs half the memory per cell, no
+ * array-object per row and only one array-access per lookup.
+ * </p>
+ *
+ * <p>
+ * {@code compareAndSet} is a lock-free compare-and-swap of a single byte, so
+ * several threads can change different fields without locking the level.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class FlatLevel implements Level {
+	private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+	private final int sizeY;
+	private final int sizeX;
+	private final byte[] data;
+
+	/**
+	 * creates a new level of the given size with every cell set to
+	 * {@code fill}.
+	 *
+	 * @param sizeY the vertical size
+	 * @param sizeX the horizontal size
+	 * @param fill the initial value of every cell
+	 * @throws IllegalArgumentException if a size is <=0 or the level would be too
+	 *                                  big for a single array
+	 */
+	public FlatLevel(final int sizeY, final int sizeX, final char fill) {
+		if (sizeY <= 0 | sizeX <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		if ((long) sizeY * sizeX > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Level is too big: " + sizeY + "x" + sizeX);
+
+		this.sizeY = sizeY;
+		this.sizeX = sizeX;
+		this.data = new byte[sizeY * sizeX];
+
+		if (fill != 0)
+			Arrays.fill(this.data, (byte) fill);
+	}
+
+	/**
+	 * creates a new level as a copy of existing 2-dimensional level-data.
+	 *
+	 * @param levelData the raw level-data, all rows must have the same length
+	 * @throws IllegalArgumentException if the data is empty or not rectangular
+	 */
+	public FlatLevel(final char[][] levelData) {
+		this(levelData.length, levelData.length > 0 ? levelData[0].length : 0, (char) 0);
+
+		for (int y = 0; y < sizeY; y++) {
+			final char[] row = levelData[y];
+
+			if (row.length != sizeX)
+				throw new IllegalArgumentException("Row " + y + " has length " + row.length + ", expected " + sizeX);
+
+			final int offset = y * sizeX;
+
+			for (int x = 0; x < sizeX; x++)
+				data[offset + x] = (byte) row[x];
+		}
+	}
+
+	/**
+	 * creates a copy of another level.
+	 */
+	private FlatLevel(final FlatLevel other) {
+		this.sizeY = other.sizeY;
+		this.sizeX = other.sizeX;
+		this.data = other.data.clone();
+	}
+
+	/**
+	 * calculates the index of a cell inside of the flat array.
+	 *
+	 * out-of-range positions throw an {@code ArrayIndexOutOfBoundsException}
+	 * just like a {@code char[][]} would, instead of silently wrapping around
+	 * into the neighboring row.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @return the index of the cell
+	 */
+	private int index(final int positionY, final int positionX) {
+		if (positionY < 0 | positionY >= sizeY | positionX < 0 | positionX >= sizeX)
+			throw new ArrayIndexOutOfBoundsException("Position " + positionY + "x" + positionX + " is out of bounds");
+
+		return positionY * sizeX + positionX;
+	}
+
+	@Override
+	public char get(final int positionY, final int positionX) {
+		return (char) (data[index(positionY, positionX)] & 0xFF);
+	}
+
+	@Override
+	public void set(final int positionY, final int positionX, final char value) {
+		data[index(positionY, positionX)] = (byte) value;
+	}
+
+	@Override
+	public void increment(final int positionY, final int positionX) {
+		data[index(positionY, positionX)]++;
+	}
+
+	@Override
+	public boolean compareAndSet(final int positionY, final int positionX, final char expected, final char value) {
+		return CELLS.compareAndSet(data, index(positionY, positionX), (byte) expected, (byte) value);
+	}
+
+	@Override
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	@Override
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	@Override
+	@Deprecated
+	public char[][] getLevelData() {
+		final char[][] levelData = new char[sizeY][sizeX];
+
+		for (int y = 0; y < sizeY; y++) {
+			final int offset = y * sizeX;
+
+			for (int x = 0; x < sizeX; x++)
+				levelData[y][x] = (char) (data[offset + x] & 0xFF);
+		}
+
+		return levelData;
+	}
+
+	@Override
+	public Level copy() {
+		return new FlatLevel(this);
+	}
+}
@@ -0,0 +1,142 @@
+package game.data;
+
+import game.Game;
+
+/**
+ * <p>
+ * reveals fields of a level, including the whole empty region around an empty
+ * field.
+ * </p>
+ *
+ * <p>
+ * the region is revealed iteratively in a single pass (breadth-first). a field
+ * is marked as revealed at the moment it is queued, so the level itself acts
+ * as the visited-bitmap and no field is ever queued twice. the queue is the
+ * {@code CellSet} that collects the result, so no other memory is needed.
+ * </p>
+ *
+ * <p>
+ * a field is marked with {@code Level.compareAndSet}, so several threads may
+ * reveal regions of the same level at once. every field is revealed by
+ * exactly one of them, a region reached by two threads is split between
+ * them.
+ * </p>
+ *
+ * <p>
+ * a region stops at flagged fields. the flagged fields it stopped at can be
+ * collected, so the caller can continue the region from a field which was
+ * unflagged while it was revealed.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class FloodFill {
+	/**
+	 * the offset between a hidden field and its revealed counterpart,
+	 * {@code '0'-'8'} become {@code 'A'-'I'}.
+	 */
+	public static final int REVEALED_OFFSET = 'A' - Game.EMPTY;
+
+	private FloodFill() {
+	}
+
+	/**
+	 * checks if a field is hidden, not flagged and not a bomb.
+	 *
+	 * @param value the value of the field
+	 * @return true if the field can be revealed
+	 */
+	public static boolean isRevealable(final char value) {
+		return value >= Game.EMPTY & value <= '8';
+	}
+
+	/**
+	 * <p>
+	 * reveals the field at the given position. if it is empty, all of its
+	 * neighbors are revealed as well and so on, until the region is surrounded
+	 * by numbers.
+	 * </p>
+	 *
+	 * <p>
+	 * bombs, flagged and already revealed fields are never changed. the
+	 * positions of all revealed fields are appended to {@code revealed}.
+	 * </p>
+	 *
+	 * @param level     the level
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @param revealed  the set the revealed fields are appended to
+	 * @return the number of revealed fields
+	 */
+	public static int reveal(final Level level, final int positionY, final int positionX, final CellSet revealed) {
+		return reveal(level, positionY, positionX, revealed, null);
+	}
+
+	/**
+	 * reveals the field at the given position and the empty region around it,
+	 * like {@code reveal(Level, int, int, CellSet)}. the flagged fields next to
+	 * the region are appended to {@code stopped}.
+	 *
+	 * @param level     the level
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @param revealed  the set the revealed fields are appended to
+	 * @param stopped   the set the flagged fields are appended to, or null
+	 * @return the number of revealed fields
+	 */
+	public static int reveal(final Level level, final int positionY, final int positionX, final CellSet revealed,
+			final CellSet stopped) {
+		final int first = revealed.size();
+
+		if (!claim(level, positionY, positionX, revealed, null))
+			return 0;
+
+		final int sizeY = level.getSizeY();
+		final int sizeX = level.getSizeX();
+
+		for (int i = first; i < revealed.size(); i++) {
+			final int y = revealed.getY(i);
+			final int x = revealed.getX(i);
+
+			if (level.get(y, x) != Game.EMPTY + REVEALED_OFFSET)
+				continue;
+
+			final int fromY = Math.max(0, y - 1);
+			final int toY = Math.min(sizeY - 1, y + 1);
+			final int fromX = Math.max(0, x - 1);
+			final int toX = Math.min(sizeX - 1, x + 1);
+
+			for (int ny = fromY; ny <= toY; ny++)
+				for (int nx = fromX; nx <= toX; nx++)
+					claim(level, ny, nx, revealed, stopped);
+		}
+
+		return revealed.size() - first;
+	}
+
+	/**
+	 * reveals a single field and appends it to {@code revealed}, unless it
+	 * isn't revealable. a field changed by another thread in the meantime,
+	 * e.g. flagged, is read again. a flagged field is appended to
+	 * {@code stopped}.
+	 */
+	private static boolean claim(final Level level, final int positionY, final int positionX,
+			final CellSet revealed, final CellSet stopped) {
+		char value = level.get(positionY, positionX);
+
+		while (isRevealable(value)) {
+			if (level.compareAndSet(positionY, positionX, value, (char) (value + REVEALED_OFFSET))) {
+				revealed.add(positionY, positionX);
+				return true;
+			}
+
+			value = level.get(positionY, positionX);
+		}
+
+		if (stopped != null && value >= 'a' & value <= 'i') // FLAGGED
+			stopped.add(positionY, positionX);
+
+		return false;
+	}
+}
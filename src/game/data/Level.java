@@ -1,6 +1,6 @@
 package game.data;
 
-import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 import game.Game;
@@ -11,7 +11,8 @@ import game.Game;
  * </p>
  *
  * <p>
- * it defines two static factory-methods wich both return concrete instances of the interface: 
+ * it defines two static factory-methods wich both return instances of
+ * {@code game.data.FlatLevel}: 
  * <ul>
  * <li>{@code generateNewLevel(int, int, int)}</li>
  * <li>{@code fromExistingData(char[][])}</li>
@@ -48,6 +49,35 @@ public interface Level {
 	 */
 	public void increment(final int positionY, final int positionX);
 
+	/**
+	 * <p>
+	 * sets a new value at the given position, but only if the position still
+	 * holds the expected value. the check and the change are atomic, so of
+	 * several threads changing the same field only one succeeds.
+	 * </p>
+	 *
+	 * <p>
+	 * the default implementation locks the level, implementations should
+	 * override it with a lock-free one.
+	 * </p>
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @param expected  the value the position has to hold
+	 * @param value     the new value
+	 * @return true if the value was changed
+	 */
+	public default boolean compareAndSet(final int positionY, final int positionX, final char expected,
+			final char value) {
+		synchronized (this) {
+			if (get(positionY, positionX) != expected)
+				return false;
+
+			set(positionY, positionX, value);
+			return true;
+		}
+	}
+
 	/**
 	 * returns the vertical size of the level.
 	 *
@@ -65,10 +95,35 @@ public interface Level {
 	/**
 	 * returns the raw data of the level as a 2-dimensional-array.
 	 *
-	 * @return the raw level data
+	 * the returned array is a copy, changes to it are not reflected in the level.
+	 * it allocates a {@code char} per cell plus an array per row, so it should
+	 * only be used where a snapshot is really needed.
+	 *
+	 * @return a copy of the raw level data
+	 * @deprecated use {@code get(int, int)}, {@code getSizeY()} and
+	 *             {@code getSizeX()} to access the level directly
 	 */
+	@Deprecated
 	public char[][] getLevelData();
 
+	/**
+	 * returns an independent copy of the level, e.g. to save it while the game
+	 * goes on.
+	 *
+	 * @return a copy of the level
+	 * @throws IllegalArgumentException if the level is too big for a
+	 *                                  {@code game.data.FlatLevel}
+	 */
+	public default Level copy() {
+		final FlatLevel copy = new FlatLevel(getSizeY(), getSizeX(), (char) 0);
+
+		for (int y = 0; y < getSizeY(); y++)
+			for (int x = 0; x < getSizeX(); x++)
+				copy.set(y, x, get(y, x));
+
+		return copy;
+	}
+
 	/**
 	 * returns a instance of {@code game.data.Level} based on existing data.
 	 *
@@ -79,39 +134,7 @@ public interface Level {
 		if (levelData == null)
 			throw new IllegalArgumentException("Argument can't be NULL!");
 
-		return new Level() {
-			private final char[][] _level_ = levelData.clone();
-
-			@Override
-			public void set(int positionY, int positionX, char value) {
-				_level_[positionY][positionX] = value;
-			}
-
-			@Override
-			public int getSizeY() {
-				return _level_.length;
-			}
-
-			@Override
-			public int getSizeX() {
-				return _level_[0].length;
-			}
-
-			@Override
-			public char[][] getLevelData() {
-				return _level_;
-			}
-
-			@Override
-			public char get(int positionY, int positionX) {
-				return _level_[positionY][positionX];
-			}
-
-			@Override
-			public void increment(int positionY, int positionX) {
-				_level_[positionY][positionX]++;
-			}
-		};
+		return new FlatLevel(levelData);
 	}
 
 	/**
@@ -124,66 +147,54 @@ public interface Level {
 	 * @throws IllegalArgumentException if argument(s) are <=0
 	 */
 	public static Level generateNew(int y, int x, int numBombs) {
+		return generateNew(y, x, numBombs, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * <p>
+	 * generates a random level based on initial values, using the given source of
+	 * randomness.
+	 * </p>
+	 *
+	 * <p>
+	 * the bombs are placed with Robert Floyd's sampling algorithm: for every
+	 * {@code j} in {@code [fieldsize - numBombs, fieldsize)} a random cell in
+	 * {@code [0, j]} is picked, if it already holds a bomb cell {@code j} is used
+	 * instead. every possible layout is equally likely and exactly
+	 * {@code numBombs} random numbers are drawn, the level itself serves as the
+	 * set of already chosen cells.
+	 * </p>
+	 *
+	 * @param y the vertical size of the new level
+	 * @param x the horizontal size of the new level
+	 * @param numBombs the number of bombs in the new level
+	 * @param random the source of randomness
+	 * @return a randomized instance of {@code game.data.Level}
+	 * @throws IllegalArgumentException if argument(s) are <=0
+	 */
+	public static Level generateNew(int y, int x, int numBombs, Random random) {
 		if (y <= 0 | x <= 0 | numBombs <= 0)
 			throw new IllegalArgumentException("Values can't be 0 or less!");
 
-		int fieldsize = y * x;
+		if (random == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		long fieldsize = (long) y * x;
 
 		if (fieldsize <= numBombs)
 			throw new IllegalStateException("Number of Bombs musst be lower than size of level!");
 
-		char[][] level = new char[y][x];
+		Level level = new FlatLevel(y, x, Game.UNTOUCHED);
 
-		for (char[] c : level) {
-			Arrays.fill(c, Game.UNTOUCHED);
-		}
+		for (int j = (int) fieldsize - numBombs; j < fieldsize; j++) {
+			int t = random.nextInt(j + 1);
+
+			if (level.get(t / x, t % x) == Game.BOMB)
+				t = j;
 
-		int bombcount = 0;
-
-		while (bombcount < numBombs) {
-			for (int i = 0; i < y; i++) {
-				for (int j = 0; j < x; j++) {
-					if ((ThreadLocalRandom.current().nextInt(0, numBombs) % fieldsize == 0) && (bombcount < numBombs)
-							&& level[i][j] != Game.BOMB) {
-						level[i][j] = Game.BOMB;
-						bombcount++;
-					}
-				}
-			}
+			level.set(t / x, t % x, Game.BOMB);
 		}
 
-		return new Level() {
-			private final char[][] _level_ = level.clone();
-
-			@Override
-			public void set(int positionY, int positionX, char value) {
-				_level_[positionY][positionX] = value;
-			}
-
-			@Override
-			public int getSizeY() {
-				return _level_.length;
-			}
-
-			@Override
-			public int getSizeX() {
-				return _level_[0].length;
-			}
-
-			@Override
-			public char[][] getLevelData() {
-				return _level_;
-			}
-
-			@Override
-			public char get(int positionY, int positionX) {
-				return _level_[positionY][positionX];
-			}
-
-			@Override
-			public void increment(int positionY, int positionX) {
-				_level_[positionY][positionX]++;
-			}
-		};
+		return level;
 	}
 }
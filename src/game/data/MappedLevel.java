@@ -0,0 +1,129 @@
+package game.data;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * implementation of {@code game.data.Level} backed by a memory-mapped file,
+ * one byte per field in row-major order.
+ * </p>
+ *
+ * <p>
+ * the file is mapped copy-on-write: changes to the level are only visible in
+ * memory and never written back to the file. the operating system reads the
+ * pages of the file on first access, so opening a level costs nothing and
+ * only the parts which are actually used are ever read.
+ * </p>
+ *
+ * <p>
+ * a single mapping is limited to 2 GiB, so big levels are mapped in segments
+ * of whole rows.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class MappedLevel implements Level {
+	/**
+	 * the maximum size of a single segment, 1 GiB.
+	 */
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	private final int sizeY;
+	private final int sizeX;
+	private final int rowsPerSegment;
+	private final MappedByteBuffer[] segments;
+
+	private MappedLevel(final int sizeY, final int sizeX, final int rowsPerSegment,
+			final MappedByteBuffer[] segments) {
+		this.sizeY = sizeY;
+		this.sizeX = sizeX;
+		this.rowsPerSegment = rowsPerSegment;
+		this.segments = segments;
+	}
+
+	/**
+	 * maps a level from a file. the channel may be closed afterwards, the
+	 * mapping stays valid.
+	 *
+	 * @param channel the channel to map, must be opened for reading and writing
+	 * @param offset  the position of the first field in the file
+	 * @param sizeY   the vertical size
+	 * @param sizeX   the horizontal size
+	 * @return the mapped level
+	 * @throws IOException if the file can't be mapped or is too short
+	 */
+	public static MappedLevel map(final FileChannel channel, final long offset, final int sizeY, final int sizeX)
+			throws IOException {
+		if (sizeY <= 0 | sizeX <= 0 | sizeX > MAX_SEGMENT_SIZE)
+			throw new IllegalArgumentException("Invalid size: " + sizeY + "x" + sizeX);
+
+		if (channel.size() < offset + (long) sizeY * sizeX)
+			throw new IOException("File is too short for a level of " + sizeY + "x" + sizeX);
+
+		final int rowsPerSegment = Math.max(1, MAX_SEGMENT_SIZE / sizeX);
+		final MappedByteBuffer[] segments = new MappedByteBuffer[(sizeY + rowsPerSegment - 1) / rowsPerSegment];
+
+		for (int i = 0; i < segments.length; i++) {
+			final int rows = Math.min(rowsPerSegment, sizeY - i * rowsPerSegment);
+			final long position = offset + (long) i * rowsPerSegment * sizeX;
+
+			segments[i] = channel.map(FileChannel.MapMode.PRIVATE, position, (long) rows * sizeX);
+		}
+
+		return new MappedLevel(sizeY, sizeX, rowsPerSegment, segments);
+	}
+
+	@Override
+	public char get(final int positionY, final int positionX) {
+		checkBounds(positionY, positionX);
+		return (char) (segments[positionY / rowsPerSegment].get(index(positionY, positionX)) & 0xFF);
+	}
+
+	@Override
+	public void set(final int positionY, final int positionX, final char value) {
+		checkBounds(positionY, positionX);
+		segments[positionY / rowsPerSegment].put(index(positionY, positionX), (byte) value);
+	}
+
+	@Override
+	public void increment(final int positionY, final int positionX) {
+		set(positionY, positionX, (char) (get(positionY, positionX) + 1));
+	}
+
+	@Override
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	@Override
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	@Override
+	@Deprecated
+	public char[][] getLevelData() {
+		final char[][] levelData = new char[sizeY][sizeX];
+
+		for (int y = 0; y < sizeY; y++)
+			for (int x = 0; x < sizeX; x++)
+				levelData[y][x] = get(y, x);
+
+		return levelData;
+	}
+
+	/**
+	 * the index of a position inside of its segment.
+	 */
+	private int index(final int positionY, final int positionX) {
+		return (positionY % rowsPerSegment) * sizeX + positionX;
+	}
+
+	private void checkBounds(final int positionY, final int positionX) {
+		if (positionY < 0 | positionY >= sizeY | positionX < 0 | positionX >= sizeX)
+			throw new ArrayIndexOutOfBoundsException("Position " + positionY + "x" + positionX + " is out of bounds");
+	}
+}
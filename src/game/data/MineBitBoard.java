@@ -0,0 +1,266 @@
+package game.data;
+
+import game.Game;
+
+/**
+ * <p>
+ * bit-parallel representation of the bombs in a level.
+ * </p>
+ *
+ * <p>
+ * every row is stored as a bitset in a {@code long[]}, bit {@code x % 64} of
+ * word {@code x / 64} is set when there is a bomb at column {@code x}. the
+ * number of neighboring bombs is then calculated for 64 cells at once, see
+ * {@code countNeighbors}.
+ * </p>
+ *
+ * <p>
+ * bits right of the last column are always zero. rows above and beneath the
+ * level and words left and right of a row are read as zero, see
+ * {@code word}, so the counting itself doesn't need any special handling.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class MineBitBoard {
+	private final int sizeY;
+	private final int sizeX;
+	private final int words;
+	private final long[] bits;
+
+	/**
+	 * creates an empty bitboard of the given size.
+	 *
+	 * @param sizeY the vertical size
+	 * @param sizeX the horizontal size
+	 */
+	public MineBitBoard(final int sizeY, final int sizeX) {
+		if (sizeY <= 0 | sizeX <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		this.sizeY = sizeY;
+		this.sizeX = sizeX;
+		this.words = (sizeX + 63) >>> 6;
+		this.bits = new long[Math.multiplyExact(sizeY, words)];
+	}
+
+	/**
+	 * creates a bitboard containing the bombs of a level.
+	 *
+	 * @param level the level to read the bombs from
+	 * @return a new bitboard
+	 */
+	public static MineBitBoard fromLevel(final Level level) {
+		final MineBitBoard board = new MineBitBoard(level.getSizeY(), level.getSizeX());
+		board.readBombs(level, 0, board.sizeY);
+		return board;
+	}
+
+	/**
+	 * copies the bombs in the rows {@code [fromY, toY)} of a level into the
+	 * bitboard. every row is stored in its own words, so disjoint row ranges may
+	 * be read concurrently.
+	 *
+	 * @param level the level to read the bombs from, must have the same size as
+	 *              the bitboard
+	 * @param fromY the first row (inclusive)
+	 * @param toY   the last row (exclusive)
+	 */
+	public void readBombs(final Level level, final int fromY, final int toY) {
+		checkRange(level, fromY, toY);
+
+		for (int y = fromY; y < toY; y++) {
+			final int offset = y * words;
+
+			for (int x = 0; x < sizeX; x++) {
+				if (level.get(y, x) == Game.BOMB)
+					bits[offset + (x >>> 6)] |= 1L << x;
+			}
+		}
+	}
+
+	/**
+	 * places a bomb at the given position.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 */
+	public void set(final int positionY, final int positionX) {
+		checkBounds(positionY, positionX);
+		bits[positionY * words + (positionX >>> 6)] |= 1L << positionX;
+	}
+
+	/**
+	 * checks if there is a bomb at the given position.
+	 *
+	 * @param positionY the vertical position
+	 * @param positionX the horizontal position
+	 * @return true if there is a bomb
+	 */
+	public boolean isBomb(final int positionY, final int positionX) {
+		checkBounds(positionY, positionX);
+		return (bits[positionY * words + (positionX >>> 6)] & (1L << positionX)) != 0;
+	}
+
+	/**
+	 * returns the vertical size of the bitboard.
+	 *
+	 * @return the vertical size
+	 */
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	/**
+	 * returns the horizontal size of the bitboard.
+	 *
+	 * @return the horizontal size
+	 */
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	/**
+	 * calculates the number of neighboring bombs for every cell and writes them
+	 * into the level.
+	 *
+	 * @param level the level to update, must have the same size as the bitboard
+	 * @see #writeCounts(Level, int, int)
+	 */
+	public void writeCounts(final Level level) {
+		writeCounts(level, 0, sizeY);
+	}
+
+	/**
+	 * <p>
+	 * calculates the number of neighboring bombs for the cells in the rows
+	 * {@code [fromY, toY)} and writes them into the level.
+	 * </p>
+	 *
+	 * <p>
+	 * like {@code game.Game.calculateFields()} did, only cells which are still
+	 * {@code UNTOUCHED} are changed, they are set to {@code EMPTY} plus the
+	 * number of neighboring bombs. the bitboard is only read, so disjoint row
+	 * ranges may be processed concurrently.
+	 * </p>
+	 *
+	 * @param level the level to update, must have the same size as the bitboard
+	 * @param fromY the first row (inclusive)
+	 * @param toY   the last row (exclusive)
+	 */
+	public void writeCounts(final Level level, final int fromY, final int toY) {
+		checkRange(level, fromY, toY);
+
+		final byte[] counts = new byte[64];
+
+		for (int y = fromY; y < toY; y++) {
+			for (int w = 0; w < words; w++) {
+				countNeighbors(word(y - 1, w - 1), word(y - 1, w), word(y - 1, w + 1), word(y, w - 1), word(y, w),
+						word(y, w + 1), word(y + 1, w - 1), word(y + 1, w), word(y + 1, w + 1), counts);
+
+				final int firstX = w << 6;
+				final int lastX = Math.min(firstX + 64, sizeX);
+
+				for (int x = firstX; x < lastX; x++) {
+					if (level.get(y, x) == Game.UNTOUCHED)
+						level.set(y, x, (char) (Game.EMPTY + counts[x - firstX]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * counts the neighboring bombs of the 64 cells in the {@code center} word.
+	 * </p>
+	 *
+	 * <p>
+	 * the eight neighbor rows are built with word-wide shifts, the words left and
+	 * right of a row supply the bits crossing the word boundary. they are then
+	 * added up with a bit-sliced adder tree which results in four bit-planes
+	 * holding the count of each cell.
+	 * </p>
+	 *
+	 * @param aboveLeft  the word left of {@code above}
+	 * @param above      the word above {@code center}
+	 * @param aboveRight the word right of {@code above}
+	 * @param left       the word left of {@code center}
+	 * @param center     the word to count the neighbors for
+	 * @param right      the word right of {@code center}
+	 * @param belowLeft  the word left of {@code below}
+	 * @param below      the word beneath {@code center}
+	 * @param belowRight the word right of {@code below}
+	 * @param counts     receives the count (0-8) of cell {@code i} at index
+	 *                   {@code i}, must hold at least 64 elements
+	 */
+	static void countNeighbors(final long aboveLeft, final long above, final long aboveRight, final long left,
+			final long center, final long right, final long belowLeft, final long below, final long belowRight,
+			final byte[] counts) {
+		// the eight neighbor rows, one bit per cell
+		final long n0 = (above << 1) | (aboveLeft >>> 63);
+		final long n1 = above;
+		final long n2 = (above >>> 1) | (aboveRight << 63);
+		final long n3 = (center << 1) | (left >>> 63);
+		final long n4 = (center >>> 1) | (right << 63);
+		final long n5 = (below << 1) | (belowLeft >>> 63);
+		final long n6 = below;
+		final long n7 = (below >>> 1) | (belowRight << 63);
+
+		// bit-sliced adder tree, (b3 b2 b1 b0) is the sum of n0-n7
+		final long s0 = n0 ^ n1 ^ n2;
+		final long c0 = (n0 & n1) | (n2 & (n0 ^ n1));
+		final long s1 = n3 ^ n4 ^ n5;
+		final long c1 = (n3 & n4) | (n5 & (n3 ^ n4));
+		final long s2 = n6 ^ n7;
+		final long c2 = n6 & n7;
+
+		final long b0 = s0 ^ s1 ^ s2;
+		final long c3 = (s0 & s1) | (s2 & (s0 ^ s1));
+
+		final long t0 = c0 ^ c1 ^ c2;
+		final long c4 = (c0 & c1) | (c2 & (c0 ^ c1));
+		final long b1 = t0 ^ c3;
+		final long c5 = t0 & c3;
+
+		final long b2 = c4 ^ c5;
+		final long b3 = c4 & c5;
+
+		for (int bit = 0; bit < 64; bit++) {
+			counts[bit] = (byte) ((int) ((b0 >>> bit) & 1) | (int) ((b1 >>> bit) & 1) << 1
+					| (int) ((b2 >>> bit) & 1) << 2 | (int) ((b3 >>> bit) & 1) << 3);
+		}
+	}
+
+	/**
+	 * returns a word of the bitboard, or zero for words outside of it. this
+	 * check replaces a padding around the level.
+	 */
+	private long word(final int y, final int w) {
+		if (y < 0 | y >= sizeY | w < 0 | w >= words)
+			return 0;
+
+		return bits[y * words + w];
+	}
+
+	/**
+	 * throws an {@code IllegalArgumentException} if the level doesn't fit the
+	 * bitboard or the row range is invalid.
+	 */
+	private void checkRange(final Level level, final int fromY, final int toY) {
+		if (level.getSizeY() != sizeY | level.getSizeX() != sizeX)
+			throw new IllegalArgumentException("Level and bitboard differ in size!");
+
+		if (fromY < 0 | toY > sizeY | fromY > toY)
+			throw new IllegalArgumentException("Invalid row range: " + fromY + "-" + toY);
+	}
+
+	/**
+	 * throws an {@code ArrayIndexOutOfBoundsException} for positions outside of
+	 * the bitboard.
+	 */
+	private void checkBounds(final int positionY, final int positionX) {
+		if (positionY < 0 | positionY >= sizeY | positionX < 0 | positionX >= sizeX)
+			throw new ArrayIndexOutOfBoundsException("Position " + positionY + "x" + positionX + " is out of bounds");
+	}
+}
@@ -0,0 +1,408 @@
+package game.gui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Window;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+import game.Game;
+import game.data.FloodFill;
+import game.data.Level;
+import game.util.Diagnostics;
+import game.util.Diagnostics.Severity;
+import game.util.GameExecutors;
+import game.util.GameExecutors.Subsystem;
+import game.util.StartupTimer;
+
+/**
+ * <p>
+ * the gameboard, a single component painting all fields of a level.
+ * </p>
+ *
+ * <p>
+ * the board has no state per field, every field is painted from its value in
+ * the level. so creating a board costs the same for every size of level, and
+ * only the fields inside of the clip are painted. changed fields are repainted
+ * by their bounding rectangle.
+ * </p>
+ *
+ * <p>
+ * a field is painted by copying its tile from a {@code game.gui.TileAtlas},
+ * the text of the numbers and emoji is only laid out when the atlas is
+ * created, i.e. when the board is zoomed or moved to another screen.
+ * </p>
+ *
+ * <p>
+ * one mouse listener serves all fields, it maps the position of the mouse to
+ * a field. the moves are made on the input queue of
+ * {@code game.util.GameExecutors}, so a long reveal doesn't keep the event
+ * dispatch thread from painting.
+ * </p>
+ *
+ * <p>
+ * the board is meant to be shown in a {@code javax.swing.JScrollPane}, which
+ * only lets it paint the visible part. scrolling, zooming and hit-testing
+ * don't depend on the size of the level. the mouse wheel zooms while the
+ * control key is held down.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public class BoardPanel extends JComponent implements Scrollable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * the default size of a field in pixels.
+	 */
+	public static final int CELL_SIZE = 30;
+	public static final int MIN_CELL_SIZE = 8;
+	public static final int MAX_CELL_SIZE = 90;
+
+	private static final Font BASE_DEBUG_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+
+	private volatile Level level;
+	private volatile boolean revealAll;
+	private volatile boolean debug;
+	private volatile int explodedY = -1;
+	private volatile int explodedX = -1;
+
+	// only changed on the event dispatch thread
+	private volatile int cellSize = CELL_SIZE;
+	private Font debugFont = BASE_DEBUG_FONT;
+	private transient TileAtlas atlas;
+
+	/**
+	 * creates an empty board.
+	 */
+	public BoardPanel() {
+		this.setOpaque(true);
+
+		// handler for mouse-clicks and the mouse wheel
+		final MouseAdapter mouse = new MouseAdapter() {
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				final Level current = level;
+				final int y = e.getY() / cellSize;
+				final int x = e.getX() / cellSize;
+
+				if (current == null || e.getY() < 0 | e.getX() < 0 | y >= current.getSizeY() | x >= current.getSizeX())
+					return;
+
+				final int button = e.getButton();
+				final GameWindow window = getGameWindow();
+
+				try {
+					GameExecutors.get(Subsystem.INPUT).execute(() -> {
+						// reset smiley when mouse-button is released, before a
+						// move which ends the game changes it again
+						if (window != null && Game.isGameRunning())
+							window.updateSmilie(1);
+
+						if (button == MouseEvent.BUTTON1) { // left mouse-button
+							Game.revealField(y, x);
+						} else if (button == MouseEvent.BUTTON3) { // right mouse-button
+							Game.markField(y, x);
+						}
+					});
+				} catch (RejectedExecutionException ex) {
+					Diagnostics.warn("input", "Dropped the click on " + y + "x" + x + ", too many moves are waiting",
+							ex);
+				}
+
+				if (Diagnostics.isEnabled(Severity.DEBUG))
+					Diagnostics.debug("input", "Clicked Field: " + y + "x" + x + "\tMouse-Button: " + e.getButton());
+			}
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				// update smiley when mouse-button is pressed
+				final GameWindow window = getGameWindow();
+
+				if (window != null && Game.isGameRunning())
+					window.updateSmilie(0);
+			}
+
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				if (e.isControlDown()) {
+					zoom(cellSize - e.getWheelRotation() * Math.max(1, cellSize / 8), e.getPoint());
+				} else if (getParent() != null) {
+					// let the scroll pane scroll
+					getParent().dispatchEvent(SwingUtilities.convertMouseEvent(BoardPanel.this, e, getParent()));
+				}
+			}
+		};
+
+		this.addMouseListener(mouse);
+		this.addMouseWheelListener(mouse);
+	}
+
+	/**
+	 * returns the size of a field in pixels.
+	 *
+	 * @return the size of a field
+	 */
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * changes the size of the fields, the field in the middle of the visible
+	 * part stays where it is.
+	 *
+	 * @param newCellSize the new size of a field in pixels
+	 */
+	public void zoom(final int newCellSize) {
+		final Rectangle visible = getVisibleRect();
+		zoom(newCellSize, new Point(visible.x + visible.width / 2, visible.y + visible.height / 2));
+	}
+
+	/**
+	 * changes the size of the fields, the field under the anchor stays under
+	 * it.
+	 *
+	 * @param newCellSize the new size of a field in pixels
+	 * @param anchor      a point of the board which keeps its field
+	 */
+	private void zoom(final int newCellSize, final Point anchor) {
+		final int size = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, newCellSize));
+
+		if (size == cellSize)
+			return;
+
+		final double scale = (double) size / cellSize;
+
+		cellSize = size;
+		debugFont = BASE_DEBUG_FONT.deriveFont(Math.max(6, size / 3f));
+
+		revalidate();
+
+		if (getParent() instanceof JViewport) {
+			final JViewport viewport = (JViewport) getParent();
+			final Point position = viewport.getViewPosition();
+
+			// the viewport has to know the new size before it can be moved
+			viewport.setViewSize(getPreferredSize());
+			viewport.setViewPosition(new Point((int) Math.max(0, anchor.x * scale - (anchor.x - position.x)),
+					(int) Math.max(0, anchor.y * scale - (anchor.y - position.y))));
+		}
+
+		repaint();
+	}
+
+	/**
+	 * returns the window showing the board, must be called on the event
+	 * dispatch thread.
+	 *
+	 * @return the window, or null if the board isn't shown by a
+	 *         {@code GameWindow}
+	 */
+	private GameWindow getGameWindow() {
+		final Window window = SwingUtilities.getWindowAncestor(this);
+		return window instanceof GameWindow ? (GameWindow) window : null;
+	}
+
+	/**
+	 * shows a new level.
+	 *
+	 * @param newLevel the level
+	 */
+	public void setLevel(final Level newLevel) {
+		this.level = newLevel;
+		this.revealAll = false;
+		this.debug = false;
+		this.explodedY = -1;
+		this.explodedX = -1;
+
+		this.revalidate();
+		this.repaint();
+	}
+
+	/**
+	 * shows every field of the level and the bomb which ended the game, used
+	 * when the game is over.
+	 *
+	 * @param positionY the vertical position of the bomb, -1 if there is none
+	 * @param positionX the horizontal position of the bomb, -1 if there is none
+	 */
+	public void revealAll(final int positionY, final int positionX) {
+		this.explodedY = positionY;
+		this.explodedX = positionX;
+		this.revealAll = true;
+		this.repaint();
+	}
+
+	/**
+	 * shows the raw level-data on the untouched fields. only used when
+	 * debug diagnostics are switched on.
+	 */
+	public void setDebug(final boolean debug) {
+		this.debug = debug;
+		this.repaint();
+	}
+
+	/**
+	 * repaints a rectangle of changed fields.
+	 *
+	 * @param fromY the first row
+	 * @param fromX the first column
+	 * @param toY   the last row, inclusive
+	 * @param toX   the last column, inclusive
+	 */
+	public void repaintCells(final int fromY, final int fromX, final int toY, final int toX) {
+		final int size = cellSize;
+
+		// swing uses int coordinates, like getPreferredSize
+		this.repaint(pixels(fromX, size), pixels(fromY, size), pixels(toX - fromX + 1, size),
+				pixels(toY - fromY + 1, size));
+	}
+
+	private static int pixels(final int cells, final int size) {
+		return (int) Math.min(Integer.MAX_VALUE / 2, (long) cells * size);
+	}
+
+	/**
+	 * the tiles are rendered again for a new look and feel.
+	 */
+	@Override
+	public void updateUI() {
+		super.updateUI();
+		atlas = null;
+	}
+
+	/**
+	 * the tiles are rendered again for the screen the board is shown on.
+	 */
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		atlas = null;
+	}
+
+	/**
+	 * returns the tiles of the current size of a field, called on the event
+	 * dispatch thread.
+	 */
+	private TileAtlas atlas() {
+		if (atlas == null || atlas.getCellSize() != cellSize)
+			atlas = new TileAtlas(cellSize, getGraphicsConfiguration());
+
+		return atlas;
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		final Level current = level;
+
+		if (current == null)
+			return new Dimension(0, 0);
+
+		// swing uses int coordinates, so a huge level is cut off
+		return new Dimension((int) Math.min(Integer.MAX_VALUE / 2, (long) current.getSizeX() * cellSize),
+				(int) Math.min(Integer.MAX_VALUE / 2, (long) current.getSizeY() * cellSize));
+	}
+
+	/**
+	 * the board fills at most 80% of the screen, the rest is scrolled.
+	 */
+	@Override
+	public Dimension getPreferredScrollableViewportSize() {
+		final Dimension preferred = getPreferredSize();
+		final Rectangle screen = GraphicsEnvironment.isHeadless() ? new Rectangle(1024, 768)
+				: GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+
+		return new Dimension(Math.min(preferred.width, screen.width * 4 / 5),
+				Math.min(preferred.height, screen.height * 4 / 5));
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(final Rectangle visibleRect, final int orientation, final int direction) {
+		return cellSize;
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(final Rectangle visibleRect, final int orientation, final int direction) {
+		final int visible = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+		return Math.max(cellSize, visible - cellSize);
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportWidth() {
+		return false;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight() {
+		return false;
+	}
+
+	@Override
+	protected void paintComponent(final Graphics g) {
+		final Level current = level;
+		final Rectangle clip = g.getClipBounds();
+
+		g.setColor(Color.GRAY);
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		if (current == null)
+			return;
+
+		// only the fields inside of the clip, whatever the size of the level
+		final int size = cellSize;
+		final int fromY = Math.max(0, clip.y / size);
+		final int toY = (int) Math.min(current.getSizeY(), ((long) clip.y + clip.height + size - 1) / size);
+		final int fromX = Math.max(0, clip.x / size);
+		final int toX = (int) Math.min(current.getSizeX(), ((long) clip.x + clip.width + size - 1) / size);
+		final TileAtlas tiles = atlas();
+
+		for (int y = fromY; y < toY; y++)
+			for (int x = fromX; x < toX; x++)
+				paintCell(g, tiles, y, x, current.get(y, x));
+
+		StartupTimer.framePainted();
+	}
+
+	/**
+	 * paints a single field.
+	 */
+	private void paintCell(final Graphics g, final TileAtlas tiles, final int y, final int x, final char value) {
+		final int tile;
+
+		if (value == Game.FLAGGED_BOMB | (value >= 'a' & value <= 'i')) // FLAGGED
+			tile = TileAtlas.FLAGGED;
+		else if (value >= 'A' & value <= 'I') // REVEALED
+			tile = TileAtlas.number(value - FloodFill.REVEALED_OFFSET - Game.EMPTY);
+		else if (revealAll & value == Game.BOMB)
+			tile = y == explodedY & x == explodedX ? TileAtlas.EXPLODED : TileAtlas.BOMB;
+		else if (revealAll & FloodFill.isRevealable(value))
+			tile = TileAtlas.number(value - Game.EMPTY);
+		else
+			tile = TileAtlas.UNTOUCHED;
+
+		final int left = x * cellSize;
+		final int top = y * cellSize;
+
+		g.drawImage(tiles.get(tile), left, top, null);
+
+		if (debug & tile == TileAtlas.UNTOUCHED) {
+			g.setFont(debugFont);
+			g.setColor(Color.DARK_GRAY);
+			g.drawString(String.valueOf(value), left + 3, top + debugFont.getSize() + 1);
+		}
+	}
+}
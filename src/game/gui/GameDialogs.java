@@ -10,13 +10,13 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 
-import game.Game;
+import game.util.Diagnostics;
 
 public final class GameDialogs {
 	private GameDialogs() {
 	}
 	
-	public static int[] showNewGameDialog(Component parent) {
+	public static long[] showNewGameDialog(Component parent) {
 		final JLabel lblSizeY = new JLabel("Size Y:");
 		final JLabel lblSizeX = new JLabel("Size X:");
 		final JLabel lblNumBombs = new JLabel("Number of Bombs:");
@@ -38,19 +38,19 @@ public final class GameDialogs {
 		
 		switch (userChoice) {
 			case JOptionPane.OK_OPTION:
-				int y = 0, x = 0, b = 0;
+				int y = 0, x = 0;
+				long b = 0;
 				
 				try {
 					y = Integer.parseInt(txtSizeY.getText());
 					x = Integer.parseInt(txtSizeX.getText());
-					b = Integer.parseInt(txtNumBombs.getText());
+					b = Long.parseLong(txtNumBombs.getText());
 				} catch (NumberFormatException e) {
-					if (Game.DEBUG)
-						e.printStackTrace();
+					Diagnostics.debug("input", "Invalid settings for a new game: " + e.getMessage());
 					return null;
 				}
 				
-				return new int[] { y, x, b };
+				return new long[] { y, x, b };
 				
 			default:
 				return null;
@@ -77,4 +77,9 @@ public final class GameDialogs {
 		else
 			return null;
 	}
+	
+	public static void showErrorDialog(Component parent, String message, Throwable cause) {
+		JOptionPane.showMessageDialog(parent, message + "\n" + cause.getMessage(), "jMinesweeper - Error",
+				JOptionPane.ERROR_MESSAGE);
+	}
 }
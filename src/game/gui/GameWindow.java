@@ -1,31 +1,32 @@
 package game.gui;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.BrokenBarrierException;
-
 import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.GridLayout;
-import java.awt.Insets;
-import java.awt.event.MouseAdapter;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import javax.swing.Box;
-import javax.swing.ImageIcon;
-import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
-import javax.swing.border.BevelBorder;
+import javax.swing.KeyStroke;
 
 import game.Game;
+import game.data.CellSet;
+import game.data.Level;
+import game.util.Diagnostics;
+import game.util.Diagnostics.Severity;
+import game.util.GameExecutors;
+import game.util.Metrics;
 
 /**
  * main user interface of the game
@@ -36,162 +37,67 @@ import game.Game;
 public class GameWindow extends JFrame implements Runnable {
 	private static final long serialVersionUID = 1L;
 
-	private JPanel				pnlMain		= new JPanel();
+	/**
+	 * the texts of the counters, so that counting doesn't build strings.
+	 */
+	private static final String[] COUNTERS = new String[1000];
+
+	static {
+		for (int i = 0; i < COUNTERS.length; i++)
+			COUNTERS[i] = String.format("%03d", i);
+	}
+
+	private final BoardPanel	board		= new BoardPanel();
+	private final JScrollPane	scrBoard	= new JScrollPane(board);
 	private final JPanel		pnlMenu		= new JPanel();
 	private final JLabel		lblSmiley	= new JLabel();
 	private final JLabel		lblTime		= new JLabel("000");
 	private final JLabel		lblBombs	= new JLabel("000");
 	private final JLabel		lblStatus	= new JLabel(" ");
-	private Map<String, Field>	gameFields;
+	private final RenderQueue	queue		= new RenderQueue(board::repaintCells);
+	private final LabelText		txtSmiley	= new LabelText(lblSmiley);
+	private final LabelText		txtTime		= new LabelText(lblTime);
+	private final LabelText		txtBombs	= new LabelText(lblBombs);
+	private final LabelText		txtStatus	= new LabelText(lblStatus);
 
 	/**
-	 * inner class encapsulating the logic for the fields
+	 * the text of a label, changed from any thread with the next frame. a text
+	 * is only queued if it differs from the last one, and the update is queued
+	 * as its own key.
 	 *
 	 * @author Holger Dörner
-	 *
 	 */
-	class Field extends JButton {
-		private static final long serialVersionUID = 1L;
+	private final class LabelText implements Runnable {
+		private final JLabel	label;
+		private volatile String	text;
+		private volatile long	number	= Long.MIN_VALUE;
 
-		private final Field	_this_;
-		private final int	positionY;
-		private final int	positionX;
-		private boolean		active	= true;
-		private boolean		clicked	= false;
-
-		/**
-		 * getter for the y-position
-		 *
-		 * @return the y-position of the field on the gameboard
-		 *
-		 */
-		int getPositionY() {
-			return positionY;
+		private LabelText(final JLabel label) {
+			this.label = label;
 		}
 
-		/**
-		 * getter for the x-position
-		 *
-		 * @return the x-position of the field on the gameboard
-		 *
-		 */
-		int getPositionX() {
-			return positionX;
-		}
+		private void setText(final String newText) {
+			if (newText.equals(text))
+				return;
 
-		/**
-		 * getter to retrieve the status of a field.
-		 *
-		 * true = the field wasn't revealed. false = the field is revealed.
-		 *
-		 * @return boolean indicating the status of the field
-		 *
-		 */
-		boolean isActive() {
-			return active;
+			text = newText;
+			number = Long.MIN_VALUE;
+			queue.post(this, this);
 		}
 
-		/**
-		 * only used when global debugging is on.
-		 *
-		 * @param text the character in the level on the position of this field
-		 */
-		private void setDebugText(char text) {
-			this.setText("" + text);
-		}
+		private void setNumber(final long newNumber) {
+			if (newNumber == number)
+				return;
 
-		/**
-		 * constructor of the field.
-		 *
-		 * @param y the vertical position of the field
-		 * @param x the horizontal position of the field
-		 */
-		private Field(int y, int x) {
-			_this_ = this;
-			this.positionY = y;
-			this.positionX = x;
-
-			this.setPreferredSize(new Dimension(30, 30));
-			this.setFont(new Font(null, Font.TRUETYPE_FONT, 20));
-			this.setMargin(new Insets(0, 0, 0, 0));
-			this.setBackground(Color.LIGHT_GRAY);
-			this.setBorder(new BevelBorder(BevelBorder.RAISED));
-
-			// handler for mouse-clicks
-			this.addMouseListener(new MouseAdapter() {
-				@Override
-				public void mouseReleased(MouseEvent e) {
-					if (e.getButton() == MouseEvent.BUTTON1 & _this_.active) { // left mouse-button
-						Game.revealField(_this_.positionY, _this_.positionX);
-						// _this_.active = false;
-						// _this_.clicked = true;
-					} else if (e.getButton() == MouseEvent.BUTTON3 & _this_.active) { // right mouse-button
-						Game.markField(_this_.positionY, _this_.positionX);
-					}
-
-					if (Game.gameRunning)
-						updateSmilie(1); // reset smiley when mouse-button is released
-
-					if (Game.DEBUG)
-						System.out.println("Clicked Field: " + _this_.getPositionY() + "x" + _this_.getPositionX()
-								+ "\tMouse-Button: " + e.getButton());
-				}
-
-				@Override
-				public void mousePressed(MouseEvent e) {
-					// update smiley when mouse-button is pressed
-					if (Game.gameRunning)
-						updateSmilie(0);
-				}
-
-				@Override
-				public void mouseEntered(MouseEvent e) {
-				}
-
-				@Override
-				public void mouseExited(MouseEvent e) {
-				}
-			});
+			text = newNumber >= 0 & newNumber < COUNTERS.length ? COUNTERS[(int) newNumber]
+					: String.valueOf(newNumber);
+			number = newNumber;
+			queue.post(this, this);
 		}
 
-		/**
-		 * lets a field update itself and reveal what's underneath
-		 *
-		 * @param fieldValue represents the status hidden under the field
-		 */
-		void updateField(final char fieldValue) {
-			if (fieldValue == Game.BOMB) {
-				this.setText("\uD83D\uDCA3");
-				if (this.clicked)
-					this.setBackground(Color.RED);
-			} else if (fieldValue == Game.FLAGGED_BOMB) {
-				this.setText("\uD83C\uDFF4");
-				this.setForeground(Color.RED);
-			} else if (fieldValue >= 'a' & fieldValue <= 'i') {
-				this.setText("\uD83C\uDFF4");
-				this.setForeground(Color.RED);
-			} else if (fieldValue == Game.UNTOUCHED) {
-				this.setText("");
-				this.setForeground(Color.BLACK);
-			} else if (fieldValue == Game.EMPTY) {
-				this.setBackground(Color.GRAY);
-				this.setBorder(new BevelBorder(BevelBorder.LOWERED));
-				this.setText("");
-				this.active = false;
-			} else {
-				this.setBackground(Color.GRAY);
-				this.setBorder(new BevelBorder(BevelBorder.LOWERED));
-				if (fieldValue > Game.EMPTY & fieldValue < '9') {
-					this.setText("" + fieldValue);
-					if (fieldValue == '1')
-						this.setForeground(Color.BLUE);
-					else if (fieldValue == '2')
-						this.setForeground(Color.GREEN);
-					else if (fieldValue >= '3')
-						this.setForeground(Color.RED);
-				}
-				this.active = false;
-			}
+		@Override
+		public void run() {
+			label.setText(text);
 		}
 	}
 
@@ -205,27 +111,58 @@ public class GameWindow extends JFrame implements Runnable {
 
 		private final JMenu		gameMenu			= new JMenu("Game");
 		private final JMenu		newGameMenu			= new JMenu("New");
+		private final JMenu		viewMenu			= new JMenu("View");
 		private final JMenu		debugMenu			= new JMenu("Debug");
 		private final JMenuItem	newEasyGame			= new JMenuItem("Easy");
 		private final JMenuItem	newMediumGame		= new JMenuItem("Medium");
 		private final JMenuItem	newHardGame			= new JMenuItem("Hard");
 		private final JMenuItem	newCustomGame		= new JMenuItem("Custom");
+		private final JMenuItem	hintMenuItem		= new JMenuItem("Hint");
 		private final JMenuItem	loadMenuItem		= new JMenuItem("Load");
 		private final JMenuItem	saveMenuItem		= new JMenuItem("Save");
 		private final JMenuItem	exitMenuItem		= new JMenuItem("Exit");
+		private final JMenuItem	zoomInMenuItem		= new JMenuItem("Zoom in");
+		private final JMenuItem	zoomOutMenuItem		= new JMenuItem("Zoom out");
+		private final JMenuItem	zoomResetMenuItem	= new JMenuItem("Actual size");
+		private final JCheckBoxMenuItem	dbgOutputMenuItem	= new JCheckBoxMenuItem("Debug output");
 		private final JMenuItem	dbgPrintMenuItem	= new JMenuItem("Print level to console");
+		private final JMenuItem	dbgRenderMenuItem	= new JMenuItem("Print render statistics");
+		private final JMenuItem	dbgMetricsMenuItem	= new JMenuItem("Print metrics");
 
 		private MainMenu() {
 			newEasyGame.addActionListener(e -> Game.newGame(8, 8, 10));
 			newMediumGame.addActionListener(e -> Game.newGame(16, 16, 40));
 			newHardGame.addActionListener(e -> Game.newGame(16, 30, 99));
 			newCustomGame.addActionListener(e -> Game.newGame());
+			hintMenuItem.addActionListener(e -> Game.hint());
 			loadMenuItem.addActionListener(e -> Game.loadFromFile());
 			saveMenuItem.addActionListener(e -> Game.saveToFile());
 			exitMenuItem.addActionListener(e -> Game.exitGame());
-
-			// only in DEBUG-mode
+			zoomInMenuItem.addActionListener(e -> board.zoom(board.getCellSize() * 5 / 4 + 1));
+			zoomOutMenuItem.addActionListener(e -> board.zoom(board.getCellSize() * 4 / 5));
+			zoomResetMenuItem.addActionListener(e -> board.zoom(BoardPanel.CELL_SIZE));
+
+			zoomInMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_PLUS, InputEvent.CTRL_DOWN_MASK));
+			zoomOutMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, InputEvent.CTRL_DOWN_MASK));
+			hintMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, InputEvent.CTRL_DOWN_MASK));
+			zoomResetMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, InputEvent.CTRL_DOWN_MASK));
+
+			// switches the debug diagnostics and the raw level-data on the fields
+			dbgOutputMenuItem.setSelected(Diagnostics.isEnabled(Severity.DEBUG));
+			dbgOutputMenuItem.addActionListener(e -> {
+				Diagnostics.setThreshold(dbgOutputMenuItem.isSelected() ? Severity.DEBUG : Severity.INFO);
+				board.setDebug(dbgOutputMenuItem.isSelected());
+			});
 			dbgPrintMenuItem.addActionListener(e -> Game.printLevel());
+			dbgRenderMenuItem.addActionListener(e -> Diagnostics.info("render", "Render queue: " + queue));
+			dbgMetricsMenuItem.addActionListener(e -> {
+				final StringBuilder text = new StringBuilder();
+				Metrics.snapshot().forEach((name, snapshot) -> text.append(System.lineSeparator()).append(name)
+						.append(": ").append(snapshot));
+				GameExecutors.getStatistics().forEach(
+						queue -> text.append(System.lineSeparator()).append("Queue ").append(queue));
+				Diagnostics.info("metrics", text.toString());
+			});
 
 			newGameMenu.add(newEasyGame);
 			newGameMenu.add(newMediumGame);
@@ -234,18 +171,26 @@ public class GameWindow extends JFrame implements Runnable {
 			newGameMenu.add(newCustomGame);
 
 			gameMenu.add(newGameMenu);
+			gameMenu.add(hintMenuItem);
 			gameMenu.add(new JSeparator());
 			gameMenu.add(loadMenuItem);
 			gameMenu.add(saveMenuItem);
 			gameMenu.add(new JSeparator());
 			gameMenu.add(exitMenuItem);
 
+			viewMenu.add(zoomInMenuItem);
+			viewMenu.add(zoomOutMenuItem);
+			viewMenu.add(zoomResetMenuItem);
+
+			debugMenu.add(dbgOutputMenuItem);
+			debugMenu.add(new JSeparator());
 			debugMenu.add(dbgPrintMenuItem);
+			debugMenu.add(dbgRenderMenuItem);
+			debugMenu.add(dbgMetricsMenuItem);
 
 			this.add(gameMenu);
-
-			if (Game.DEBUG)
-				this.add(debugMenu);
+			this.add(viewMenu);
+			this.add(debugMenu);
 		}
 	}
 
@@ -256,49 +201,33 @@ public class GameWindow extends JFrame implements Runnable {
 	}
 
 	/**
+	 * returns the queue collecting the changes of the user interface.
 	 *
-	 * @return a list of all fields on the gameboard
+	 * @return the render queue
 	 */
-	Map<String, Field> getGameFields() {
-		return this.gameFields;
+	public RenderQueue getRenderQueue() {
+		return queue;
 	}
 
 	/**
-	 * updates touched fields on the gameboard when a level is loaded from file.
+	 * shows every field of the level, used when the game is over.
 	 *
-	 * format for the key is 'y-x'.
-	 *
-	 * @param touchedFields a java.util.Map containing the field-data
+	 * @param explodedY the vertical position of the bomb which ended the game,
+	 *                  -1 if there is none
+	 * @param explodedX the horizontal position of the bomb which ended the game,
+	 *                  -1 if there is none
 	 */
-	public void updateTouchedFields(final Map<String, Character> touchedFields) {
-		touchedFields.entrySet().forEach(
-				entry -> Game.threadPool.execute(() -> gameFields.get(entry.getKey()).updateField(entry.getValue())));
-	}
-
-	/**
-	 * updates all fields on the board
-	 *
-	 * @param data the level data
-	 */
-	public void updateAllFields(final char[][] data) {
-		gameFields.values().stream().filter(field -> field.isActive()).forEach(field -> {
-			Game.threadPool.execute(() -> {
-				field.updateField(data[field.getPositionY()][field.getPositionX()]);
-				field.active = false;
-			});
-		});
-
+	public void updateAllFields(final int explodedY, final int explodedX) {
+		queue.post("revealAll", () -> board.revealAll(explodedY, explodedX));
 	}
 
 	/**
-	 * updates a single field on the gameboard.
+	 * repaints a batch of changed fields on the gameboard.
 	 *
-	 * @param y      the vertical position on the gameboard
-	 * @param x      the horizontal position on the gameboard
-	 * @param status the status for the field to set
+	 * @param changed the positions of the changed fields
 	 */
-	public void updateField(final int y, final int x, final char status) {
-		gameFields.get(y + "-" + x).updateField(status);
+	public void updateFields(final CellSet changed) {
+		queue.cellsChanged(changed);
 	}
 
 	/**
@@ -317,35 +246,32 @@ public class GameWindow extends JFrame implements Runnable {
 		switch (status) {
 			// mouse down
 			case 0:
-				this.lblSmiley.setText("\uD83D\uDE2F");
+				txtSmiley.setText("\uD83D\uDE2F");
 				break;
 
 			// mouse up / default
 			case 1:
-				this.lblSmiley.setText("\uD83D\uDE0A");
+				txtSmiley.setText("\uD83D\uDE0A");
 				break;
 
 			// victory
 			case 2:
-				this.lblSmiley.setText("\uD83D\uDE0E");
+				txtSmiley.setText("\uD83D\uDE0E");
 				break;
 
 			// defeat
 			case 3:
-				this.lblSmiley.setText("\uD83D\uDE2D");
+				txtSmiley.setText("\uD83D\uDE2D");
 				break;
 		}
 	}
 
 	/**
-	 * shows the raw level-data on the fields. only used when Game.DEBUG is set.
-	 *
-	 * @param data an array containing the level data
+	 * shows the raw level-data on the fields. only used when debug diagnostics
+	 * are switched on.
 	 */
-	public void debugView(char[][] data) {
-		for (Field field : gameFields.values()) {
-			field.setDebugText(data[field.getPositionY()][field.getPositionX()]);
-		}
+	public void debugView() {
+		queue.post("debug", () -> board.setDebug(true));
 	}
 
 	/**
@@ -354,65 +280,49 @@ public class GameWindow extends JFrame implements Runnable {
 	 * @param statusText a java.lang.String containing the text to display
 	 */
 	public void updateStatusLabel(String statusText) {
-		this.lblStatus.setText(statusText);
+		txtStatus.setText(statusText);
 	}
 
-	public void updateTimer(String time) {
-		if (time.length() == 1)
-			this.lblTime.setText("00" + time);
-		else if (time.length() == 2)
-			this.lblTime.setText("0" + time);
-		else if (time.length() == 3)
-			this.lblTime.setText(time);
+	/**
+	 * updates the timer, it stops at 999 seconds.
+	 *
+	 * @param seconds the elapsed seconds
+	 */
+	public void updateTimer(final long seconds) {
+		txtTime.setNumber(Math.min(seconds, COUNTERS.length - 1));
 	}
 
-	public void updateBombCounter(String numBombs) {
-		if (numBombs.length() == 1)
-			numBombs = "00" + numBombs;
-		if (numBombs.length() == 2)
-			numBombs = "0" + numBombs;
-
-		this.lblBombs.setText(numBombs);
+	/**
+	 * updates the number of bombs left to flag.
+	 *
+	 * @param numBombs the number of bombs
+	 */
+	public void updateBombCounter(final long numBombs) {
+		txtBombs.setNumber(numBombs);
 	}
 
 	/**
-	 * generates a new board inside of the main-window. should a board already
-	 * exist, it gets deleted.
+	 * shows a new level on the board and resizes the main-window to fit it, or
+	 * most of the screen if the board is bigger.
 	 *
-	 * @param sizeY the vertical size
-	 * @param sizeX the horizontal size
+	 * @param level the level
 	 */
-	public void newBoard(final int sizeY, final int sizeX) {
-		this.remove(pnlMain);
-		this.pnlMain = new JPanel();
-		this.pnlMain.setLayout(new GridLayout(sizeY, sizeX));
-
-		this.gameFields = new LinkedHashMap<>();
-
-		for (int i = 0; i < sizeY; i++) {
-			for (int j = 0; j < sizeX; j++) {
-				Field f = new Field(i, j);
-				this.gameFields.put(i + "-" + j, f);
-				this.pnlMain.add(f);
-
-				if (Game.DEBUG)
-					System.out.println("Generated Field: y" + i + " x" + j);
-			}
-		}
-
-		this.add(pnlMain, BorderLayout.CENTER);
-		this.pack();
+	public void newBoard(final Level level) {
+		queue.post(this, () -> {
+			board.setLevel(level);
+			this.pack();
+		});
 
 		updateSmilie(1);
 	}
 
 	/**
-	 * let the gui run in its own thread.
+	 * builds and shows the window, must be called on the event dispatch
+	 * thread. the changes queued so far, e.g. the first board, are applied
+	 * before the window is shown.
 	 */
 	@Override
 	public void run() {
-		Thread.currentThread().setName("User-Interface");
-
 		this.lblSmiley.setFont(new Font(null, Font.BOLD, 50));
 		this.lblSmiley.setAlignmentX(CENTER_ALIGNMENT);
 		this.lblSmiley.setText("\uD83D\uDE0A");
@@ -454,22 +364,27 @@ public class GameWindow extends JFrame implements Runnable {
 		this.setJMenuBar(new MainMenu());
 
 		this.add(pnlMenu, BorderLayout.NORTH);
+		this.add(scrBoard, BorderLayout.CENTER);
 		this.add(lblStatus, BorderLayout.SOUTH);
 
 		this.setTitle("jMinesweeper");
 		this.setLocationRelativeTo(null);
 		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		this.pack();
 
-		// at this point we make sure that everything is ready
-		// so we have to wait for the other tasks to finish their job
-		try {
-			Game.barrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			if (Game.DEBUG)
-				e.printStackTrace();
-		}
+		// the clock doesn't run while the window is minimized
+		this.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowIconified(WindowEvent e) {
+				Game.pauseClock();
+			}
 
+			@Override
+			public void windowDeiconified(WindowEvent e) {
+				Game.resumeClock();
+			}
+		});
+		queue.flushNow();
+		this.pack();
 		this.setVisible(true);
 	}
 }
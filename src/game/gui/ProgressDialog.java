@@ -0,0 +1,71 @@
+package game.gui;
+
+import java.awt.Component;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+
+import game.util.Progress;
+
+/**
+ * shows the progress of a background task in a dialog with a cancel-button.
+ * the dialog pops up only if the task takes a while.
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class ProgressDialog implements Progress {
+	/**
+	 * the resolution of the progress bar.
+	 */
+	private static final int STEPS = 1000;
+
+	private final ProgressMonitor monitor;
+	private volatile boolean cancelled;
+	private volatile int shown = -1;
+
+	/**
+	 * creates the dialog, must be called on the event dispatch thread.
+	 *
+	 * @param parent  the parent of the dialog
+	 * @param message the message describing the task
+	 */
+	public ProgressDialog(final Component parent, final String message) {
+		this.monitor = new ProgressMonitor(parent, message, null, 0, STEPS);
+		this.monitor.setMillisToDecideToPopup(100);
+		this.monitor.setMillisToPopup(300);
+	}
+
+	/**
+	 * updates the dialog, only whole steps are passed to the event dispatch
+	 * thread.
+	 */
+	@Override
+	public void update(final long done, final long total) {
+		final int step = total > 0 ? (int) (done * STEPS / total) : STEPS;
+
+		if (step == shown)
+			return;
+
+		shown = step;
+
+		SwingUtilities.invokeLater(() -> {
+			if (monitor.isCanceled())
+				cancelled = true;
+			else
+				monitor.setProgress(step);
+		});
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * closes the dialog.
+	 */
+	public void close() {
+		SwingUtilities.invokeLater(monitor::close);
+	}
+}
@@ -0,0 +1,351 @@
+package game.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import game.data.CellSet;
+import game.util.Metrics;
+
+/**
+ * <p>
+ * collects changes of the user interface from any thread and applies them on
+ * the event dispatch thread, at most once per frame.
+ * </p>
+ *
+ * <p>
+ * changed fields are collected as rectangles, a frame repaints each rectangle
+ * once no matter how many fields changed inside of it. other updates, e.g. the
+ * text of a label, are posted under a key, only the latest update of a key is
+ * applied in a frame.
+ * </p>
+ *
+ * <p>
+ * the queue counts the frames, the changes per frame and the latency from the
+ * first change of a frame to the end of its flush.
+ * </p>
+ *
+ * <p>
+ * queueing doesn't allocate, the rectangles and updates are kept in two sets
+ * of buffers which are swapped by every flush. only the scheduling of a frame
+ * allocates, once per frame.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class RenderQueue {
+	/**
+	 * the minimum time between two frames, 60 frames per second.
+	 */
+	public static final long FRAME_NANOS = 16_666_667L;
+
+	/**
+	 * the number of rectangles above which all rectangles of a frame are merged
+	 * into their bounding rectangle.
+	 */
+	private static final int MAX_RECTANGLES = 32;
+
+	/**
+	 * repaints the fields inside of a rectangle, called on the event dispatch
+	 * thread.
+	 */
+	@FunctionalInterface
+	public interface CellPainter {
+		/**
+		 * repaints fields.
+		 *
+		 * @param fromY the first row
+		 * @param fromX the first column
+		 * @param toY   the last row, inclusive
+		 * @param toX   the last column, inclusive
+		 */
+		public void repaintCells(int fromY, int fromX, int toY, int toX);
+	}
+
+	private final CellPainter painter;
+	private final Timer timer;
+	private final Runnable scheduler = this::schedule;
+
+	// guarded by this
+	private int[] rectangles = new int[MAX_RECTANGLES * 4];
+	private int rectangleCount;
+	private List<Object> keys = new ArrayList<>();
+	private List<Runnable> updates = new ArrayList<>();
+	private boolean scheduled;
+	private long firstChange;
+	private long pendingChanges;
+
+	// only used on the event dispatch thread
+	private int[] frameRectangles = new int[MAX_RECTANGLES * 4];
+	private List<Object> frameKeys = new ArrayList<>();
+	private List<Runnable> frameUpdates = new ArrayList<>();
+	private long lastFlush = System.nanoTime() - FRAME_NANOS;
+
+	// statistics, guarded by this
+	private long frames;
+	private long changes;
+	private long maxChangesPerFrame;
+	private long lastLatency;
+	private long maxLatency;
+	private long totalLatency;
+
+	/**
+	 * creates a new queue.
+	 *
+	 * @param painter repaints the changed fields
+	 */
+	public RenderQueue(final CellPainter painter) {
+		if (painter == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		this.painter = painter;
+		this.timer = new Timer(0, e -> flush());
+		this.timer.setRepeats(false);
+	}
+
+	/**
+	 * queues a batch of changed fields.
+	 *
+	 * @param changed the positions of the changed fields, only read during the
+	 *                call
+	 */
+	public void cellsChanged(final CellSet changed) {
+		if (changed.isEmpty())
+			return;
+
+		int minY = Integer.MAX_VALUE, minX = Integer.MAX_VALUE;
+		int maxY = Integer.MIN_VALUE, maxX = Integer.MIN_VALUE;
+
+		for (int i = 0; i < changed.size(); i++) {
+			minY = Math.min(minY, changed.getY(i));
+			maxY = Math.max(maxY, changed.getY(i));
+			minX = Math.min(minX, changed.getX(i));
+			maxX = Math.max(maxX, changed.getX(i));
+		}
+
+		cellsChanged(minY, minX, maxY, maxX, changed.size());
+	}
+
+	/**
+	 * queues a rectangle of changed fields.
+	 *
+	 * @param fromY   the first row
+	 * @param fromX   the first column
+	 * @param toY     the last row, inclusive
+	 * @param toX     the last column, inclusive
+	 * @param changes the number of changed fields inside of the rectangle
+	 */
+	public synchronized void cellsChanged(final int fromY, final int fromX, final int toY, final int toX,
+			final int changes) {
+		if (rectangleCount == MAX_RECTANGLES) {
+			// the first rectangle becomes the union of all
+			for (int i = 4; i < rectangleCount * 4; i += 4) {
+				rectangles[0] = Math.min(rectangles[0], rectangles[i]);
+				rectangles[1] = Math.min(rectangles[1], rectangles[i + 1]);
+				rectangles[2] = Math.max(rectangles[2], rectangles[i + 2]);
+				rectangles[3] = Math.max(rectangles[3], rectangles[i + 3]);
+			}
+
+			rectangleCount = 1;
+		}
+
+		final int i = rectangleCount++ * 4;
+
+		rectangles[i] = fromY;
+		rectangles[i + 1] = fromX;
+		rectangles[i + 2] = toY;
+		rectangles[i + 3] = toX;
+		changed(changes);
+	}
+
+	/**
+	 * queues an update of the user interface. an update replaces a queued
+	 * update with the same key. an update which reads its state when it runs
+	 * can be its own key, so queueing it again doesn't allocate.
+	 *
+	 * @param key    identifies what is updated, e.g. a label
+	 * @param update the update, run on the event dispatch thread
+	 */
+	public synchronized void post(final Object key, final Runnable update) {
+		final int index = keys.indexOf(key);
+
+		// the latest update runs last
+		if (index >= 0) {
+			keys.remove(index);
+			updates.remove(index);
+		}
+
+		keys.add(key);
+		updates.add(update);
+		changed(1);
+	}
+
+	/**
+	 * applies all queued changes now, e.g. before a window is shown. must be
+	 * called on the event dispatch thread.
+	 */
+	public void flushNow() {
+		if (!SwingUtilities.isEventDispatchThread())
+			throw new IllegalStateException("Must be called on the event dispatch thread!");
+
+		flush();
+	}
+
+	/**
+	 * returns the number of frames flushed so far.
+	 *
+	 * @return the number of frames
+	 */
+	public synchronized long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * returns the number of changes flushed so far, a field or an update counts
+	 * as one change.
+	 *
+	 * @return the number of changes
+	 */
+	public synchronized long getChanges() {
+		return changes;
+	}
+
+	/**
+	 * returns the highest number of changes flushed in a single frame.
+	 *
+	 * @return the maximum number of changes per frame
+	 */
+	public synchronized long getMaxChangesPerFrame() {
+		return maxChangesPerFrame;
+	}
+
+	/**
+	 * returns the latency of the last frame, from its first change to the end of
+	 * its flush.
+	 *
+	 * @return the latency in nanoseconds
+	 */
+	public synchronized long getLastLatencyNanos() {
+		return lastLatency;
+	}
+
+	/**
+	 * returns the highest latency of a frame.
+	 *
+	 * @return the latency in nanoseconds
+	 */
+	public synchronized long getMaxLatencyNanos() {
+		return maxLatency;
+	}
+
+	/**
+	 * returns the average latency of all frames.
+	 *
+	 * @return the latency in nanoseconds
+	 */
+	public synchronized long getAverageLatencyNanos() {
+		return frames == 0 ? 0 : totalLatency / frames;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("frames: %d, changes: %d (%.1f per frame, max %d), latency: avg %.2f ms, max %.2f ms",
+				frames, changes, frames == 0 ? 0.0 : (double) changes / frames, maxChangesPerFrame,
+				getAverageLatencyNanos() / 1e6, maxLatency / 1e6);
+	}
+
+	/**
+	 * notes a change and schedules the next frame, if it isn't yet.
+	 */
+	private void changed(final int count) {
+		if (pendingChanges == 0)
+			firstChange = System.nanoTime();
+
+		pendingChanges += count;
+
+		if (!scheduled) {
+			scheduled = true;
+			SwingUtilities.invokeLater(scheduler);
+		}
+	}
+
+	/**
+	 * starts the timer of the next frame, so that it follows the last frame
+	 * after {@code FRAME_NANOS} at the earliest.
+	 */
+	private void schedule() {
+		final long wait = lastFlush + FRAME_NANOS - System.nanoTime();
+
+		if (wait <= 0) {
+			flush();
+		} else {
+			timer.setInitialDelay((int) ((wait + 999_999) / 1_000_000));
+			timer.restart();
+		}
+	}
+
+	/**
+	 * applies all queued changes, runs on the event dispatch thread.
+	 */
+	private void flush() {
+		final long flushStart = System.nanoTime();
+		final int frameRectangleCount;
+		final long frameChanges;
+		final long frameStart;
+
+		synchronized (this) {
+			// a frame scheduled before flushNow() finds nothing left
+			if (pendingChanges == 0)
+				return;
+
+			final int[] swappedRectangles = frameRectangles;
+			final List<Object> swappedKeys = frameKeys;
+			final List<Runnable> swappedUpdates = frameUpdates;
+
+			frameRectangles = rectangles;
+			frameRectangleCount = rectangleCount;
+			frameKeys = keys;
+			frameUpdates = updates;
+			frameChanges = pendingChanges;
+			frameStart = firstChange;
+
+			rectangles = swappedRectangles;
+			rectangleCount = 0;
+			keys = swappedKeys;
+			updates = swappedUpdates;
+			pendingChanges = 0;
+			scheduled = false;
+		}
+
+		try {
+			for (int i = 0; i < frameUpdates.size(); i++)
+				frameUpdates.get(i).run();
+
+			for (int i = 0; i < frameRectangleCount * 4; i += 4)
+				painter.repaintCells(frameRectangles[i], frameRectangles[i + 1], frameRectangles[i + 2],
+						frameRectangles[i + 3]);
+		} finally {
+			// the buffers are handed back empty, without holding on to the updates
+			frameKeys.clear();
+			frameUpdates.clear();
+		}
+
+		final long now = System.nanoTime();
+		lastFlush = now;
+
+		Metrics.RENDER_FLUSH.record(now - flushStart);
+		Metrics.RENDER_LATENCY.record(now - frameStart);
+
+		synchronized (this) {
+			frames++;
+			changes += frameChanges;
+			maxChangesPerFrame = Math.max(maxChangesPerFrame, frameChanges);
+			lastLatency = now - frameStart;
+			maxLatency = Math.max(maxLatency, lastLatency);
+			totalLatency += lastLatency;
+		}
+	}
+}
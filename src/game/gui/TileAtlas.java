@@ -0,0 +1,153 @@
+package game.gui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * <p>
+ * pre-rendered images of the fields for a single size of field, one image per
+ * state: untouched, flagged, a bomb, the exploded bomb and the revealed
+ * numbers 0 to 8.
+ * </p>
+ *
+ * <p>
+ * the numbers and emoji are laid out once per tile, painting a field only
+ * copies its image. an atlas doesn't change, a new one is created when the
+ * size of the fields or the screen changes.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class TileAtlas {
+	public static final int UNTOUCHED = 0;
+	public static final int FLAGGED = 1;
+	public static final int BOMB = 2;
+	public static final int EXPLODED = 3;
+
+	/**
+	 * the tile of the revealed number 0, the numbers 1 to 8 follow.
+	 */
+	public static final int REVEALED = 4;
+
+	private static final int TILES = REVEALED + 9;
+
+	private static final Font BASE_FONT = new Font(Font.DIALOG, Font.PLAIN, 20);
+	private static final String BOMB_TEXT = "\uD83D\uDCA3";
+	private static final String FLAG_TEXT = "\uD83C\uDFF4";
+
+	private final int cellSize;
+	private final BufferedImage[] tiles = new BufferedImage[TILES];
+
+	/**
+	 * renders all tiles.
+	 *
+	 * @param cellSize the size of a field in pixels
+	 * @param config   the screen the tiles are painted on, creates images in
+	 *                 its format. may be null, e.g. before the board is shown
+	 */
+	public TileAtlas(final int cellSize, final GraphicsConfiguration config) {
+		if (cellSize <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		this.cellSize = cellSize;
+
+		final Font font = BASE_FONT.deriveFont(cellSize * 2 / 3f);
+
+		for (int tile = 0; tile < TILES; tile++) {
+			tiles[tile] = config != null ? config.createCompatibleImage(cellSize, cellSize)
+					: new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_RGB);
+
+			final Graphics2D g = tiles[tile].createGraphics();
+
+			try {
+				g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+				g.setFont(font);
+				render(g, tile);
+			} finally {
+				g.dispose();
+			}
+		}
+	}
+
+	/**
+	 * returns the size of a field the tiles were rendered for.
+	 *
+	 * @return the size of a field in pixels
+	 */
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * returns the image of a tile.
+	 *
+	 * @param tile the tile, e.g. {@code UNTOUCHED} or {@code number(3)}
+	 * @return the image
+	 */
+	public BufferedImage get(final int tile) {
+		return tiles[tile];
+	}
+
+	/**
+	 * returns the tile of a revealed number.
+	 *
+	 * @param number the number of bombs around the field, 0 to 8
+	 * @return the tile
+	 */
+	public static int number(final int number) {
+		if (number < 0 | number > 8)
+			throw new IllegalArgumentException("Values can't be less than 0 or more than 8!");
+
+		return REVEALED + number;
+	}
+
+	private void render(final Graphics2D g, final int tile) {
+		switch (tile) {
+			case UNTOUCHED:
+				fill(g, Color.LIGHT_GRAY, true);
+				break;
+
+			case FLAGGED:
+				fill(g, Color.LIGHT_GRAY, true);
+				text(g, FLAG_TEXT, Color.RED);
+				break;
+
+			case BOMB:
+				fill(g, Color.GRAY, false);
+				text(g, BOMB_TEXT, Color.BLACK);
+				break;
+
+			case EXPLODED:
+				fill(g, Color.RED, false);
+				text(g, BOMB_TEXT, Color.BLACK);
+				break;
+
+			default:
+				final int number = tile - REVEALED;
+
+				fill(g, Color.GRAY, false);
+
+				if (number > 0)
+					text(g, String.valueOf(number), number == 1 ? Color.BLUE : number == 2 ? Color.GREEN : Color.RED);
+		}
+	}
+
+	private void fill(final Graphics2D g, final Color color, final boolean raised) {
+		g.setColor(color);
+		g.fill3DRect(0, 0, cellSize, cellSize, raised);
+	}
+
+	private void text(final Graphics2D g, final String text, final Color color) {
+		final FontMetrics metrics = g.getFontMetrics();
+
+		g.setColor(color);
+		g.drawString(text, (cellSize - metrics.stringWidth(text)) / 2,
+				(cellSize - metrics.getHeight()) / 2 + metrics.getAscent());
+	}
+}
@@ -0,0 +1,59 @@
+package game.solver;
+
+import game.data.CellSet;
+
+/**
+ * <p>
+ * the result of {@code game.solver.Solver}: the hidden fields which are
+ * certainly safe and those which certainly hold a bomb.
+ * </p>
+ *
+ * <p>
+ * the fields are listed in the order they were found, roughly from the top
+ * left to the bottom right. flagged fields are never part of a solution.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class Solution {
+	private final CellSet safe;
+	private final CellSet mines;
+
+	Solution(final CellSet safe, final CellSet mines) {
+		this.safe = safe;
+		this.mines = mines;
+	}
+
+	/**
+	 * returns the fields which can be revealed without risk.
+	 *
+	 * @return the safe fields
+	 */
+	public CellSet getSafe() {
+		return safe;
+	}
+
+	/**
+	 * returns the fields which certainly hold a bomb.
+	 *
+	 * @return the fields with a bomb
+	 */
+	public CellSet getMines() {
+		return mines;
+	}
+
+	/**
+	 * checks if nothing is certain, the next move would be a guess.
+	 *
+	 * @return true if neither safe fields nor bombs were found
+	 */
+	public boolean isEmpty() {
+		return safe.isEmpty() & mines.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "safe " + safe.size() + ", mines " + mines.size();
+	}
+}
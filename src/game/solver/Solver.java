@@ -0,0 +1,720 @@
+package game.solver;
+
+import java.util.Arrays;
+
+import game.Game;
+import game.data.CellSet;
+import game.data.Level;
+
+/**
+ * <p>
+ * finds the hidden fields of a level which are certainly safe and those
+ * which certainly hold a bomb.
+ * </p>
+ *
+ * <p>
+ * the solver only reads what the player sees: the revealed numbers and the
+ * flags. a flag is taken for a bomb, the value of a hidden field is never
+ * looked at. every revealed number with hidden neighbors is a constraint:
+ * the number of bombs among those neighbors. the hidden fields next to a
+ * number form the frontier, which is split into components of fields linked
+ * by constraints. within a component the fields are bits of a bitset, a
+ * constraint is a bitset and a number of bombs.
+ * </p>
+ *
+ * <p>
+ * every component is solved in three steps:
+ * <ol>
+ * <li>a constraint with no bombs left makes all its fields safe, a
+ * constraint with as many bombs as fields makes all of them bombs</li>
+ * <li>a constraint which is a subset of another one is subtracted from it,
+ * e.g. {a, b} with 1 bomb and {a, b, c} with 2 bombs leave {c} with 1
+ * bomb</li>
+ * <li>if both don't help any more and at most {@code ENUMERATION_LIMIT} fields
+ * are undecided, every assignment of bombs satisfying the constraints is
+ * enumerated. a field which is safe in all of them is safe, a field which
+ * holds a bomb in all of them holds a bomb</li>
+ * </ol>
+ * finally the number of bombs left, if known, decides the rest of the level
+ * when there are either no bombs or only bombs left.
+ * </p>
+ *
+ * <p>
+ * the memory of a solve is bounded: a level with more than
+ * {@code MAX_FRONTIER} frontier fields or constraints gets an empty solution,
+ * and a component whose bitsets would take more than
+ * {@code MAX_COMPONENT_WORDS} longs only uses the first step, once.
+ * </p>
+ *
+ * <p>
+ * a component whose constraints contradict each other, e.g. because of a
+ * wrong flag, doesn't contribute to the solution.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class Solver {
+	/**
+	 * the maximum number of undecided fields of a component which are
+	 * enumerated.
+	 */
+	public static final int ENUMERATION_LIMIT = 20;
+
+	/**
+	 * the maximum number of fields of a level. the solver reads every field,
+	 * and a hint copies the level first.
+	 */
+	public static final long MAX_FIELDS = 1L << 22;
+
+	/**
+	 * the maximum number of frontier fields and of constraints.
+	 */
+	public static final int MAX_FRONTIER = 1 << 18;
+
+	/**
+	 * the maximum size of the bitsets of a component, every constraint has a
+	 * bitset of all fields of its component.
+	 */
+	public static final long MAX_COMPONENT_WORDS = 1L << 20;
+
+	private static final byte UNKNOWN = 0;
+	private static final byte SAFE = 1;
+	private static final byte MINE = 2;
+
+	private Solver() {
+	}
+
+	/**
+	 * solves a level without knowing the number of bombs.
+	 *
+	 * @param level the level
+	 * @return the certain fields
+	 */
+	public static Solution solve(final Level level) {
+		return solve(level, -1);
+	}
+
+	/**
+	 * solves a level.
+	 *
+	 * @param level    the level
+	 * @param numBombs the number of bombs in the level, flagged or not, or -1
+	 *                 if it is unknown
+	 * @return the certain fields, none if the level has more than
+	 *         {@code MAX_FRONTIER} frontier fields or constraints
+	 * @throws IllegalArgumentException if the level has more than
+	 *                                  {@code MAX_FIELDS} fields
+	 */
+	public static Solution solve(final Level level, final long numBombs) {
+		if (level == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		if ((long) level.getSizeY() * level.getSizeX() > MAX_FIELDS)
+			throw new IllegalArgumentException(
+					"Level is too big for the solver: " + level.getSizeY() + "x" + level.getSizeX());
+
+		return new Solver.Run(level).solve(numBombs);
+	}
+
+	static boolean isRevealed(final char value) {
+		return value >= 'A' & value <= 'I';
+	}
+
+	static boolean isFlagged(final char value) {
+		return value == Game.FLAGGED_BOMB | (value >= 'a' & value <= 'i');
+	}
+
+	static boolean isHidden(final char value) {
+		return !isRevealed(value) & !isFlagged(value);
+	}
+
+	/**
+	 * the state of a single call of {@code solve}.
+	 */
+	private static final class Run {
+		private final Level level;
+		private final int sizeY;
+		private final int sizeX;
+
+		// the frontier index + 1 of the fields in the rows next to the scanned
+		// one, 0 if a field isn't on the frontier. row y is kept in y % 3.
+		private final int[][] rows;
+		private final CellSet frontier = new CellSet(64);
+		private byte[] result;
+
+		// the constraints, up to 8 frontier indices each
+		private int[] members = new int[8 * 64];
+		private int[] sizes = new int[64];
+		private int[] bombs = new int[64];
+		private int constraints;
+
+		// the number of frontier fields of every component
+		private int[] componentFields;
+
+		private long flags;
+		private long hidden;
+
+		private Run(final Level level) {
+			this.level = level;
+			this.sizeY = level.getSizeY();
+			this.sizeX = level.getSizeX();
+			this.rows = new int[3][sizeX];
+		}
+
+		private Solution solve(final long numBombs) {
+			if (!scan())
+				return new Solution(new CellSet(), new CellSet());
+
+			result = new byte[frontier.size()];
+
+			final int[][] components = components();
+
+			for (int i = 0; i < components.length; i++) {
+				final long words = (componentFields[i] + 63) >>> 6;
+
+				if (components[i].length * words <= MAX_COMPONENT_WORDS)
+					new Component(this, components[i]).solve();
+				else
+					solveSingly(components[i]);
+			}
+
+			final CellSet safe = new CellSet();
+			final CellSet mines = new CellSet();
+			long decided = 0;
+			long minesFound = 0;
+
+			for (int i = 0; i < frontier.size(); i++) {
+				if (result[i] == SAFE) {
+					safe.add(frontier.getY(i), frontier.getX(i));
+					decided++;
+				} else if (result[i] == MINE) {
+					mines.add(frontier.getY(i), frontier.getX(i));
+					decided++;
+					minesFound++;
+				}
+			}
+
+			if (numBombs >= 0) {
+				final long minesLeft = numBombs - flags - minesFound;
+				final long undecided = hidden - decided;
+
+				if (undecided > 0 & (minesLeft == 0 | minesLeft == undecided))
+					addUndecided(minesLeft == 0 ? safe : mines);
+			}
+
+			return new Solution(safe, mines);
+		}
+
+		/**
+		 * finds the frontier and the constraints.
+		 *
+		 * @return false if there are more than {@code MAX_FRONTIER} of them
+		 */
+		private boolean scan() {
+			final int[] cells = new int[8];
+
+			for (int y = 0; y < sizeY; y++) {
+				// the row beneath takes the place of the row above the last one,
+				// which can't be reached any more
+				Arrays.fill(rows[(y + 1) % 3], 0);
+
+				for (int x = 0; x < sizeX; x++) {
+					final char value = level.get(y, x);
+
+					if (isFlagged(value)) {
+						flags++;
+						continue;
+					}
+
+					if (!isRevealed(value)) {
+						hidden++;
+						continue;
+					}
+
+					int size = 0;
+					int flagged = 0;
+
+					for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++) {
+						for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++) {
+							final char neighbor = level.get(ny, nx);
+
+							if (isFlagged(neighbor)) {
+								flagged++;
+							} else if (!isRevealed(neighbor)) {
+								final int[] row = rows[ny % 3];
+
+								if (row[nx] == 0) {
+									if (frontier.size() == MAX_FRONTIER)
+										return false;
+
+									frontier.add(ny, nx);
+									row[nx] = frontier.size();
+								}
+
+								cells[size++] = row[nx] - 1;
+							}
+						}
+					}
+
+					if (size == 0)
+						continue;
+
+					if (constraints == MAX_FRONTIER)
+						return false;
+
+					addConstraint(cells, size, value - 'A' - flagged);
+				}
+			}
+
+			return true;
+		}
+
+		private void addConstraint(final int[] cells, final int size, final int count) {
+			if (constraints == sizes.length) {
+				members = Arrays.copyOf(members, members.length * 2);
+				sizes = Arrays.copyOf(sizes, sizes.length * 2);
+				bombs = Arrays.copyOf(bombs, bombs.length * 2);
+			}
+
+			System.arraycopy(cells, 0, members, constraints * 8, size);
+			sizes[constraints] = size;
+			bombs[constraints] = count;
+			constraints++;
+		}
+
+		/**
+		 * splits the constraints into components of frontier fields linked by
+		 * constraints.
+		 *
+		 * @return the constraints of every component
+		 */
+		private int[][] components() {
+			final int[] parent = new int[frontier.size()];
+
+			for (int i = 0; i < parent.length; i++)
+				parent[i] = i;
+
+			for (int c = 0; c < constraints; c++)
+				for (int m = 1; m < sizes[c]; m++)
+					union(parent, members[c * 8], members[c * 8 + m]);
+
+			// count the constraints of every root, then sort them by root
+			final int[] start = new int[parent.length + 1];
+
+			for (int c = 0; c < constraints; c++)
+				start[find(parent, members[c * 8]) + 1]++;
+
+			int components = 0;
+
+			for (int i = 0; i < parent.length; i++) {
+				if (start[i + 1] > 0)
+					components++;
+
+				start[i + 1] += start[i];
+			}
+
+			final int[] sorted = new int[constraints];
+			final int[] next = Arrays.copyOf(start, parent.length);
+
+			for (int c = 0; c < constraints; c++)
+				sorted[next[find(parent, members[c * 8])]++] = c;
+
+			final int[][] result = new int[components][];
+			final int[] index = new int[parent.length];
+			int component = 0;
+
+			for (int i = 0; i < parent.length; i++) {
+				if (start[i + 1] > start[i]) {
+					index[i] = component;
+					result[component++] = Arrays.copyOfRange(sorted, start[i], start[i + 1]);
+				}
+			}
+
+			// every frontier field is part of a constraint, so its root has
+			// constraints as well
+			componentFields = new int[components];
+
+			for (int i = 0; i < parent.length; i++)
+				componentFields[index[find(parent, i)]]++;
+
+			return result;
+		}
+
+		/**
+		 * solves a component which is too big for bitsets with the first rule
+		 * alone: a constraint with no bombs left makes all its fields safe, one
+		 * with as many bombs as fields makes all of them bombs.
+		 */
+		private void solveSingly(final int[] component) {
+			for (int c : component) {
+				if (bombs[c] < 0 | bombs[c] > sizes[c]) {
+					forget(component);
+					return;
+				}
+
+				if (bombs[c] != 0 & bombs[c] != sizes[c])
+					continue;
+
+				final byte decided = bombs[c] == 0 ? SAFE : MINE;
+
+				for (int m = 0; m < sizes[c]; m++) {
+					final int field = members[c * 8 + m];
+
+					if (result[field] != UNKNOWN & result[field] != decided) {
+						// the constraints contradict each other
+						forget(component);
+						return;
+					}
+
+					result[field] = decided;
+				}
+			}
+		}
+
+		private void forget(final int[] component) {
+			for (int c : component)
+				for (int m = 0; m < sizes[c]; m++)
+					result[members[c * 8 + m]] = UNKNOWN;
+		}
+
+		private static int find(final int[] parent, final int i) {
+			int root = i;
+
+			while (parent[root] != root)
+				root = parent[root];
+
+			// let the fields on the path point to the root
+			int current = i;
+
+			while (parent[current] != root) {
+				final int up = parent[current];
+				parent[current] = root;
+				current = up;
+			}
+
+			return root;
+		}
+
+		private static void union(final int[] parent, final int a, final int b) {
+			final int rootA = find(parent, a);
+			final int rootB = find(parent, b);
+
+			if (rootA != rootB)
+				parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+		}
+
+		/**
+		 * adds every hidden field which isn't decided yet.
+		 */
+		private void addUndecided(final CellSet cells) {
+			// the position and the index of the frontier fields, in the order
+			// of the scan
+			final long[] order = new long[frontier.size()];
+
+			for (int i = 0; i < order.length; i++)
+				order[i] = ((long) frontier.getY(i) * sizeX + frontier.getX(i)) << 32 | i;
+
+			Arrays.sort(order);
+
+			int next = 0;
+
+			for (int y = 0; y < sizeY; y++) {
+				for (int x = 0; x < sizeX; x++) {
+					if (!isHidden(level.get(y, x)))
+						continue;
+
+					final long field = (long) y * sizeX + x;
+
+					if (next < order.length && order[next] >>> 32 == field) {
+						if (result[(int) order[next++]] == UNKNOWN)
+							cells.add(y, x);
+					} else {
+						cells.add(y, x);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * the fields and constraints of one component, a field is a bit of a
+	 * bitset.
+	 */
+	private static final class Component {
+		private final Run run;
+		private final int[] fields;
+		private final int words;
+		private final long[][] sets;
+		private final int[] counts;
+
+		// the constraints every field was part of at the start
+		private final int[] fieldStart;
+		private final int[] fieldConstraints;
+
+		private final long[] safe;
+		private final long[] mines;
+
+		private Component(final Run run, final int[] constraints) {
+			this.run = run;
+
+			// number the fields of the component in the order of the frontier
+			final int[] local = new int[constraints.length * 8];
+			int size = 0;
+
+			for (int c : constraints)
+				for (int m = 0; m < run.sizes[c]; m++)
+					local[size++] = run.members[c * 8 + m];
+
+			Arrays.sort(local, 0, size);
+
+			int distinct = 0;
+
+			for (int i = 0; i < size; i++)
+				if (distinct == 0 || local[distinct - 1] != local[i])
+					local[distinct++] = local[i];
+
+			this.fields = Arrays.copyOf(local, distinct);
+			this.words = (distinct + 63) >>> 6;
+			this.sets = new long[constraints.length][words];
+			this.counts = new int[constraints.length];
+			this.safe = new long[words];
+			this.mines = new long[words];
+			this.fieldStart = new int[distinct + 1];
+
+			for (int c = 0; c < constraints.length; c++) {
+				final int constraint = constraints[c];
+				counts[c] = run.bombs[constraint];
+
+				for (int m = 0; m < run.sizes[constraint]; m++) {
+					final int bit = Arrays.binarySearch(fields, run.members[constraint * 8 + m]);
+					sets[c][bit >>> 6] |= 1L << bit;
+					fieldStart[bit + 1]++;
+				}
+			}
+
+			for (int i = 0; i < distinct; i++)
+				fieldStart[i + 1] += fieldStart[i];
+
+			this.fieldConstraints = new int[fieldStart[distinct]];
+			final int[] next = Arrays.copyOf(fieldStart, distinct);
+
+			for (int c = 0; c < sets.length; c++)
+				for (int w = 0; w < words; w++)
+					for (long bits = sets[c][w]; bits != 0; bits &= bits - 1)
+						fieldConstraints[next[(w << 6) + Long.numberOfTrailingZeros(bits)]++] = c;
+		}
+
+		private void solve() {
+			if (!propagate())
+				return;
+
+			final long[] undecided = new long[words];
+
+			for (long[] set : sets)
+				for (int w = 0; w < words; w++)
+					undecided[w] |= set[w];
+
+			if (bitCount(undecided) > 0 && bitCount(undecided) <= ENUMERATION_LIMIT && !enumerate(undecided))
+				return;
+
+			for (int bit = 0; bit < fields.length; bit++) {
+				if ((safe[bit >>> 6] & 1L << bit) != 0)
+					run.result[fields[bit]] = SAFE;
+				else if ((mines[bit >>> 6] & 1L << bit) != 0)
+					run.result[fields[bit]] = MINE;
+			}
+		}
+
+		/**
+		 * applies the single field and the subset rule until nothing changes.
+		 *
+		 * @return false if the constraints contradict each other
+		 */
+		private boolean propagate() {
+			boolean changed = true;
+
+			while (changed) {
+				changed = false;
+
+				for (int c = 0; c < sets.length; c++) {
+					final long[] set = sets[c];
+					int size = 0;
+
+					// take out the fields decided meanwhile
+					for (int w = 0; w < words; w++) {
+						counts[c] -= Long.bitCount(set[w] & mines[w]);
+						set[w] &= ~(safe[w] | mines[w]);
+						size += Long.bitCount(set[w]);
+					}
+
+					if (counts[c] < 0 | counts[c] > size)
+						return false;
+
+					if (size == 0)
+						continue;
+
+					if (counts[c] == 0 | counts[c] == size) {
+						final long[] decided = counts[c] == 0 ? safe : mines;
+
+						for (int w = 0; w < words; w++) {
+							decided[w] |= set[w];
+							set[w] = 0;
+						}
+
+						counts[c] = 0;
+						changed = true;
+					}
+				}
+
+				if (changed)
+					continue;
+
+				for (int a = 0; a < sets.length; a++) {
+					final int first = firstBit(sets[a]);
+
+					if (first < 0)
+						continue;
+
+					// a superset contains the first field of the subset as well
+					for (int i = fieldStart[first]; i < fieldStart[first + 1]; i++) {
+						final int b = fieldConstraints[i];
+
+						if (b == a || !isSubset(sets[a], sets[b]))
+							continue;
+
+						if (Arrays.equals(sets[a], sets[b])) {
+							if (counts[a] != counts[b])
+								return false;
+
+							if (b < a)
+								continue;
+						}
+
+						for (int w = 0; w < words; w++)
+							sets[b][w] &= ~sets[a][w];
+
+						counts[b] -= counts[a];
+						changed = true;
+					}
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * enumerates every assignment of the undecided fields.
+		 *
+		 * @return false if no assignment satisfies the constraints
+		 */
+		private boolean enumerate(final long[] undecided) {
+			final int n = bitCount(undecided);
+			final int[] order = new int[n];
+			int k = 0;
+
+			for (int w = 0; w < words; w++)
+				for (long bits = undecided[w]; bits != 0; bits &= bits - 1)
+					order[k++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+
+			// the constraints left and the constraints of every undecided field
+			final int[] placed = new int[sets.length];
+			final int[] open = new int[sets.length];
+			final int[][] fieldOf = new int[n][];
+
+			for (int c = 0; c < sets.length; c++)
+				open[c] = bitCount(sets[c]);
+
+			for (int i = 0; i < n; i++) {
+				final int bit = order[i];
+				int count = 0;
+				final int[] candidates = new int[fieldStart[bit + 1] - fieldStart[bit]];
+
+				for (int j = fieldStart[bit]; j < fieldStart[bit + 1]; j++)
+					if ((sets[fieldConstraints[j]][bit >>> 6] & 1L << bit) != 0)
+						candidates[count++] = fieldConstraints[j];
+
+				fieldOf[i] = Arrays.copyOf(candidates, count);
+			}
+
+			final long[] bombsIn = new long[n];
+			final long[] solutions = new long[1];
+			final boolean[] assignment = new boolean[n];
+
+			search(0, order, fieldOf, placed, open, assignment, bombsIn, solutions);
+
+			if (solutions[0] == 0)
+				return false;
+
+			for (int i = 0; i < n; i++) {
+				final int bit = order[i];
+
+				if (bombsIn[i] == 0)
+					safe[bit >>> 6] |= 1L << bit;
+				else if (bombsIn[i] == solutions[0])
+					mines[bit >>> 6] |= 1L << bit;
+			}
+
+			return true;
+		}
+
+		private void search(final int i, final int[] order, final int[][] fieldOf, final int[] placed,
+				final int[] open, final boolean[] assignment, final long[] bombsIn, final long[] solutions) {
+			if (i == order.length) {
+				solutions[0]++;
+
+				for (int j = 0; j < order.length; j++)
+					if (assignment[j])
+						bombsIn[j]++;
+
+				return;
+			}
+
+			for (int bomb = 0; bomb < 2; bomb++) {
+				boolean valid = true;
+
+				for (int c : fieldOf[i]) {
+					open[c]--;
+					placed[c] += bomb;
+
+					valid &= placed[c] <= counts[c] & placed[c] + open[c] >= counts[c];
+				}
+
+				if (valid) {
+					assignment[i] = bomb == 1;
+					search(i + 1, order, fieldOf, placed, open, assignment, bombsIn, solutions);
+				}
+
+				for (int c : fieldOf[i]) {
+					open[c]++;
+					placed[c] -= bomb;
+				}
+			}
+		}
+
+		private static boolean isSubset(final long[] a, final long[] b) {
+			for (int w = 0; w < a.length; w++)
+				if ((a[w] & ~b[w]) != 0)
+					return false;
+
+			return true;
+		}
+
+		private static int firstBit(final long[] set) {
+			for (int w = 0; w < set.length; w++)
+				if (set[w] != 0)
+					return (w << 6) + Long.numberOfTrailingZeros(set[w]);
+
+			return -1;
+		}
+
+		private static int bitCount(final long[] set) {
+			int count = 0;
+
+			for (long word : set)
+				count += Long.bitCount(word);
+
+			return count;
+		}
+	}
+}
@@ -0,0 +1,346 @@
+package game.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import game.Game;
+import game.GameEngine;
+import game.data.FlatLevel;
+import game.data.FloodFill;
+import game.data.Level;
+
+/**
+ * <p>
+ * the compressed encoding of the fields of a binary savegame.
+ * </p>
+ *
+ * <p>
+ * the number of a field follows from the bombs around it, so it doesn't have
+ * to be stored. every field is reduced to one of six symbols:
+ * <ul>
+ * <li>{@code SAFE}, {@code REVEALED}, {@code FLAGGED} - a field without a
+ * bomb, its number is counted again when decoding</li>
+ * <li>{@code BOMB}, {@code FLAGGED_BOMB} - a field with a bomb</li>
+ * <li>{@code ESCAPE} followed by the value of the field - a field whose number
+ * doesn't match its neighbors, so any level survives the round trip</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * three symbols are packed into a byte ({@code 6^3 = 216}), every row is
+ * followed by the values of its escaped fields. the packed rows are compressed
+ * with deflate, which has a third of the input to look at and finds the
+ * patterns of whole groups of fields.
+ * </p>
+ *
+ * <p>
+ * the fields are streamed row by row, both directions only keep three rows in
+ * memory besides the level itself.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class CompressedLevelCodec {
+	private static final byte SAFE = 0;
+	private static final byte REVEALED = 1;
+	private static final byte FLAGGED = 2;
+	private static final byte BOMB = 3;
+	private static final byte FLAGGED_BOMB = 4;
+	private static final byte ESCAPE = 5;
+	private static final int SYMBOLS = 6;
+	private static final int PACKED = SYMBOLS * SYMBOLS * SYMBOLS;
+
+	/**
+	 * the deflate level, higher levels gain little on dense boards but write
+	 * several times slower.
+	 */
+	private static final int COMPRESSION_LEVEL = 4;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private CompressedLevelCodec() {
+	}
+
+	/**
+	 * encodes the fields of a level.
+	 *
+	 * @param level    the level
+	 * @param out      receives the compressed fields, it is not closed
+	 * @param crc      is updated with the values of the fields
+	 * @param progress receives the number of fields encoded
+	 * @throws IOException if the fields can't be written
+	 */
+	public static void encode(final Level level, final OutputStream out, final CRC32 crc, final Progress progress)
+			throws IOException {
+		final int sizeY = level.getSizeY();
+		final int sizeX = level.getSizeX();
+		final long total = (long) sizeY * sizeX;
+		final byte[][] values = new byte[3][sizeX];
+		final byte[][] bombs = new byte[3][sizeX];
+		final byte[] counts = new byte[sizeX];
+		final byte[] packed = new byte[(sizeX + 2) / 3 + sizeX];
+		final Deflater deflater = new Deflater(COMPRESSION_LEVEL);
+
+		try {
+			final DeflaterOutputStream compressed = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+
+			readRow(level, 0, values[0], bombs[0]);
+
+			for (int y = 0; y < sizeY; y++) {
+				final byte[] row = values[y % 3];
+
+				if (y + 1 < sizeY)
+					readRow(level, y + 1, values[(y + 1) % 3], bombs[(y + 1) % 3]);
+
+				countBombs(bombs, y, sizeY, counts);
+				crc.update(row);
+
+				int length = 0;
+
+				for (int x = 0; x < sizeX; x += 3) {
+					int group = 0;
+
+					for (int i = Math.min(2, sizeX - 1 - x); i >= 0; i--)
+						group = group * SYMBOLS + symbol((char) (row[x + i] & 0xFF), counts[x + i]);
+
+					packed[length++] = (byte) group;
+				}
+
+				for (int x = 0; x < sizeX; x++)
+					if (symbol((char) (row[x] & 0xFF), counts[x]) == ESCAPE)
+						packed[length++] = row[x];
+
+				compressed.write(packed, 0, length);
+				progress.step((long) (y + 1) * sizeX, total);
+			}
+
+			compressed.finish();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * decodes the fields of a level.
+	 *
+	 * @param in       the compressed fields, it is not closed
+	 * @param sizeY    the vertical size
+	 * @param sizeX    the horizontal size
+	 * @param crc      is updated with the values of the fields
+	 * @param progress receives the number of fields decoded
+	 * @return the level
+	 * @throws IOException if the fields can't be read or are corrupt
+	 */
+	public static Level decode(final InputStream in, final int sizeY, final int sizeX, final CRC32 crc,
+			final Progress progress) throws IOException {
+		final Level level;
+
+		try {
+			level = new FlatLevel(sizeY, sizeX, (char) 0);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid size: " + sizeY + "x" + sizeX, e);
+		}
+
+		decode(in, level, sizeY, sizeX, crc, progress);
+		return level;
+	}
+
+	/**
+	 * decodes the fields without keeping them, e.g. to verify the checksum.
+	 *
+	 * @param in       the compressed fields, it is not closed
+	 * @param sizeY    the vertical size
+	 * @param sizeX    the horizontal size
+	 * @param crc      is updated with the values of the fields
+	 * @param progress receives the number of fields decoded
+	 * @throws IOException if the fields can't be read or are corrupt
+	 */
+	public static void checksum(final InputStream in, final int sizeY, final int sizeX, final CRC32 crc,
+			final Progress progress) throws IOException {
+		if (sizeY <= 0 | sizeX <= 0)
+			throw new IOException("Invalid size: " + sizeY + "x" + sizeX);
+
+		decode(in, null, sizeY, sizeX, crc, progress);
+	}
+
+	/**
+	 * decodes the fields into a level, or only into the checksum if the level is
+	 * null.
+	 */
+	private static void decode(final InputStream in, final Level level, final int sizeY, final int sizeX,
+			final CRC32 crc, final Progress progress) throws IOException {
+		final long total = (long) sizeY * sizeX;
+		final byte[][] symbols = new byte[3][sizeX];
+		final byte[][] escaped = new byte[3][sizeX];
+		final byte[][] bombs = new byte[3][sizeX];
+		final byte[] counts = new byte[sizeX];
+		final byte[] row = new byte[sizeX];
+		final Inflater inflater = new Inflater();
+
+		try {
+			final SymbolReader reader = new SymbolReader(new InflaterInputStream(in, inflater, BUFFER_SIZE));
+
+			reader.readRow(symbols[0], escaped[0], bombs[0]);
+
+			for (int y = 0; y < sizeY; y++) {
+				final byte[] rowSymbols = symbols[y % 3];
+				final byte[] rowEscaped = escaped[y % 3];
+
+				if (y + 1 < sizeY)
+					reader.readRow(symbols[(y + 1) % 3], escaped[(y + 1) % 3], bombs[(y + 1) % 3]);
+
+				countBombs(bombs, y, sizeY, counts);
+
+				for (int x = 0; x < sizeX; x++) {
+					final char value = value(rowSymbols[x], rowEscaped[x], counts[x]);
+
+					row[x] = (byte) value;
+
+					if (level != null)
+						level.set(y, x, value);
+				}
+
+				crc.update(row);
+				progress.step((long) (y + 1) * sizeX, total);
+			}
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * reads the values of a row and marks its bombs.
+	 */
+	private static void readRow(final Level level, final int positionY, final byte[] values, final byte[] bombs) {
+		for (int x = 0; x < values.length; x++) {
+			final char value = level.get(positionY, x);
+
+			values[x] = (byte) value;
+			bombs[x] = (byte) (value == Game.BOMB | value == Game.FLAGGED_BOMB ? 1 : 0);
+		}
+	}
+
+	/**
+	 * counts the bombs around every field of a row, the rows above and below
+	 * are taken from the ring of three rows.
+	 */
+	private static void countBombs(final byte[][] bombs, final int positionY, final int sizeY, final byte[] counts) {
+		final byte[] above = positionY > 0 ? bombs[(positionY - 1) % 3] : null;
+		final byte[] current = bombs[positionY % 3];
+		final byte[] below = positionY + 1 < sizeY ? bombs[(positionY + 1) % 3] : null;
+		final int sizeX = current.length;
+
+		// the sum of every column first, then a sliding window over three
+		// columns
+		int left = 0;
+		int middle = column(above, current, below, 0);
+
+		for (int x = 0; x < sizeX; x++) {
+			final int right = x + 1 < sizeX ? column(above, current, below, x + 1) : 0;
+
+			counts[x] = (byte) (left + middle + right - current[x]);
+			left = middle;
+			middle = right;
+		}
+	}
+
+	private static int column(final byte[] above, final byte[] current, final byte[] below, final int positionX) {
+		return (above != null ? above[positionX] : 0) + current[positionX] + (below != null ? below[positionX] : 0);
+	}
+
+	/**
+	 * the symbol of a field, {@code ESCAPE} if its number doesn't match.
+	 */
+	private static byte symbol(final char value, final int count) {
+		if (value == Game.BOMB)
+			return BOMB;
+		else if (value == Game.FLAGGED_BOMB)
+			return FLAGGED_BOMB;
+		else if (value == Game.EMPTY + count)
+			return SAFE;
+		else if (value == Game.EMPTY + FloodFill.REVEALED_OFFSET + count)
+			return REVEALED;
+		else if (value == Game.EMPTY + GameEngine.FLAGGED_OFFSET + count)
+			return FLAGGED;
+		else
+			return ESCAPE;
+	}
+
+	/**
+	 * the value of a field, the reverse of {@code symbol}.
+	 */
+	private static char value(final byte symbol, final byte escaped, final int count) {
+		switch (symbol) {
+			case SAFE:
+				return (char) (Game.EMPTY + count);
+			case REVEALED:
+				return (char) (Game.EMPTY + FloodFill.REVEALED_OFFSET + count);
+			case FLAGGED:
+				return (char) (Game.EMPTY + GameEngine.FLAGGED_OFFSET + count);
+			case BOMB:
+				return Game.BOMB;
+			case FLAGGED_BOMB:
+				return Game.FLAGGED_BOMB;
+			default:
+				return (char) (escaped & 0xFF);
+		}
+	}
+
+	/**
+	 * reads the symbols of the decompressed stream through a buffer of its own,
+	 * reading byte by byte from the stream would be slow.
+	 */
+	private static final class SymbolReader {
+		private final InputStream in;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int position;
+		private int limit;
+
+		private SymbolReader(final InputStream in) {
+			this.in = in;
+		}
+
+		private void readRow(final byte[] symbols, final byte[] escaped, final byte[] bombs) throws IOException {
+			final int sizeX = symbols.length;
+
+			for (int x = 0; x < sizeX; x += 3) {
+				int group = next() & 0xFF;
+
+				if (group >= PACKED)
+					throw new IOException("Corrupt savegame, unknown symbols: " + group);
+
+				for (int i = 0; i < 3 & x + i < sizeX; i++) {
+					symbols[x + i] = (byte) (group % SYMBOLS);
+					group /= SYMBOLS;
+				}
+			}
+
+			for (int x = 0; x < sizeX; x++) {
+				final byte symbol = symbols[x];
+
+				escaped[x] = symbol == ESCAPE ? next() : 0;
+				bombs[x] = (byte) (symbol == BOMB | symbol == FLAGGED_BOMB ? 1 : 0);
+			}
+		}
+
+		private byte next() throws IOException {
+			if (position == limit) {
+				limit = in.read(buffer);
+				position = 0;
+
+				if (limit <= 0)
+					throw new EOFException("Corrupt savegame, the fields end too early");
+			}
+
+			return buffer[position++];
+		}
+	}
+}
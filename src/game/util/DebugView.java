@@ -1,5 +1,14 @@
 package game.util;
 
+import game.data.Level;
+
+/**
+ * prints a level to the diagnostic output, as a single event so that the rows
+ * stay together.
+ *
+ * @author Holger Dörner
+ *
+ */
 public final class DebugView {
 	private DebugView() {
 	}
@@ -8,12 +17,33 @@ public final class DebugView {
 		if (level == null)
 			throw new IllegalArgumentException("Argument can't be NULL!");
 		
+		final StringBuilder text = new StringBuilder();
+		
 		for (int i = 0; i < level.length; i++) {
+			text.append(System.lineSeparator());
+			
 			for (int j = 0; j < level[i].length; j++) {
-				System.out.print(level[i][j] + " ");
+				text.append(level[i][j]).append(' ');
 			}
+		}
+		
+		Diagnostics.info("level", text.toString());
+	}
+	
+	public static final void printLevel(Level level) {
+		if (level == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+		
+		final StringBuilder text = new StringBuilder();
+		
+		for (int i = 0; i < level.getSizeY(); i++) {
+			text.append(System.lineSeparator());
 			
-			System.out.println();
+			for (int j = 0; j < level.getSizeX(); j++) {
+				text.append(level.get(i, j)).append(' ');
+			}
 		}
+		
+		Diagnostics.info("level", text.toString());
 	}
 }
@@ -0,0 +1,308 @@
+package game.util;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * <p>
+ * the diagnostic output of the game, switched on and off at runtime.
+ * </p>
+ *
+ * <p>
+ * every event has a severity, a category, e.g. {@code "input"}, a message and
+ * optionally a throwable. only events at or above the threshold are kept,
+ * checking the threshold is a single volatile read. so a switched off event
+ * costs next to nothing, as long as its message is only built if
+ * {@code isEnabled(severity)} is true.
+ * </p>
+ *
+ * <p>
+ * the events are collected in a ring buffer and written by a thread of their
+ * own, the thread reporting an event never waits for the console. if the
+ * writer falls behind by more than {@code CAPACITY} events, the oldest events
+ * are dropped and counted.
+ * </p>
+ *
+ * <p>
+ * the threshold is taken from the system property
+ * {@code jminesweeper.diagnostics}, e.g. {@code -Djminesweeper.diagnostics=debug},
+ * it defaults to {@code INFO}.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class Diagnostics {
+	/**
+	 * the severity of an event, in ascending order. {@code OFF} as threshold
+	 * switches off all events.
+	 */
+	public enum Severity {
+		TRACE, DEBUG, INFO, WARN, ERROR, OFF
+	}
+
+	public static final String PROPERTY = "jminesweeper.diagnostics";
+	public static final int CAPACITY = 4096;
+
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+	private static volatile int threshold = initialThreshold().ordinal();
+
+	// the ring buffer, guarded by lock
+	private static final Object lock = new Object();
+	private static final Event[] events = new Event[CAPACITY];
+	private static int head;
+	private static int count;
+	private static long dropped;
+	private static boolean writing;
+	private static PrintStream output = System.out;
+	private static Thread writer;
+
+	static {
+		for (int i = 0; i < CAPACITY; i++)
+			events[i] = new Event();
+	}
+
+	private Diagnostics() {
+	}
+
+	/**
+	 * a slot of the ring buffer, reused for every event.
+	 */
+	private static final class Event {
+		private long millis;
+		private Severity severity;
+		private String thread;
+		private String category;
+		private String message;
+		private Throwable throwable;
+
+		private void copy(final Event other) {
+			millis = other.millis;
+			severity = other.severity;
+			thread = other.thread;
+			category = other.category;
+			message = other.message;
+			throwable = other.throwable;
+		}
+
+		private void clear() {
+			thread = null;
+			category = null;
+			message = null;
+			throwable = null;
+		}
+	}
+
+	private static Severity initialThreshold() {
+		final String value = System.getProperty(PROPERTY);
+
+		if (value != null) {
+			try {
+				return Severity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Unknown severity " + value + " for " + PROPERTY);
+			}
+		}
+
+		return Severity.INFO;
+	}
+
+	/**
+	 * checks if events of a severity are kept.
+	 *
+	 * @param severity the severity
+	 * @return true if the events are kept
+	 */
+	public static boolean isEnabled(final Severity severity) {
+		return severity.ordinal() >= threshold;
+	}
+
+	/**
+	 * returns the lowest severity that is kept.
+	 *
+	 * @return the threshold
+	 */
+	public static Severity getThreshold() {
+		return Severity.values()[threshold];
+	}
+
+	/**
+	 * changes the lowest severity that is kept.
+	 *
+	 * @param severity the new threshold, {@code OFF} switches off all events
+	 */
+	public static void setThreshold(final Severity severity) {
+		if (severity == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		threshold = severity.ordinal();
+	}
+
+	/**
+	 * changes the stream the events are written to, {@code System.out} by
+	 * default.
+	 *
+	 * @param stream the stream
+	 */
+	public static void setOutput(final PrintStream stream) {
+		if (stream == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		synchronized (lock) {
+			output = stream;
+		}
+	}
+
+	/**
+	 * returns the number of events dropped because the writer fell behind.
+	 *
+	 * @return the number of dropped events
+	 */
+	public static long getDropped() {
+		synchronized (lock) {
+			return dropped;
+		}
+	}
+
+	public static void debug(final String category, final String message) {
+		event(Severity.DEBUG, category, message, null);
+	}
+
+	public static void info(final String category, final String message) {
+		event(Severity.INFO, category, message, null);
+	}
+
+	public static void warn(final String category, final String message, final Throwable throwable) {
+		event(Severity.WARN, category, message, throwable);
+	}
+
+	public static void error(final String category, final String message, final Throwable throwable) {
+		event(Severity.ERROR, category, message, throwable);
+	}
+
+	/**
+	 * reports an event, it is dropped if its severity is below the threshold.
+	 *
+	 * @param severity  the severity
+	 * @param category  what the event is about, e.g. {@code "input"}
+	 * @param message   the message
+	 * @param throwable the cause of the event, may be null
+	 */
+	public static void event(final Severity severity, final String category, final String message,
+			final Throwable throwable) {
+		if (!isEnabled(severity) | severity == Severity.OFF)
+			return;
+
+		final long millis = System.currentTimeMillis();
+		final String thread = Thread.currentThread().getName();
+
+		synchronized (lock) {
+			if (count == CAPACITY) {
+				head = (head + 1) % CAPACITY;
+				count--;
+				dropped++;
+			}
+
+			final Event event = events[(head + count) % CAPACITY];
+
+			event.millis = millis;
+			event.severity = severity;
+			event.thread = thread;
+			event.category = category;
+			event.message = message;
+			event.throwable = throwable;
+			count++;
+
+			if (writer == null)
+				startWriter();
+
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * waits until all events reported so far are written.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public static void flush() throws InterruptedException {
+		synchronized (lock) {
+			while (count > 0 | writing)
+				lock.wait();
+		}
+	}
+
+	/**
+	 * starts the writer, the lock is held by the caller.
+	 */
+	private static void startWriter() {
+		writer = new Thread(Diagnostics::write, "Diagnostics-Writer");
+		writer.setDaemon(true);
+		writer.start();
+
+		// the events of the last moments shouldn't get lost
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				flush();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "Diagnostics-Flush"));
+	}
+
+	/**
+	 * takes the events out of the ring buffer and writes them, the events are
+	 * formatted without holding the lock.
+	 */
+	private static void write() {
+		final Event event = new Event();
+
+		while (true) {
+			final PrintStream stream;
+
+			synchronized (lock) {
+				writing = false;
+				lock.notifyAll();
+
+				while (count == 0) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+
+				event.copy(events[head]);
+				events[head].clear();
+				head = (head + 1) % CAPACITY;
+				count--;
+				writing = true;
+				stream = output;
+			}
+
+			try {
+				stream.println(format(event));
+
+				if (event.throwable != null)
+					event.throwable.printStackTrace(stream);
+			} catch (RuntimeException e) {
+				// a broken event doesn't stop the writer
+				System.err.println("Could not write diagnostic event: " + e);
+			}
+
+			event.clear();
+		}
+	}
+
+	private static String format(final Event event) {
+		final LocalTime time = LocalTime.ofInstant(Instant.ofEpochMilli(event.millis), ZoneId.systemDefault());
+
+		return TIME.format(time) + " " + event.severity + " [" + event.thread + "] " + event.category + ": "
+				+ event.message;
+	}
+}
@@ -0,0 +1,224 @@
+package game.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * the threads of the game's background work.
+ * </p>
+ *
+ * <p>
+ * every subsystem has its own {@code game.util.TaskQueue}, with a limit of
+ * running and of waiting tasks. the queues share one executor, which has a
+ * thread for every running task of every queue, so a busy subsystem can't
+ * starve another one. the time the tasks wait is recorded in
+ * {@code game.util.Metrics}.
+ * </p>
+ *
+ * <p>
+ * the executor is chosen by the system property {@code jminesweeper.executor},
+ * e.g. {@code -Djminesweeper.executor=virtual}:
+ * <ul>
+ * <li>{@code work_stealing}, the default: a fork/join pool</li>
+ * <li>{@code fixed}: a fixed pool of threads</li>
+ * <li>{@code virtual}: a virtual thread per task, on Java 21 or newer. older
+ * runtimes use the default</li>
+ * </ul>
+ * both pools have a thread per core, at least as many as all queues may run
+ * tasks at once. the executor is created when it is first used.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class GameExecutors {
+	/**
+	 * the kinds of executors.
+	 */
+	public enum Mode {
+		FIXED, WORK_STEALING, VIRTUAL
+	}
+
+	/**
+	 * the subsystems with their limits of running and waiting tasks.
+	 */
+	public enum Subsystem {
+		/** loading and saving savegames. */
+		IO(2, 16, Metrics.IO_QUEUE_WAIT),
+		/** generating levels. */
+		GENERATION(1, 8, Metrics.GENERATION_QUEUE_WAIT),
+		/** the moves of the player and the clock, one at a time in the order of the input. */
+		INPUT(1, 256, Metrics.INPUT_QUEUE_WAIT),
+		/** everything else, e.g. registering the metrics. */
+		BACKGROUND(1, 64, Metrics.BACKGROUND_QUEUE_WAIT);
+
+		private final int maxActive;
+		private final int capacity;
+		private final Histogram waits;
+
+		private Subsystem(final int maxActive, final int capacity, final Histogram waits) {
+			this.maxActive = maxActive;
+			this.capacity = capacity;
+			this.waits = waits;
+		}
+	}
+
+	public static final String PROPERTY = "jminesweeper.executor";
+
+	private static Mode mode;
+	private static ExecutorService executor;
+	private static final Map<Subsystem, TaskQueue> queues = new EnumMap<>(Subsystem.class);
+
+	private GameExecutors() {
+	}
+
+	/**
+	 * returns the queue of a subsystem.
+	 *
+	 * @param subsystem the subsystem
+	 * @return the queue
+	 */
+	public static synchronized TaskQueue get(final Subsystem subsystem) {
+		if (subsystem == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		TaskQueue queue = queues.get(subsystem);
+
+		if (queue == null) {
+			if (executor == null)
+				start();
+
+			queue = new TaskQueue(subsystem.name().toLowerCase(Locale.ROOT), executor, subsystem.maxActive,
+					subsystem.capacity, subsystem.waits);
+			queues.put(subsystem, queue);
+		}
+
+		return queue;
+	}
+
+	/**
+	 * returns the kind of executor in use, starts it if necessary.
+	 *
+	 * @return the mode
+	 */
+	public static synchronized Mode getMode() {
+		if (executor == null)
+			start();
+
+		return mode;
+	}
+
+	/**
+	 * returns the state of every queue.
+	 *
+	 * @return the statistics of the queues
+	 */
+	public static List<TaskQueue.Statistics> getStatistics() {
+		final List<TaskQueue.Statistics> statistics = new ArrayList<>();
+
+		for (Subsystem subsystem : Subsystem.values())
+			statistics.add(get(subsystem).getStatistics());
+
+		return statistics;
+	}
+
+	/**
+	 * <p>
+	 * creates an executor of the given kind.
+	 * </p>
+	 *
+	 * <p>
+	 * the threads of the pools are daemons, they don't keep the game from
+	 * exiting.
+	 * </p>
+	 *
+	 * @param mode    the kind of executor
+	 * @param threads the number of threads of a pool
+	 * @return the executor
+	 * @throws UnsupportedOperationException if the runtime has no virtual
+	 *                                       threads
+	 */
+	public static ExecutorService newExecutor(final Mode mode, final int threads) {
+		if (mode == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		if (threads <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		switch (mode) {
+			case FIXED:
+				final AtomicInteger number = new AtomicInteger();
+
+				return Executors.newFixedThreadPool(threads, runnable -> {
+					final Thread thread = new Thread(runnable, "Game-Pool-" + number.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+			case WORK_STEALING:
+				return new ForkJoinPool(threads, pool -> {
+					final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+					thread.setName("Game-Pool-" + thread.getPoolIndex());
+					thread.setDaemon(true);
+					return thread;
+				}, null, true);
+
+			default:
+				// compiled for java 11, so the factory of java 21 is looked up
+				try {
+					return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+					throw new UnsupportedOperationException("Virtual threads need Java 21 or newer", e);
+				}
+		}
+	}
+
+	/**
+	 * creates the executor, the lock is held by the caller.
+	 */
+	private static void start() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int active = 0;
+
+		for (Subsystem subsystem : Subsystem.values())
+			active += subsystem.maxActive;
+
+		threads = Math.max(threads, active);
+		mode = initialMode();
+
+		try {
+			executor = newExecutor(mode, threads);
+		} catch (UnsupportedOperationException e) {
+			Diagnostics.warn("executor", "Using " + Mode.WORK_STEALING + " instead of " + mode, e);
+			mode = Mode.WORK_STEALING;
+			executor = newExecutor(mode, threads);
+		}
+
+		if (Diagnostics.isEnabled(Diagnostics.Severity.DEBUG))
+			Diagnostics.debug("executor", "Started " + mode + " executor with " + threads + " threads");
+	}
+
+	private static Mode initialMode() {
+		final String value = System.getProperty(PROPERTY);
+
+		if (value != null) {
+			try {
+				return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				Diagnostics.warn("executor", "Unknown executor " + value + " for " + PROPERTY, null);
+			}
+		}
+
+		return Mode.WORK_STEALING;
+	}
+}
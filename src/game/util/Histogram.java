@@ -0,0 +1,243 @@
+package game.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * a histogram of non-negative values, e.g. durations in nanoseconds or sizes
+ * in bytes, recorded from any number of threads.
+ * </p>
+ *
+ * <p>
+ * recording is lock-free and doesn't allocate, it increments a few atomic
+ * counters. so it can be used on the paths it measures without distorting
+ * them.
+ * </p>
+ *
+ * <p>
+ * the buckets are log-linear: every power of two is split into eight buckets
+ * of equal width, values below eight are counted exactly. a percentile is
+ * reported as the upper end of its bucket, at most 12.5% above the exact
+ * value and never above the maximum.
+ * </p>
+ *
+ * <p>
+ * a snapshot reads the counters one after the other, a value recorded at the
+ * same time may be missing from some of them.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class Histogram {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (63 - SUB_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+	private final String unit;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * creates an empty histogram.
+	 *
+	 * @param unit the unit of the values, e.g. {@code "ns"}
+	 */
+	public Histogram(final String unit) {
+		if (unit == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		this.unit = unit;
+	}
+
+	/**
+	 * returns the unit of the values.
+	 *
+	 * @return the unit
+	 */
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * records a value, negative values are recorded as 0.
+	 *
+	 * @param value the value
+	 */
+	public void record(final long value) {
+		final long v = Math.max(0, value);
+
+		buckets.incrementAndGet(bucket(v));
+		count.incrementAndGet();
+		sum.addAndGet(v);
+
+		long current = max.get();
+
+		while (v > current && !max.compareAndSet(current, v))
+			current = max.get();
+	}
+
+	/**
+	 * records the time elapsed since a start, both from
+	 * {@code System.nanoTime()}.
+	 *
+	 * @param startNanos the start
+	 */
+	public void recordSince(final long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * returns the number of recorded values.
+	 *
+	 * @return the number of values
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * forgets all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * takes a snapshot of the recorded values.
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot() {
+		final long[] counts = new long[BUCKETS];
+		long total = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+
+		final long highest = max.get();
+
+		return new Snapshot(unit, total, total == 0 ? 0 : (double) sum.get() / total,
+				percentile(counts, total, highest, 0.5), percentile(counts, total, highest, 0.9),
+				percentile(counts, total, highest, 0.99), highest);
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	/**
+	 * the bucket of a value.
+	 */
+	private static int bucket(final long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * the lowest value of a bucket.
+	 */
+	private static long lowest(final int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		final int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		final long sub = bucket % SUB_BUCKETS;
+
+		return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+	private static long percentile(final long[] counts, final long total, final long highest,
+			final double fraction) {
+		if (total == 0)
+			return 0;
+
+		final long rank = Math.max(1, (long) Math.ceil(total * fraction));
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+
+			if (seen >= rank)
+				return i + 1 < counts.length ? Math.min(highest, lowest(i + 1) - 1) : highest;
+		}
+
+		return highest;
+	}
+
+	/**
+	 * the values of a histogram at one point in time.
+	 *
+	 * @author Holger Dörner
+	 */
+	public static final class Snapshot {
+		private final String unit;
+		private final long count;
+		private final double mean;
+		private final long p50;
+		private final long p90;
+		private final long p99;
+		private final long max;
+
+		private Snapshot(final String unit, final long count, final double mean, final long p50, final long p90,
+				final long p99, final long max) {
+			this.unit = unit;
+			this.count = count;
+			this.mean = mean;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		public String getUnit() {
+			return unit;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP90() {
+			return p90;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count %d, mean %.0f %s, p50 %d %s, p90 %d %s, p99 %d %s, max %d %s", count, mean,
+					unit, p50, unit, p90, unit, p99, unit, max, unit);
+		}
+	}
+}
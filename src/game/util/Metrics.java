@@ -0,0 +1,211 @@
+package game.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * the metrics of the game, one {@code game.util.Histogram} per measured
+ * operation. the histograms are recorded by the code they measure, read them
+ * with {@code snapshot()} or through JMX once {@code register()} was called.
+ * </p>
+ *
+ * <p>
+ * durations are recorded in nanoseconds.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class Metrics {
+	public static final String OBJECT_NAME = "jminesweeper:type=Metrics";
+
+	/** generating a new level, including placing the bombs. */
+	public static final Histogram BOARD_GENERATION = new Histogram("ns");
+	/** calculating the numbers of a new level. */
+	public static final Histogram CALCULATE_FIELDS = new Histogram("ns");
+	/** a reveal by the player, including the flood fill and the listeners. */
+	public static final Histogram REVEAL = new Histogram("ns");
+	/** the number of fields uncovered by a reveal. */
+	public static final Histogram REVEALED_FIELDS = new Histogram("fields");
+	/** flagging or unflagging a field by the player. */
+	public static final Histogram MARK = new Histogram("ns");
+	public static final Histogram SAVE = new Histogram("ns");
+	public static final Histogram SAVE_BYTES = new Histogram("bytes");
+	public static final Histogram LOAD = new Histogram("ns");
+	public static final Histogram LOAD_BYTES = new Histogram("bytes");
+	/** applying the changes of a frame on the event dispatch thread. */
+	public static final Histogram RENDER_FLUSH = new Histogram("ns");
+	/** the time from the first change of a frame to the end of its flush. */
+	public static final Histogram RENDER_LATENCY = new Histogram("ns");
+	/** the time tasks wait in the queues of {@code game.util.GameExecutors}. */
+	public static final Histogram IO_QUEUE_WAIT = new Histogram("ns");
+	public static final Histogram GENERATION_QUEUE_WAIT = new Histogram("ns");
+	public static final Histogram INPUT_QUEUE_WAIT = new Histogram("ns");
+	public static final Histogram BACKGROUND_QUEUE_WAIT = new Histogram("ns");
+
+	private static final Map<String, Histogram> HISTOGRAMS;
+
+	static {
+		final Map<String, Histogram> histograms = new LinkedHashMap<>();
+
+		histograms.put("BoardGeneration", BOARD_GENERATION);
+		histograms.put("CalculateFields", CALCULATE_FIELDS);
+		histograms.put("Reveal", REVEAL);
+		histograms.put("RevealedFields", REVEALED_FIELDS);
+		histograms.put("Mark", MARK);
+		histograms.put("Save", SAVE);
+		histograms.put("SaveBytes", SAVE_BYTES);
+		histograms.put("Load", LOAD);
+		histograms.put("LoadBytes", LOAD_BYTES);
+		histograms.put("RenderFlush", RENDER_FLUSH);
+		histograms.put("RenderLatency", RENDER_LATENCY);
+		histograms.put("IoQueueWait", IO_QUEUE_WAIT);
+		histograms.put("GenerationQueueWait", GENERATION_QUEUE_WAIT);
+		histograms.put("InputQueueWait", INPUT_QUEUE_WAIT);
+		histograms.put("BackgroundQueueWait", BACKGROUND_QUEUE_WAIT);
+
+		HISTOGRAMS = Collections.unmodifiableMap(histograms);
+	}
+
+	private static boolean registered;
+
+	private Metrics() {
+	}
+
+	/**
+	 * takes a snapshot of every histogram.
+	 *
+	 * @return the snapshots by the names of their attributes, e.g.
+	 *         {@code "Reveal"}
+	 */
+	public static Map<String, Histogram.Snapshot> snapshot() {
+		final Map<String, Histogram.Snapshot> snapshots = new LinkedHashMap<>();
+
+		for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet())
+			snapshots.put(entry.getKey(), entry.getValue().snapshot());
+
+		return snapshots;
+	}
+
+	/**
+	 * forgets the values of every histogram.
+	 */
+	public static void reset() {
+		for (Histogram histogram : HISTOGRAMS.values())
+			histogram.reset();
+	}
+
+	/**
+	 * registers the metrics with the platform MBean server, only the first
+	 * call registers. loads the management classes, so it is better called
+	 * after the start.
+	 *
+	 * @throws JMException if the metrics can't be registered
+	 */
+	public static synchronized void register() throws JMException {
+		if (registered)
+			return;
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+		registered = true;
+	}
+
+	/**
+	 * the JMX view of the histograms.
+	 */
+	private static final class Bean implements MetricsMXBean {
+		@Override
+		public Histogram.Snapshot getBoardGeneration() {
+			return BOARD_GENERATION.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getCalculateFields() {
+			return CALCULATE_FIELDS.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getReveal() {
+			return REVEAL.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getRevealedFields() {
+			return REVEALED_FIELDS.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getMark() {
+			return MARK.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getSave() {
+			return SAVE.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getSaveBytes() {
+			return SAVE_BYTES.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getLoad() {
+			return LOAD.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getLoadBytes() {
+			return LOAD_BYTES.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getRenderFlush() {
+			return RENDER_FLUSH.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getRenderLatency() {
+			return RENDER_LATENCY.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getIoQueueWait() {
+			return IO_QUEUE_WAIT.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getGenerationQueueWait() {
+			return GENERATION_QUEUE_WAIT.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getInputQueueWait() {
+			return INPUT_QUEUE_WAIT.snapshot();
+		}
+
+		@Override
+		public Histogram.Snapshot getBackgroundQueueWait() {
+			return BACKGROUND_QUEUE_WAIT.snapshot();
+		}
+
+		@Override
+		public List<TaskQueue.Statistics> getTaskQueues() {
+			return GameExecutors.getStatistics();
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
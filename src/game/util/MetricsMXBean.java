@@ -0,0 +1,55 @@
+package game.util;
+
+import java.util.List;
+
+/**
+ * the management interface of the metrics of the game, registered as
+ * {@code jminesweeper:type=Metrics}. every attribute but {@code TaskQueues}
+ * is a snapshot of a {@code game.util.Histogram}.
+ *
+ * @author Holger Dörner
+ *
+ */
+public interface MetricsMXBean {
+	public Histogram.Snapshot getBoardGeneration();
+
+	public Histogram.Snapshot getCalculateFields();
+
+	public Histogram.Snapshot getReveal();
+
+	public Histogram.Snapshot getRevealedFields();
+
+	public Histogram.Snapshot getMark();
+
+	public Histogram.Snapshot getSave();
+
+	public Histogram.Snapshot getSaveBytes();
+
+	public Histogram.Snapshot getLoad();
+
+	public Histogram.Snapshot getLoadBytes();
+
+	public Histogram.Snapshot getRenderFlush();
+
+	public Histogram.Snapshot getRenderLatency();
+
+	public Histogram.Snapshot getIoQueueWait();
+
+	public Histogram.Snapshot getGenerationQueueWait();
+
+	public Histogram.Snapshot getInputQueueWait();
+
+	public Histogram.Snapshot getBackgroundQueueWait();
+
+	/**
+	 * the saturation of the queues of {@code game.util.GameExecutors}.
+	 *
+	 * @return the statistics of every queue
+	 */
+	public List<TaskQueue.Statistics> getTaskQueues();
+
+	/**
+	 * forgets all recorded values.
+	 */
+	public void reset();
+}
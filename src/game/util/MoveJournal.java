@@ -0,0 +1,530 @@
+package game.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import game.GameEngine;
+import game.GameListener;
+
+/**
+ * <p>
+ * an append-only journal of the moves made since the last snapshot of a game.
+ * </p>
+ *
+ * <p>
+ * the journal lives next to the snapshot (the savegame) in a file with the
+ * extension {@code .journal}. instead of rewriting the whole level after every
+ * move only the moves are appended, so saving costs only what was played since
+ * the last snapshot. loading a game means loading the snapshot and replaying
+ * the journal.
+ * </p>
+ *
+ * <p>
+ * moves are collected in memory and written by a task of the given executor
+ * every {@code flushInterval} milliseconds, followed by a {@code force}. if the
+ * process is killed, the game can be recovered up to the last flushed move.
+ * once the journal holds {@code compactEvery} moves, a new snapshot is
+ * written and the journal is emptied. the engine is only locked while the
+ * snapshot is taken, the game goes on while it is written.
+ * </p>
+ *
+ * <p>
+ * a journal can also be held in memory, see {@code hold}: it collects the
+ * moves made while its snapshot is still being written and only creates the
+ * file once the snapshot is in place. until then nothing is flushed or
+ * compacted, so the file never pairs a snapshot with moves of another one.
+ * </p>
+ *
+ * <p>
+ * file format (big endian): the magic 'JMJL' followed by records of
+ * {@code RECORD_SIZE} bytes:
+ *
+ * <pre>
+ *  0  byte  move, see GameEngine.MOVE_*
+ *  1  int   y
+ *  5  int   x
+ *  9  long  time of the move (System.currentTimeMillis())
+ * 17  int   CRC32 of bytes 0-16
+ * </pre>
+ *
+ * a record which is incomplete or has a wrong checksum ends the journal, it
+ * was torn by a crash. the records behind it are dropped when the journal is
+ * continued, so new moves are never appended behind a torn record.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class MoveJournal implements GameListener, Closeable {
+	public static final int MAGIC = 'J' << 24 | 'M' << 16 | 'J' << 8 | 'L';
+	public static final int RECORD_SIZE = 21;
+
+	/**
+	 * receives the moves of a journal when it is replayed.
+	 */
+	@FunctionalInterface
+	public interface MoveHandler {
+		/**
+		 * applies a move.
+		 *
+		 * @param move      one of {@code GameEngine.MOVE_*}
+		 * @param positionY the vertical position
+		 * @param positionX the horizontal position
+		 * @param time      the time of the move in milliseconds
+		 */
+		public void apply(int move, int positionY, int positionX, long time);
+	}
+
+	private final Path snapshotPath;
+	private final GameEngine engine;
+	private final Supplier<SaveGame> snapshot;
+	private final Executor executor;
+	private final long flushInterval;
+	private final long compactEvery;
+	private final CRC32 crc = new CRC32();
+
+	// null while the journal is held in memory
+	private FileChannel channel;
+	private ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * 64);
+	private long records;
+	private boolean compacting;
+	private boolean closed;
+
+	private MoveJournal(final Path snapshotPath, final GameEngine engine, final Supplier<SaveGame> snapshot,
+			final Executor executor, final long flushInterval, final long compactEvery, final boolean held)
+			throws IOException {
+		this.snapshotPath = snapshotPath;
+		this.engine = engine;
+		this.snapshot = snapshot;
+		this.executor = executor;
+		this.flushInterval = flushInterval;
+		this.compactEvery = compactEvery;
+
+		if (!held) {
+			this.channel = openJournal(journalPath(snapshotPath), false);
+			this.records = (channel.size() - 4) / RECORD_SIZE;
+		}
+	}
+
+	/**
+	 * starts journaling the moves of an engine. the journal is appended to the
+	 * existing journal of the snapshot, if there is one.
+	 *
+	 * @param snapshotPath  the savegame the journal belongs to
+	 * @param engine        the engine whose moves are journaled
+	 * @param snapshot      creates a snapshot of the game with a copy of the
+	 *                      level, called while the engine is locked
+	 * @param executor      flushes and compacts the journal
+	 * @param flushInterval the time between two flushes in milliseconds
+	 * @param compactEvery  the number of moves after which a new snapshot is
+	 *                      written
+	 * @return the journal, already registered as listener of the engine
+	 * @throws IOException if the journal can't be opened
+	 */
+	public static MoveJournal start(final Path snapshotPath, final GameEngine engine,
+			final Supplier<SaveGame> snapshot, final Executor executor, final long flushInterval,
+			final long compactEvery) throws IOException {
+		return start(snapshotPath, engine, snapshot, executor, flushInterval, compactEvery, false);
+	}
+
+	/**
+	 * starts journaling the moves of an engine in memory, e.g. while its
+	 * snapshot is written in the background. the journal file is only created,
+	 * replacing an existing one, when {@code release} is called.
+	 *
+	 * @param snapshotPath  the savegame the journal belongs to
+	 * @param engine        the engine whose moves are journaled
+	 * @param snapshot      creates a snapshot of the game with a copy of the
+	 *                      level, called while the engine is locked
+	 * @param executor      flushes and compacts the journal
+	 * @param flushInterval the time between two flushes in milliseconds
+	 * @param compactEvery  the number of moves after which a new snapshot is
+	 *                      written
+	 * @return the journal, already registered as listener of the engine
+	 */
+	public static MoveJournal hold(final Path snapshotPath, final GameEngine engine,
+			final Supplier<SaveGame> snapshot, final Executor executor, final long flushInterval,
+			final long compactEvery) {
+		try {
+			return start(snapshotPath, engine, snapshot, executor, flushInterval, compactEvery, true);
+		} catch (IOException e) {
+			// a held journal doesn't touch the file
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MoveJournal start(final Path snapshotPath, final GameEngine engine,
+			final Supplier<SaveGame> snapshot, final Executor executor, final long flushInterval,
+			final long compactEvery, final boolean held) throws IOException {
+		if (snapshotPath == null || engine == null || snapshot == null || executor == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		if (flushInterval <= 0 | compactEvery <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		final MoveJournal journal = new MoveJournal(snapshotPath, engine, snapshot, executor, flushInterval,
+				compactEvery, held);
+		engine.addListener(journal);
+		journal.schedule();
+		return journal;
+	}
+
+	/**
+	 * returns the path of the journal belonging to a savegame.
+	 *
+	 * @param snapshotPath the savegame
+	 * @return the path of the journal
+	 */
+	public static Path journalPath(final Path snapshotPath) {
+		return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+	}
+
+	/**
+	 * deletes the journal of a savegame, e.g. because a new snapshot was saved.
+	 *
+	 * @param snapshotPath the savegame
+	 * @throws IOException if the journal can't be deleted
+	 */
+	public static void delete(final Path snapshotPath) throws IOException {
+		Files.deleteIfExists(journalPath(snapshotPath));
+	}
+
+	/**
+	 * replays the journal of a savegame, stopping at the first torn record.
+	 *
+	 * @param snapshotPath the savegame
+	 * @param handler      receives the moves
+	 * @return the number of replayed moves, 0 if there is no journal
+	 * @throws IOException if the journal can't be read or is not a journal
+	 */
+	public static long replay(final Path snapshotPath, final MoveHandler handler) throws IOException {
+		if (handler == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		final Path journalPath = journalPath(snapshotPath);
+
+		if (!Files.exists(journalPath))
+			return 0;
+
+		try (FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+			return read(in, journalPath, handler);
+		}
+	}
+
+	/**
+	 * reads a journal from its start up to the first torn record.
+	 *
+	 * @param handler receives the moves, or null to only count them
+	 * @return the number of complete records
+	 */
+	private static long read(final FileChannel in, final Path journalPath, final MoveHandler handler)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+		final CRC32 check = new CRC32();
+		long replayed = 0;
+
+		in.position(0);
+
+		while (buffer.hasRemaining() && in.read(buffer) >= 0)
+			;
+
+		buffer.flip();
+
+		if (buffer.remaining() < 4 || buffer.getInt() != MAGIC)
+			throw new IOException("Not a move journal: " + journalPath);
+
+		while (true) {
+			if (buffer.remaining() < RECORD_SIZE) {
+				buffer.compact();
+
+				while (buffer.hasRemaining() && in.read(buffer) >= 0)
+					;
+
+				buffer.flip();
+
+				if (buffer.remaining() < RECORD_SIZE)
+					return replayed;
+			}
+
+			check.reset();
+			check.update(buffer.array(), buffer.arrayOffset() + buffer.position(), RECORD_SIZE - 4);
+
+			final int move = buffer.get();
+			final int positionY = buffer.getInt();
+			final int positionX = buffer.getInt();
+			final long time = buffer.getLong();
+
+			if (buffer.getInt() != (int) check.getValue())
+				return replayed;
+
+			if (handler != null)
+				handler.apply(move, positionY, positionX, time);
+
+			replayed++;
+		}
+	}
+
+	/**
+	 * replays the journal of a savegame into an engine.
+	 *
+	 * @param snapshotPath the savegame
+	 * @param engine       the engine, the snapshot has to be loaded already
+	 * @return the number of replayed moves
+	 * @throws IOException if the journal can't be read
+	 */
+	public static long replay(final Path snapshotPath, final GameEngine engine) throws IOException {
+		return replay(snapshotPath, (move, positionY, positionX, time) -> {
+			if (move == GameEngine.MOVE_REVEAL)
+				engine.reveal(positionY, positionX);
+			else if ((move == GameEngine.MOVE_FLAG) != engine.isFlagged(positionY, positionX))
+				engine.toggleFlag(positionY, positionX);
+		});
+	}
+
+	/**
+	 * creates the file of a held journal, replacing an existing one, and writes
+	 * the moves collected so far. call it once the snapshot is in place.
+	 * nothing happens if the journal isn't held or is closed.
+	 *
+	 * @throws IOException if the journal can't be written
+	 */
+	public synchronized void release() throws IOException {
+		if (channel != null | closed)
+			return;
+
+		channel = openJournal(journalPath(snapshotPath), true);
+		flush();
+	}
+
+	/**
+	 * checks if the journal is held in memory.
+	 *
+	 * @return true until {@code release} is called
+	 */
+	public synchronized boolean isHeld() {
+		return channel == null;
+	}
+
+	/**
+	 * returns the number of moves in the journal since the last snapshot.
+	 *
+	 * @return the number of moves
+	 */
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	@Override
+	public synchronized void moveMade(final GameEngine engine, final int move, final int positionY,
+			final int positionX) {
+		if (pending.remaining() < RECORD_SIZE) {
+			final ByteBuffer bigger = ByteBuffer.allocate(pending.capacity() * 2);
+			pending.flip();
+			bigger.put(pending);
+			pending = bigger;
+		}
+
+		final int start = pending.position();
+
+		pending.put((byte) move).putInt(positionY).putInt(positionX).putLong(System.currentTimeMillis());
+
+		crc.reset();
+		crc.update(pending.array(), start, RECORD_SIZE - 4);
+		pending.putInt((int) crc.getValue());
+
+		records++;
+	}
+
+	/**
+	 * writes all pending moves to disc, a held journal keeps them in memory.
+	 *
+	 * @throws IOException if the journal can't be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (pending.position() == 0 | channel == null)
+			return;
+
+		pending.flip();
+
+		while (pending.hasRemaining())
+			channel.write(pending);
+
+		pending.clear();
+		channel.force(false);
+	}
+
+	/**
+	 * <p>
+	 * writes a new snapshot and empties the journal.
+	 * </p>
+	 *
+	 * <p>
+	 * the engine is only locked while the snapshot is taken. the moves made
+	 * while it is written are still appended to the old journal, and they
+	 * start the new journal once the snapshot is in place. a crash before the
+	 * old journal is replaced replays it onto the new snapshot: its moves up to
+	 * the snapshot change nothing there, the fields they revealed are already
+	 * revealed and the last flag of every field is the one in the snapshot.
+	 * </p>
+	 *
+	 * @throws IOException if the snapshot or the journal can't be written
+	 */
+	public void compact() throws IOException {
+		final SaveGame copy;
+		final long taken;
+		final Lock exclusive = engine.getExclusiveLock();
+		exclusive.lock();
+
+		try {
+			synchronized (this) {
+				if (channel == null || !channel.isOpen() || compacting)
+					return;
+
+				flush();
+				copy = snapshot.get();
+				taken = channel.size();
+				compacting = true;
+			}
+		} finally {
+			exclusive.unlock();
+		}
+
+		try {
+			final Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+
+			// the new snapshot keeps the format of the old one
+			if (SaveGameUtility.isCompressed(snapshotPath))
+				SaveGameUtility.saveCompressed(temp, copy);
+			else
+				SaveGameUtility.saveBinary(temp, copy);
+
+			synchronized (this) {
+				if (!channel.isOpen()) {
+					Files.deleteIfExists(temp);
+					return;
+				}
+
+				flush();
+
+				final Path journalPath = journalPath(snapshotPath);
+				final Path journalTemp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+
+				// the moves made since the snapshot was taken
+				try (FileChannel moves = openJournal(journalTemp, true)) {
+					channel.transferTo(taken, channel.size() - taken, moves);
+					moves.force(false);
+				}
+
+				Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				Files.move(journalTemp, journalPath, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+
+				channel.close();
+				channel = openJournal(journalPath, false);
+				records = (channel.size() - 4) / RECORD_SIZE;
+			}
+		} finally {
+			synchronized (this) {
+				compacting = false;
+			}
+		}
+	}
+
+	/**
+	 * flushes the pending moves and stops journaling. the moves of a held
+	 * journal are dropped.
+	 */
+	@Override
+	public void close() throws IOException {
+		engine.removeListener(this);
+
+		synchronized (this) {
+			closed = true;
+
+			if (channel == null)
+				return;
+
+			flush();
+			channel.close();
+		}
+	}
+
+	/**
+	 * runs the next flush after {@code flushInterval} milliseconds, until the
+	 * journal is closed.
+	 */
+	private void schedule() {
+		CompletableFuture.delayedExecutor(flushInterval, TimeUnit.MILLISECONDS, task -> {
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// the executor is busy, the moves stay pending until the next run
+				schedule();
+			}
+		}).execute(this::flushAndCompact);
+	}
+
+	/**
+	 * the task of the executor.
+	 */
+	private void flushAndCompact() {
+		try {
+			final boolean compact;
+
+			synchronized (this) {
+				if (closed)
+					return;
+
+				flush();
+				compact = records >= compactEvery & channel != null;
+			}
+
+			if (compact)
+				compact();
+		} catch (IOException e) {
+			// the next run will try again, the moves are still pending
+			Diagnostics.warn("journal", "Could not write the journal of " + snapshotPath, e);
+		}
+
+		schedule();
+	}
+
+	private static FileChannel openJournal(final Path journalPath, final boolean truncate) throws IOException {
+		final FileChannel journal = truncate
+				? FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+				: FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE);
+
+		try {
+			if (journal.size() < 4) {
+				journal.truncate(0);
+				journal.write(ByteBuffer.allocate(4).putInt(0, MAGIC));
+				journal.force(false);
+			} else {
+				// drop a torn record and everything behind it, a replay stops
+				// there. new moves are appended behind the last complete record
+				journal.truncate(4 + read(journal, journalPath, null) * RECORD_SIZE);
+			}
+
+			journal.position(journal.size());
+			return journal;
+		} catch (IOException e) {
+			journal.close();
+			throw e;
+		}
+	}
+}
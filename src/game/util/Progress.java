@@ -0,0 +1,58 @@
+package game.util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * <p>
+ * receives the progress of a long running task, e.g. loading or saving a big
+ * savegame.
+ * </p>
+ *
+ * <p>
+ * the task calls {@code update} from its own thread every now and then and
+ * stops with a {@code java.util.concurrent.CancellationException} as soon as
+ * {@code isCancelled} returns true.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+@FunctionalInterface
+public interface Progress {
+	/**
+	 * ignores the progress, the task can't be cancelled.
+	 */
+	public static final Progress NONE = (done, total) -> {
+	};
+
+	/**
+	 * reports the progress of the task.
+	 *
+	 * @param done  the amount of work done, e.g. bytes
+	 * @param total the total amount of work
+	 */
+	public void update(long done, long total);
+
+	/**
+	 * checks if the task should stop.
+	 *
+	 * @return true if the task was cancelled
+	 */
+	public default boolean isCancelled() {
+		return false;
+	}
+
+	/**
+	 * reports the progress and stops the task if it was cancelled.
+	 *
+	 * @param done  the amount of work done
+	 * @param total the total amount of work
+	 * @throws CancellationException if the task was cancelled
+	 */
+	public default void step(final long done, final long total) {
+		if (isCancelled())
+			throw new CancellationException();
+
+		update(done, total);
+	}
+}
@@ -0,0 +1,88 @@
+package game.util;
+
+import game.data.Level;
+
+/**
+ * <p>
+ * a loaded savegame: the level and the state stored along with it.
+ * </p>
+ *
+ * <p>
+ * the plain text format only stores the level, for such savegames the counters
+ * are {@code UNKNOWN} and have to be determined by scanning the level.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class SaveGame {
+	/**
+	 * marks a counter which is not stored in the savegame.
+	 */
+	public static final long UNKNOWN = -1;
+
+	private final Level level;
+	private final long numBombs;
+	private final long bombCount;
+	private final long safeFields;
+	private final long elapsedMillis;
+
+	/**
+	 * creates a new savegame.
+	 *
+	 * @param level         the level
+	 * @param numBombs      the number of bombs in the level
+	 * @param bombCount     the number of bombs which are not flagged
+	 * @param safeFields    the number of safe fields which are not revealed
+	 * @param elapsedMillis the playing time in milliseconds
+	 */
+	public SaveGame(final Level level, final long numBombs, final long bombCount, final long safeFields,
+			final long elapsedMillis) {
+		if (level == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		this.level = level;
+		this.numBombs = numBombs;
+		this.bombCount = bombCount;
+		this.safeFields = safeFields;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * creates a savegame of which only the level is known.
+	 *
+	 * @param level the level
+	 */
+	public SaveGame(final Level level) {
+		this(level, UNKNOWN, UNKNOWN, UNKNOWN, 0);
+	}
+
+	public Level getLevel() {
+		return level;
+	}
+
+	public long getNumBombs() {
+		return numBombs;
+	}
+
+	public long getBombCount() {
+		return bombCount;
+	}
+
+	public long getSafeFields() {
+		return safeFields;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * checks if the counters are stored in the savegame.
+	 *
+	 * @return true if the counters are known
+	 */
+	public boolean hasCounters() {
+		return numBombs != UNKNOWN & bombCount != UNKNOWN & safeFields != UNKNOWN;
+	}
+}
@@ -0,0 +1,162 @@
+package game.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ * loads and saves savegames in the background.
+ * </p>
+ *
+ * <p>
+ * every task runs on the given executor and reports its progress to a
+ * {@code game.util.Progress}. a task stops as soon as its future or the
+ * progress is cancelled, the future then completes with a
+ * {@code java.util.concurrent.CancellationException}. failures complete the
+ * future exceptionally with the {@code java.io.IOException}.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class SaveGameTasks {
+	/**
+	 * a piece of I/O to run in the background.
+	 */
+	@FunctionalInterface
+	private interface Task<T> {
+		public T run(Progress progress) throws IOException;
+	}
+
+	private SaveGameTasks() {
+	}
+
+	/**
+	 * loads a savegame in either format.
+	 *
+	 * @param filePath the file
+	 * @param verify   true if the checksum of a binary savegame should be
+	 *                 verified, this reads the whole file
+	 * @param executor runs the task
+	 * @param progress receives the number of bytes read
+	 * @return the future savegame
+	 */
+	public static CompletableFuture<SaveGame> load(final Path filePath, final boolean verify, final Executor executor,
+			final Progress progress) {
+		return submit(executor, progress, cancellable -> {
+			final long start = System.nanoTime();
+			final SaveGame saveGame;
+
+			// a compressed savegame is verified while it is decoded
+			if (!verify || !SaveGameUtility.isBinary(filePath) || SaveGameUtility.isCompressed(filePath)) {
+				saveGame = SaveGameUtility.readSaveGame(filePath, cancellable);
+			} else {
+				// an uncompressed binary savegame is mapped at once, only the
+				// verification takes time.
+				saveGame = SaveGameUtility.readSaveGame(filePath, Progress.NONE);
+
+				if (!SaveGameUtility.verify(filePath, cancellable))
+					throw new IOException("Checksum of savegame does not match: " + filePath);
+			}
+
+			Metrics.LOAD.recordSince(start);
+			Metrics.LOAD_BYTES.record(Files.size(filePath));
+			return saveGame;
+		});
+	}
+
+	/**
+	 * saves a savegame in the uncompressed binary format.
+	 *
+	 * @param filePath the file
+	 * @param saveGame the savegame
+	 * @param executor runs the task
+	 * @param progress receives the number of bytes written
+	 * @return a future which completes when the file is written
+	 * @see #save(Path, SaveGame, boolean, Executor, Progress)
+	 */
+	public static CompletableFuture<Void> save(final Path filePath, final SaveGame saveGame, final Executor executor,
+			final Progress progress) {
+		return save(filePath, saveGame, false, executor, progress);
+	}
+
+	/**
+	 * saves a savegame in the binary format. the savegame is written to a
+	 * temporary file which replaces the file when complete, so a failed or
+	 * cancelled save leaves an existing file untouched.
+	 *
+	 * the level of the savegame must not change while it is saved, save a copy
+	 * of a running game.
+	 *
+	 * @param filePath   the file
+	 * @param saveGame   the savegame
+	 * @param compressed true for the compressed format
+	 * @param executor   runs the task
+	 * @param progress   receives the progress
+	 * @return a future which completes when the file is written
+	 */
+	public static CompletableFuture<Void> save(final Path filePath, final SaveGame saveGame, final boolean compressed,
+			final Executor executor, final Progress progress) {
+		return submit(executor, progress, cancellable -> {
+			final Path temp = filePath.resolveSibling(filePath.getFileName() + ".part");
+			final long start = System.nanoTime();
+
+			try {
+				if (compressed)
+					SaveGameUtility.saveCompressed(temp, saveGame, cancellable);
+				else
+					SaveGameUtility.saveBinary(temp, saveGame, cancellable);
+				Files.move(temp, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+
+			Metrics.SAVE.recordSince(start);
+			Metrics.SAVE_BYTES.record(Files.size(filePath));
+
+			return null;
+		});
+	}
+
+	/**
+	 * runs a task on the executor. the task sees a progress which is also
+	 * cancelled by cancelling the future.
+	 */
+	private static <T> CompletableFuture<T> submit(final Executor executor, final Progress progress,
+			final Task<T> task) {
+		if (executor == null || progress == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		final Progress cancellable = new Progress() {
+			@Override
+			public void update(final long done, final long total) {
+				progress.update(done, total);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return future.isDone() || progress.isCancelled();
+			}
+		};
+
+		executor.execute(() -> {
+			try {
+				if (cancellable.isCancelled())
+					throw new CancellationException();
+
+				future.complete(task.run(cancellable));
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		});
+
+		return future;
+	}
+}
@@ -1,22 +1,142 @@
 package game.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
+import game.data.FlatLevel;
+import game.data.Level;
+import game.data.MappedLevel;
+
+/**
+ * <p>
+ * reads and writes savegames.
+ * </p>
+ *
+ * <p>
+ * two formats are supported and detected automatically when loading:
+ * <ul>
+ * <li>plain text, one line per row and one character per field</li>
+ * <li>binary, a header of {@code HEADER_SIZE} bytes followed by one byte per
+ * field in row-major order</li>
+ * <li>compressed binary, the same header followed by the fields encoded by
+ * {@code game.util.CompressedLevelCodec}</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * the binary header (big endian):
+ *
+ * <pre>
+ *  0  int   magic 'JMSW'
+ *  4  short version
+ *  6  short flags, FLAG_COMPRESSED (since version 2)
+ *  8  int   sizeY
+ * 12  int   sizeX
+ * 16  long  number of bombs
+ * 24  long  number of bombs not flagged
+ * 32  long  number of safe fields not revealed
+ * 40  long  elapsed time in milliseconds
+ * 48  long  CRC32 of the fields
+ * 56  long  reserved
+ * </pre>
+ * </p>
+ *
+ * <p>
+ * uncompressed savegames are still written as version 1, so they can be read by
+ * older versions of the game. compressed savegames can't be memory-mapped,
+ * they are decoded into memory when loaded.
+ * </p>
+ *
+ * <p>
+ * the methods taking a {@code game.util.Progress} report the number of bytes
+ * processed and can be cancelled in between, they throw a
+ * {@code java.util.concurrent.CancellationException} then.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
 public final class SaveGameUtility {
+	public static final int MAGIC = 'J' << 24 | 'M' << 16 | 'S' << 8 | 'W';
+	public static final short VERSION = 2;
+	public static final short FLAG_COMPRESSED = 1;
+	public static final int HEADER_SIZE = 64;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private SaveGameUtility() {
+	}
+
 	public static char[][] readFromFile(Path filePath) throws IOException {
 		if (filePath == null)
 			return null;
-		
-		return Files.lines(filePath).map(s -> s.toCharArray()).toArray(char[][]::new);
+
+		try (Stream<String> lines = Files.lines(filePath)) {
+			return lines.map(s -> s.toCharArray()).toArray(char[][]::new);
+		}
 	}
-	
+
+	/**
+	 * reads a savegame in the plain text format.
+	 *
+	 * @param filePath the file
+	 * @param progress receives the number of bytes read
+	 * @return the rows of the level
+	 * @throws IOException if the file can't be read
+	 */
+	public static char[][] readFromFile(Path filePath, Progress progress) throws IOException {
+		if (filePath == null || progress == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		final long total = Files.size(filePath);
+		final List<char[]> rows = new ArrayList<>();
+
+		long done = 0;
+		long reported = 0;
+
+		try (BufferedReader in = Files.newBufferedReader(filePath)) {
+			String line;
+
+			while ((line = in.readLine()) != null) {
+				rows.add(line.toCharArray());
+
+				// the fields are ASCII, so a character is a byte. the line
+				// separator is counted as one byte.
+				done += line.length() + 1;
+
+				if (done - reported >= BUFFER_SIZE) {
+					progress.step(Math.min(done, total), total);
+					reported = done;
+				}
+			}
+		}
+
+		progress.step(total, total);
+
+		return rows.toArray(new char[rows.size()][]);
+	}
+
 	public static void saveToFile(Path filePath, char[][] data) throws IOException {
 		if (filePath == null || data == null)
 			throw new IllegalStateException("Parameters can not be null!");
-		
+
 		try (BufferedWriter out = Files.newBufferedWriter(filePath)) {
 			for (char[] c : data) {
 				out.write(c);
@@ -24,4 +144,384 @@ public final class SaveGameUtility {
 			}
 		}
 	}
+
+	public static void saveToFile(Path filePath, Level level) throws IOException {
+		if (filePath == null || level == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		final char[] row = new char[level.getSizeX()];
+
+		try (BufferedWriter out = Files.newBufferedWriter(filePath)) {
+			for (int y = 0; y < level.getSizeY(); y++) {
+				for (int x = 0; x < row.length; x++)
+					row[x] = level.get(y, x);
+
+				out.write(row);
+				out.newLine();
+			}
+		}
+	}
+
+	/**
+	 * checks if a file is a binary savegame.
+	 *
+	 * @param filePath the file
+	 * @return true if the file starts with the binary header
+	 * @throws IOException if the file can't be read
+	 */
+	public static boolean isBinary(Path filePath) throws IOException {
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			final ByteBuffer magic = ByteBuffer.allocate(4);
+
+			while (magic.hasRemaining() && channel.read(magic) >= 0)
+				;
+
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * checks if a file is a compressed binary savegame.
+	 *
+	 * @param filePath the file
+	 * @return true if the file is a binary savegame with compressed fields
+	 * @throws IOException if the file can't be read
+	 */
+	public static boolean isCompressed(Path filePath) throws IOException {
+		if (!isBinary(filePath))
+			return false;
+
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			return isCompressed(readHeader(channel));
+		}
+	}
+
+	/**
+	 * loads a savegame in either format.
+	 *
+	 * binary savegames are memory-mapped, the fields are only read when they are
+	 * accessed. the checksum is not verified, use {@code verify(Path)} for that.
+	 *
+	 * @param filePath the file
+	 * @return the savegame
+	 * @throws IOException if the file can't be read or is not a valid savegame
+	 */
+	public static SaveGame readSaveGame(Path filePath) throws IOException {
+		return readSaveGame(filePath, Progress.NONE);
+	}
+
+	/**
+	 * loads a savegame in either format and reports the progress.
+	 *
+	 * the plain text and the compressed format have to be read completely, an
+	 * uncompressed binary savegame is mapped at once. the checksum of a
+	 * compressed savegame is verified while it is decoded. a savegame which
+	 * can't be opened for writing, e.g. on read-only media, can't be mapped
+	 * copy-on-write and is read completely as well.
+	 *
+	 * @param filePath the file
+	 * @param progress receives the number of bytes read
+	 * @return the savegame
+	 * @throws IOException if the file can't be read or is not a valid savegame
+	 */
+	public static SaveGame readSaveGame(Path filePath, Progress progress) throws IOException {
+		if (filePath == null || progress == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		if (!isBinary(filePath)) {
+			final char[][] data = readFromFile(filePath, progress);
+
+			if (data.length == 0)
+				throw new IOException("Empty savegame: " + filePath);
+
+			try {
+				return new SaveGame(Level.fromExistingData(data));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid savegame: " + filePath, e);
+			}
+		}
+
+		// a copy-on-write mapping needs a channel opened for writing, although
+		// nothing is ever written to the file.
+		FileChannel opened;
+		boolean mappable = true;
+
+		try {
+			opened = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (FileSystemException e) {
+			opened = FileChannel.open(filePath, StandardOpenOption.READ);
+			mappable = false;
+		}
+
+		try (FileChannel channel = opened) {
+			final ByteBuffer header = readHeader(channel);
+
+			if (isCompressed(header)) {
+				final CRC32 crc = new CRC32();
+				final Level level = CompressedLevelCodec.decode(fields(channel), header.getInt(8), header.getInt(12),
+						crc, progress);
+
+				if (crc.getValue() != header.getLong(48))
+					throw new IOException("Checksum of savegame does not match: " + filePath);
+
+				return new SaveGame(level, header.getLong(16), header.getLong(24), header.getLong(32),
+						header.getLong(40));
+			}
+
+			final Level level;
+
+			if (mappable) {
+				level = MappedLevel.map(channel, HEADER_SIZE, header.getInt(8), header.getInt(12));
+				progress.step(channel.size(), channel.size());
+			} else {
+				level = readLevel(channel, header.getInt(8), header.getInt(12), progress);
+			}
+
+			return new SaveGame(level, header.getLong(16), header.getLong(24), header.getLong(32), header.getLong(40));
+		}
+	}
+
+	/**
+	 * verifies the checksum of a binary savegame. this reads the whole file.
+	 *
+	 * @param filePath the file
+	 * @return true if the checksum matches
+	 * @throws IOException if the file can't be read or is not a binary savegame
+	 */
+	public static boolean verify(Path filePath) throws IOException {
+		return verify(filePath, Progress.NONE);
+	}
+
+	/**
+	 * verifies the checksum of a binary savegame and reports the progress.
+	 *
+	 * @param filePath the file
+	 * @param progress receives the number of bytes read
+	 * @return true if the checksum matches
+	 * @throws IOException if the file can't be read or is not a binary savegame
+	 */
+	public static boolean verify(Path filePath, Progress progress) throws IOException {
+		if (filePath == null || progress == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			final ByteBuffer header = readHeader(channel);
+			final long fields = (long) header.getInt(8) * header.getInt(12);
+
+			if (isCompressed(header)) {
+				final CRC32 crc = new CRC32();
+				CompressedLevelCodec.checksum(fields(channel), header.getInt(8), header.getInt(12), crc, progress);
+				return crc.getValue() == header.getLong(48);
+			}
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			final CRC32 crc = new CRC32();
+
+			long position = HEADER_SIZE;
+
+			while (position < HEADER_SIZE + fields) {
+				buffer.clear();
+				buffer.limit((int) Math.min(BUFFER_SIZE, HEADER_SIZE + fields - position));
+
+				final int read = channel.read(buffer, position);
+
+				if (read < 0)
+					return false;
+
+				buffer.flip();
+				crc.update(buffer);
+				position += read;
+
+				progress.step(position, HEADER_SIZE + fields);
+			}
+
+			return crc.getValue() == header.getLong(48);
+		}
+	}
+
+	/**
+	 * saves a level together with its state in the binary format. if the file
+	 * already exists it will be overwritten.
+	 *
+	 * @param filePath the file
+	 * @param saveGame the savegame to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void saveBinary(Path filePath, SaveGame saveGame) throws IOException {
+		saveBinary(filePath, saveGame, Progress.NONE);
+	}
+
+	/**
+	 * saves a level together with its state in the binary format and reports the
+	 * progress. a cancelled save leaves an incomplete file behind.
+	 *
+	 * @param filePath the file
+	 * @param saveGame the savegame to write
+	 * @param progress receives the number of bytes written
+	 * @throws IOException if the file can't be written
+	 */
+	public static void saveBinary(Path filePath, SaveGame saveGame, Progress progress) throws IOException {
+		if (filePath == null || saveGame == null || progress == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		final Level level = saveGame.getLevel();
+		final int sizeY = level.getSizeY();
+		final int sizeX = level.getSizeX();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final CRC32 crc = new CRC32();
+		final long total = HEADER_SIZE + (long) sizeY * sizeX;
+
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.position(HEADER_SIZE);
+
+			int length = 0;
+
+			for (int y = 0; y < sizeY; y++) {
+				for (int x = 0; x < sizeX; x++) {
+					if (length == BUFFER_SIZE) {
+						flush(channel, buffer, length, crc);
+						length = 0;
+
+						progress.step(channel.position(), total);
+					}
+
+					buffer[length++] = (byte) level.get(y, x);
+				}
+			}
+
+			flush(channel, buffer, length, crc);
+
+			writeHeader(channel, (short) 1, (short) 0, saveGame, crc);
+
+			progress.step(total, total);
+		}
+	}
+
+	/**
+	 * saves a level together with its state in the compressed binary format.
+	 * if the file already exists it will be overwritten.
+	 *
+	 * @param filePath the file
+	 * @param saveGame the savegame to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void saveCompressed(Path filePath, SaveGame saveGame) throws IOException {
+		saveCompressed(filePath, saveGame, Progress.NONE);
+	}
+
+	/**
+	 * saves a level together with its state in the compressed binary format and
+	 * reports the progress. a cancelled save leaves an incomplete file behind.
+	 *
+	 * @param filePath the file
+	 * @param saveGame the savegame to write
+	 * @param progress receives the number of fields written
+	 * @throws IOException if the file can't be written
+	 */
+	public static void saveCompressed(Path filePath, SaveGame saveGame, Progress progress) throws IOException {
+		if (filePath == null || saveGame == null || progress == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		final CRC32 crc = new CRC32();
+
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.position(HEADER_SIZE);
+
+			// the stream is only flushed, closing it would close the channel
+			final OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+			CompressedLevelCodec.encode(saveGame.getLevel(), out, crc, progress);
+			out.flush();
+
+			writeHeader(channel, VERSION, FLAG_COMPRESSED, saveGame, crc);
+		}
+	}
+
+	private static void flush(FileChannel channel, byte[] buffer, int length, CRC32 crc) throws IOException {
+		crc.update(buffer, 0, length);
+
+		final ByteBuffer out = ByteBuffer.wrap(buffer, 0, length);
+
+		while (out.hasRemaining())
+			channel.write(out);
+	}
+
+	private static void writeHeader(FileChannel channel, short version, short flags, SaveGame saveGame, CRC32 crc)
+			throws IOException {
+		final Level level = saveGame.getLevel();
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+
+		header.putInt(MAGIC).putShort(version).putShort(flags);
+		header.putInt(level.getSizeY()).putInt(level.getSizeX());
+		header.putLong(saveGame.getNumBombs()).putLong(saveGame.getBombCount()).putLong(saveGame.getSafeFields());
+		header.putLong(saveGame.getElapsedMillis()).putLong(crc.getValue()).putLong(0);
+		header.flip();
+
+		while (header.hasRemaining())
+			channel.write(header, header.position());
+	}
+
+	private static boolean isCompressed(ByteBuffer header) {
+		return header.getShort(4) >= 2 && (header.getShort(6) & FLAG_COMPRESSED) != 0;
+	}
+
+	/**
+	 * reads the uncompressed fields behind the header into a level in memory.
+	 */
+	private static Level readLevel(FileChannel channel, int sizeY, int sizeX, Progress progress)
+			throws IOException {
+		final FlatLevel level;
+
+		try {
+			level = new FlatLevel(sizeY, sizeX, (char) 0);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid size: " + sizeY + "x" + sizeX, e);
+		}
+
+		final long fields = (long) sizeY * sizeX;
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long position = 0;
+
+		while (position < fields) {
+			buffer.clear();
+			buffer.limit((int) Math.min(BUFFER_SIZE, fields - position));
+
+			if (channel.read(buffer, HEADER_SIZE + position) < 0)
+				throw new IOException("File is too short for a level of " + sizeY + "x" + sizeX);
+
+			buffer.flip();
+
+			while (buffer.hasRemaining()) {
+				level.set((int) (position / sizeX), (int) (position % sizeX), (char) (buffer.get() & 0xFF));
+				position++;
+			}
+
+			progress.step(position, fields);
+		}
+
+		return level;
+	}
+
+	/**
+	 * a stream of the fields behind the header, closing it closes the channel.
+	 */
+	private static InputStream fields(FileChannel channel) throws IOException {
+		channel.position(HEADER_SIZE);
+		return new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+	}
+
+	private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+		while (header.hasRemaining() && channel.read(header, header.position()) >= 0)
+			;
+
+		if (header.hasRemaining() || header.getInt(0) != MAGIC)
+			throw new IOException("Not a binary savegame");
+
+		if (header.getShort(4) < 1 || header.getShort(4) > VERSION)
+			throw new IOException("Unsupported savegame version: " + header.getShort(4));
+
+		return header;
+	}
 }
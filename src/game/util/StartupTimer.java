@@ -0,0 +1,74 @@
+package game.util;
+
+import java.lang.management.ManagementFactory;
+
+import game.util.Diagnostics.Severity;
+
+/**
+ * <p>
+ * measures the time from the start of the JVM to the first painted frame of
+ * the gameboard.
+ * </p>
+ *
+ * <p>
+ * the result is reported as a debug diagnostic, or printed if the system
+ * property {@code jminesweeper.exitAfterFirstFrame} is set. with that property
+ * the game exits after the first frame, e.g. for startup benchmarks or the
+ * training run of a class data sharing archive.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class StartupTimer {
+	public static final String EXIT_PROPERTY = "jminesweeper.exitAfterFirstFrame";
+
+	private static final long MAIN_MILLIS = System.currentTimeMillis();
+	private static volatile boolean painted;
+
+	private StartupTimer() {
+	}
+
+	/**
+	 * notes that main was entered, must be the first thing main does.
+	 */
+	public static void mainStarted() {
+		// the time is taken when the class is initialized
+	}
+
+	/**
+	 * notes that a frame was painted, only the first call counts. called on
+	 * the event dispatch thread.
+	 */
+	public static void framePainted() {
+		if (painted)
+			return;
+
+		painted = true;
+
+		final long frameMillis = System.currentTimeMillis();
+		final boolean exit = Boolean.getBoolean(EXIT_PROPERTY);
+
+		if (!Diagnostics.isEnabled(Severity.DEBUG) & !exit)
+			return;
+
+		// the management classes are loaded after the first frame, and not on
+		// the event dispatch thread
+		final Thread report = new Thread(() -> {
+			final long jvmMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+			final String message = "JVM to main " + (MAIN_MILLIS - jvmMillis) + " ms, main to first frame "
+					+ (frameMillis - MAIN_MILLIS) + " ms, JVM to first frame " + (frameMillis - jvmMillis) + " ms";
+
+			if (exit) {
+				// the benchmark reads the console, whatever the diagnostics say
+				System.out.println("Startup: " + message);
+				System.exit(0);
+			}
+
+			Diagnostics.debug("startup", message);
+		}, "Startup-Timer");
+
+		report.start();
+	}
+}
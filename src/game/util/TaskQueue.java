@@ -0,0 +1,272 @@
+package game.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>
+ * a bounded queue of tasks in front of a shared executor.
+ * </p>
+ *
+ * <p>
+ * at most {@code maxActive} tasks of a queue run at once, further tasks wait
+ * in the queue, at most {@code capacity} of them. a task submitted to a full
+ * queue is rejected with a
+ * {@code java.util.concurrent.RejectedExecutionException}. so the tasks of one
+ * queue never take more than {@code maxActive} threads of the executor and
+ * can't starve the tasks of another queue, as long as the executor has a
+ * thread for every active task of every queue.
+ * </p>
+ *
+ * <p>
+ * a thread which has finished a task runs the next waiting task of the same
+ * queue. the time every task waited is recorded in a
+ * {@code game.util.Histogram}.
+ * </p>
+ *
+ * @author Holger Dörner
+ *
+ */
+public final class TaskQueue implements Executor {
+	private final String name;
+	private final Executor executor;
+	private final int maxActive;
+	private final int capacity;
+	private final Histogram waits;
+
+	// guarded by this
+	private final ArrayDeque<Queued> waiting = new ArrayDeque<>();
+	private int active;
+	private long submitted;
+	private long rejected;
+	private long completed;
+
+	/**
+	 * a task and the time it was submitted.
+	 */
+	private static final class Queued {
+		private final Runnable task;
+		private final long submittedAt;
+
+		private Queued(final Runnable task, final long submittedAt) {
+			this.task = task;
+			this.submittedAt = submittedAt;
+		}
+	}
+
+	/**
+	 * creates an empty queue.
+	 *
+	 * @param name      the name of the queue, e.g. {@code "io"}
+	 * @param executor  runs the tasks
+	 * @param maxActive the maximum number of tasks running at once
+	 * @param capacity  the maximum number of waiting tasks
+	 * @param waits     receives the time every task waited in nanoseconds
+	 */
+	public TaskQueue(final String name, final Executor executor, final int maxActive, final int capacity,
+			final Histogram waits) {
+		if (name == null || executor == null || waits == null)
+			throw new IllegalStateException("Parameters can not be null!");
+
+		if (maxActive <= 0)
+			throw new IllegalArgumentException("Values can't be 0 or less!");
+
+		if (capacity < 0)
+			throw new IllegalArgumentException("Values can't be less than 0!");
+
+		this.name = name;
+		this.executor = executor;
+		this.maxActive = maxActive;
+		this.capacity = capacity;
+		this.waits = waits;
+	}
+
+	/**
+	 * runs a task as soon as fewer than {@code maxActive} tasks of this queue
+	 * are running.
+	 *
+	 * @param task the task
+	 * @throws RejectedExecutionException if the queue is full
+	 */
+	@Override
+	public void execute(final Runnable task) {
+		if (task == null)
+			throw new IllegalArgumentException("Argument can't be NULL!");
+
+		final Queued queued = new Queued(task, System.nanoTime());
+
+		synchronized (this) {
+			if (active == maxActive) {
+				if (waiting.size() == capacity) {
+					rejected++;
+					throw new RejectedExecutionException("Queue " + name + " is full!");
+				}
+
+				submitted++;
+				waiting.add(queued);
+				return;
+			}
+
+			submitted++;
+			active++;
+		}
+
+		try {
+			executor.execute(() -> run(queued));
+		} catch (RejectedExecutionException e) {
+			synchronized (this) {
+				active--;
+				rejected++;
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * runs a task and then the waiting tasks, until the queue is empty.
+	 */
+	private void run(final Queued first) {
+		Queued next = first;
+
+		while (next != null) {
+			waits.recordSince(next.submittedAt);
+
+			boolean returned = false;
+
+			try {
+				next.task.run();
+				returned = true;
+			} catch (RuntimeException e) {
+				// the futures of the game catch their failures, this is a bug
+				Diagnostics.error("executor", "Task of queue " + name + " failed", e);
+				returned = true;
+			} finally {
+				synchronized (this) {
+					completed++;
+
+					// an error ends this thread, another one runs the waiting tasks
+					next = returned ? waiting.poll() : null;
+
+					if (next == null)
+						active--;
+				}
+
+				if (!returned)
+					restart();
+			}
+		}
+	}
+
+	/**
+	 * starts a thread for the waiting tasks, if there are any and a task may
+	 * run.
+	 */
+	private void restart() {
+		final Queued queued;
+
+		synchronized (this) {
+			if (active == maxActive || waiting.isEmpty())
+				return;
+
+			queued = waiting.poll();
+			active++;
+		}
+
+		try {
+			executor.execute(() -> run(queued));
+		} catch (RejectedExecutionException e) {
+			Diagnostics.error("executor", "Could not restart queue " + name, e);
+
+			synchronized (this) {
+				active--;
+				rejected++;
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * returns the current state of the queue.
+	 *
+	 * @return the statistics
+	 */
+	public synchronized Statistics getStatistics() {
+		return new Statistics(name, maxActive, capacity, active, waiting.size(), submitted, rejected, completed);
+	}
+
+	@Override
+	public String toString() {
+		return getStatistics().toString();
+	}
+
+	/**
+	 * the state of a queue at one point in time.
+	 *
+	 * @author Holger Dörner
+	 */
+	public static final class Statistics {
+		private final String name;
+		private final int maxActive;
+		private final int capacity;
+		private final int active;
+		private final int queued;
+		private final long submitted;
+		private final long rejected;
+		private final long completed;
+
+		private Statistics(final String name, final int maxActive, final int capacity, final int active,
+				final int queued, final long submitted, final long rejected, final long completed) {
+			this.name = name;
+			this.maxActive = maxActive;
+			this.capacity = capacity;
+			this.active = active;
+			this.queued = queued;
+			this.submitted = submitted;
+			this.rejected = rejected;
+			this.completed = completed;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getMaxActive() {
+			return maxActive;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public int getActive() {
+			return active;
+		}
+
+		public int getQueued() {
+			return queued;
+		}
+
+		public long getSubmitted() {
+			return submitted;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+		public long getCompleted() {
+			return completed;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: active %d/%d, queued %d/%d, submitted %d, rejected %d, completed %d", name,
+					active, maxActive, queued, capacity, submitted, rejected, completed);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package game.data.tests;
+
+import game.Game;
+import game.GameEngine;
+import game.data.ChunkedLevel;
+import game.data.FieldCalculator;
+import game.data.Level;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class ChunkedLevelTest {
+    @Test
+    public void matchesCalculatedLevelTest() {
+        final int sizeY = 150, sizeX = 201, numBombs = 6000;
+        final ChunkedLevel level = new ChunkedLevel(sizeY, sizeX, numBombs, 1234L);
+        final char[][] bombsOnly = new char[sizeY][sizeX];
+        int bombs = 0;
+
+        for (int y = 0; y < sizeY; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                bombsOnly[y][x] = level.get(y, x) == Game.BOMB ? Game.BOMB : Game.UNTOUCHED;
+                if (bombsOnly[y][x] == Game.BOMB)
+                    bombs++;
+            }
+        }
+
+        assertEquals(numBombs, bombs, "wrong number of bombs");
+
+        Level expected = Level.fromExistingData(bombsOnly);
+        FieldCalculator.calculate(expected);
+
+        MineBitBoardTest.assertSameLevel(expected, level);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> level.get(0, sizeX));
+    }
+
+    @Test
+    public void evictionTest() {
+        // room for a single untouched chunk
+        final ChunkedLevel level = new ChunkedLevel(640, 640, 40000, 99L, 4096);
+        final char first = level.get(5, 5);
+
+        level.set(70, 70, 'x');
+
+        for (int y = 0; y < 640; y += 64)
+            for (int x = 0; x < 640; x += 64)
+                level.get(y, x);
+
+        assertEquals(1, level.getTouchedChunks(), "wrong number of touched chunks");
+        assertEquals(2, level.getResidentChunks(), "untouched chunks were not evicted");
+
+        // evicted chunks are generated again with the same content
+        assertEquals(first, level.get(5, 5), "regenerated chunk differs");
+        assertEquals('x', level.get(70, 70), "touched chunk was evicted");
+    }
+
+    @Test
+    public void generateHugeTest() {
+        // 20% of 10^12 fields, more bombs than an int can count
+        final long numBombs = 200_000_000_000L;
+        final Level level = GameEngine.generate(1_000_000, 1_000_000, numBombs);
+
+        assertEquals(numBombs, ((ChunkedLevel) level).getNumBombs(), "the number of bombs was cut off");
+        assertThrows(IllegalStateException.class, () -> GameEngine.generate(10, 10, 1L << 32));
+    }
+
+    @Test
+    public void hugeBoardTest() {
+        final int size = 1_000_000;
+        final long numBombs = (long) size * size / 5;
+        final ChunkedLevel level = new ChunkedLevel(size, size, numBombs, 7L, 1L << 20);
+        final GameEngine engine = new GameEngine();
+
+        engine.newGame(level, numBombs);
+
+        assertEquals((long) size * size - numBombs, engine.getSafeFields(), "wrong number of safe fields");
+
+        int revealed = 0;
+
+        for (int y = size / 2; y < size / 2 + 200 && engine.isRunning(); y++)
+            for (int x = size / 2; x < size / 2 + 200 && engine.isRunning(); x++)
+                if (engine.getField(y, x) != Game.BOMB)
+                    revealed += engine.reveal(y, x);
+
+        assertTrue(revealed > 0, "nothing revealed");
+        assertTrue(level.getResidentChunks() < 64, "too many chunks resident: " + level.getResidentChunks());
+    }
+}
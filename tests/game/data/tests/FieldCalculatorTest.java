@@ -0,0 +1,48 @@
+package game.data.tests;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import game.data.FieldCalculator;
+import game.data.Level;
+import org.junit.jupiter.api.Test;
+
+
+
+public class FieldCalculatorTest {
+    @Test
+    public void parallelMatchesReferenceTest() {
+        final Random random = new Random(11);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final int[][] sizes = {{1, 1}, {1, 70}, {70, 1}, {16, 30}, {97, 131}, {256, 64}};
+
+        try {
+            for (int[] size : sizes) {
+                for (int bandRows : new int[] {1, 2, 3, 7, 1000}) {
+                    final int cells = size[0] * size[1];
+                    final Level expected = cells > 1 ? Level.generateNew(size[0], size[1], Math.max(1, cells / 5), random)
+                            : Level.fromExistingData(new char[][] {{'O'}});
+                    final Level actual = expected.copy();
+
+                    MineBitBoardTest.calculateFieldsReference(expected);
+                    FieldCalculator.calculate(actual, pool, bandRows);
+
+                    MineBitBoardTest.assertSameLevel(expected, actual);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void commonPoolTest() {
+        final Level expected = Level.generateNew(600, 500, 60000, new Random(3));
+        final Level actual = expected.copy();
+
+        MineBitBoardTest.calculateFieldsReference(expected);
+        FieldCalculator.calculate(actual);
+
+        MineBitBoardTest.assertSameLevel(expected, actual);
+    }
+}
@@ -0,0 +1,80 @@
+package game.data.tests;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import game.data.CellSet;
+import game.data.FieldCalculator;
+import game.data.FloodFill;
+import game.data.Level;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+
+
+public class FloodFillTest {
+    private static Level calculated(char[][] data) {
+        Level level = Level.fromExistingData(data);
+        FieldCalculator.calculate(level);
+        return level;
+    }
+
+    @Test
+    public void revealRegionTest() {
+        Level level = calculated(new char[][] {
+            {'O','O','O','O','O'},
+            {'O','O','O','O','O'},
+            {'O','O','O','@','O'},
+            {'@','O','O','O','O'}});
+
+        // a flag inside of the empty region must stay untouched
+        level.set(0, 4, (char) (level.get(0, 4) + 49));
+
+        CellSet revealed = new CellSet();
+        int count = FloodFill.reveal(level, 0, 0, revealed);
+
+        assertEquals(revealed.size(), count, "count and set differ");
+        assertEquals(12, count, "wrong number of revealed fields");
+        assertEquals('A', level.get(0, 0), "empty field not revealed");
+        assertEquals('B', level.get(1, 2), "border number not revealed");
+        assertEquals('a', level.get(0, 4), "flag was changed");
+        assertEquals('1', level.get(3, 1), "field behind the border was revealed");
+        assertEquals('@', level.get(2, 3), "bomb was changed");
+
+        // revealing again changes nothing
+        revealed.clear();
+        assertEquals(0, FloodFill.reveal(level, 0, 0, revealed), "revealed field was revealed twice");
+        assertEquals(0, revealed.size(), "set not empty");
+    }
+
+    @Test
+    public void revealNumberTest() {
+        Level level = calculated(new char[][] {{'O','@'}, {'O','O'}});
+
+        CellSet revealed = new CellSet();
+
+        assertEquals(1, FloodFill.reveal(level, 0, 0, revealed), "number must only reveal itself");
+        assertEquals('B', level.get(0, 0), "number not revealed");
+        assertEquals(0, FloodFill.reveal(level, 0, 1, revealed), "bomb must not be revealed");
+    }
+
+    @Test
+    public void revealLargeEmptyBoardTest() {
+        final int size = 2000;
+        final char[][] data = new char[size][size];
+
+        for (char[] row : data)
+            Arrays.fill(row, '0');
+
+        final Level level = Level.fromExistingData(data);
+        final CellSet revealed = new CellSet();
+
+        int count = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> FloodFill.reveal(level, size / 2, size / 2, revealed));
+
+        assertEquals(size * size, count, "not all fields revealed");
+        assertEquals('A', level.get(0, 0), "corner not revealed");
+        assertEquals('A', level.get(size - 1, size - 1), "corner not revealed");
+    }
+}
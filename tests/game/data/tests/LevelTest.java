@@ -1,7 +1,16 @@
 package game.data.tests;
 
+import java.time.Duration;
+import java.util.Random;
+
+import game.Game;
+import game.data.FlatLevel;
 import game.data.Level;
 import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -24,4 +33,121 @@ public class LevelTest {
         assertTrue(level.getSizeY() == 5, "level y != 5");
         assertTrue(level.getSizeX() == 5, "level x != 5");
     }
+
+    @Test
+    public void flatLevelTest() {
+        Level level = new FlatLevel(3, 4, 'O');
+
+        level.set(1, 3, '0');
+        level.increment(1, 3);
+
+        assertTrue(level.get(1, 3) == '1', "position 1,3 not incremented");
+        assertTrue(level.get(2, 0) == 'O', "position 2,0 not filled");
+
+        // a flat array must not wrap into the next row
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> level.get(0, 4));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> level.get(-1, 0));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> level.get(3, 0));
+    }
+
+    @Test
+    public void compareAndSetTest() {
+        Level level = new FlatLevel(2, 2, 'O');
+
+        assertTrue(level.compareAndSet(0, 1, 'O', '@'), "expected value not replaced");
+        assertFalse(level.compareAndSet(0, 1, 'O', '1'), "changed value replaced");
+        assertEquals('@', level.get(0, 1));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> level.compareAndSet(0, 2, 'O', '@'));
+
+        // the default implementation of the interface
+        Level locked = new Level() {
+            private final Level delegate = new FlatLevel(1, 1, 'O');
+
+            public char get(int y, int x) { return delegate.get(y, x); }
+            public void set(int y, int x, char value) { delegate.set(y, x, value); }
+            public void increment(int y, int x) { delegate.increment(y, x); }
+            public int getSizeY() { return 1; }
+            public int getSizeX() { return 1; }
+            @Deprecated
+            public char[][] getLevelData() { return null; }
+        };
+
+        assertTrue(locked.compareAndSet(0, 0, 'O', '0'));
+        assertFalse(locked.compareAndSet(0, 0, 'O', '1'));
+        assertEquals('0', locked.get(0, 0));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void levelDataIsCopyTest() {
+        char[][] testData = {{'O','@','O'}, {'@','O','O'}};
+
+        Level level = Level.fromExistingData(testData);
+        char[][] copy = level.getLevelData();
+
+        assertTrue(copy.length == 2 && copy[0].length == 3, "copy has wrong size");
+        assertTrue(copy[1][0] == '@', "copy has wrong content");
+
+        copy[0][0] = '@';
+        testData[0][0] = '@';
+        assertTrue(level.get(0, 0) == 'O', "level shares data with its source or copy");
+
+        assertThrows(IllegalArgumentException.class, () -> Level.fromExistingData(new char[][] {{'O'}, {'O','O'}}));
+    }
+
+    @Test
+    public void generateNewUniformityTest() {
+        // every one of the C(9,3) = 84 layouts of a 3x3 level with 3 bombs
+        // must be equally likely. chi-squared with 83 degrees of freedom,
+        // 125.3 is the critical value for p = 0.001.
+        final int trials = 84 * 1000;
+        final int[] layouts = new int[1 << 9];
+        final Random random = new Random(42);
+
+        for (int i = 0; i < trials; i++) {
+            Level level = Level.generateNew(3, 3, 3, random);
+            int mask = 0;
+
+            for (int y = 0; y < 3; y++)
+                for (int x = 0; x < 3; x++)
+                    if (level.get(y, x) == Game.BOMB)
+                        mask |= 1 << (y * 3 + x);
+
+            assertEquals(3, Integer.bitCount(mask), "wrong number of bombs");
+            layouts[mask]++;
+        }
+
+        double expected = trials / 84.0;
+        double chiSquared = 0;
+
+        for (int mask = 0; mask < layouts.length; mask++) {
+            if (Integer.bitCount(mask) == 3) {
+                double diff = layouts[mask] - expected;
+                chiSquared += diff * diff / expected;
+            }
+        }
+
+        assertTrue(chiSquared < 125.3, "layouts are not uniformly distributed, chi^2 = " + chiSquared);
+    }
+
+    @Test
+    public void generateNewDensityTest() {
+        final int[] percents = {1, 10, 25, 50, 75, 90, 95};
+
+        for (int percent : percents) {
+            final int numBombs = 1000 * 1000 / 100 * percent;
+
+            Level level = assertTimeoutPreemptively(Duration.ofSeconds(2),
+                    () -> Level.generateNew(1000, 1000, numBombs), "generating " + percent + "% took too long");
+
+            int bombs = 0;
+
+            for (int y = 0; y < 1000; y++)
+                for (int x = 0; x < 1000; x++)
+                    if (level.get(y, x) == Game.BOMB)
+                        bombs++;
+
+            assertEquals(numBombs, bombs, "wrong number of bombs at " + percent + "%");
+        }
+    }
 }
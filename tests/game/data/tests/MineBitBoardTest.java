@@ -0,0 +1,88 @@
+package game.data.tests;
+
+import java.util.Random;
+
+import game.Game;
+import game.data.Level;
+import game.data.MineBitBoard;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class MineBitBoardTest {
+    /**
+     * the original field calculation of game.Game, used as reference.
+     */
+    static void calculateFieldsReference(Level level) {
+        for (int y = 0; y < level.getSizeY(); y++) {
+            for (int x = 0; x < level.getSizeX(); x++) {
+                if (level.get(y, x) == Game.UNTOUCHED) {
+                    level.set(y, x, Game.EMPTY);
+
+                    for (int i = -1, j = 1; i <= 1; i++, j--) {
+                        try {
+                            if (level.get(y + i, x + j) == Game.BOMB)
+                                level.increment(y, x);
+                        } catch (Exception e) {
+                        }
+                        try {
+                            if (level.get(y + i, x + i) == Game.BOMB)
+                                level.increment(y, x);
+                        } catch (Exception e) {
+                        }
+                        try {
+                            if (level.get(y, x + i) == Game.BOMB)
+                                level.increment(y, x);
+                        } catch (Exception e) {
+                        }
+                        try {
+                            if (level.get(y + i, x) == Game.BOMB)
+                                level.increment(y, x);
+                        } catch (Exception e) {
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static void assertSameLevel(Level expected, Level actual) {
+        for (int y = 0; y < expected.getSizeY(); y++)
+            for (int x = 0; x < expected.getSizeX(); x++)
+                assertEquals(expected.get(y, x), actual.get(y, x), "position " + y + "," + x + " differs");
+    }
+
+    @Test
+    public void writeCountsMatchesReferenceTest() {
+        final Random random = new Random(7);
+        final int[][] sizes = {{1, 2}, {2, 1}, {3, 3}, {8, 8}, {16, 30}, {5, 63}, {7, 64}, {9, 65}, {40, 130}, {33, 200}};
+
+        for (int[] size : sizes) {
+            for (int percent : new int[] {1, 15, 50, 90}) {
+                final int numBombs = Math.max(1, Math.min(size[0] * size[1] - 1, size[0] * size[1] * percent / 100));
+                final Level expected = Level.generateNew(size[0], size[1], numBombs, random);
+                final Level actual = expected.copy();
+
+                calculateFieldsReference(expected);
+                MineBitBoard.fromLevel(actual).writeCounts(actual);
+
+                assertSameLevel(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void fullyMinedNeighborhoodTest() {
+        char[][] data = {{'@','@','@'}, {'@','O','@'}, {'@','@','@'}};
+        Level level = Level.fromExistingData(data);
+
+        MineBitBoard board = MineBitBoard.fromLevel(level);
+        board.writeCounts(level);
+
+        assertTrue(board.isBomb(0, 0) && !board.isBomb(1, 1), "bitboard has wrong bombs");
+        assertEquals('8', level.get(1, 1), "center must see 8 bombs");
+        assertEquals('@', level.get(0, 0), "bombs must not be changed");
+    }
+}
@@ -0,0 +1,161 @@
+package game.gui.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import game.data.CellSet;
+import game.gui.RenderQueue;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class RenderQueueTest {
+    private static void awaitChanges(RenderQueue queue, long changes) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+
+        while (queue.getChanges() < changes && System.nanoTime() < deadline)
+            Thread.sleep(5);
+
+        assertEquals(changes, queue.getChanges(), "changes were lost");
+    }
+
+    @Test
+    public void coalesceTest() throws Exception {
+        int sizeY = 200;
+        int sizeX = 100;
+        boolean[][] painted = new boolean[sizeY][sizeX];
+        AtomicReference<String> wrongThread = new AtomicReference<>();
+
+        RenderQueue queue = new RenderQueue((fromY, fromX, toY, toX) -> {
+            if (!SwingUtilities.isEventDispatchThread())
+                wrongThread.set(Thread.currentThread().getName());
+
+            for (int y = fromY; y <= toY; y++)
+                for (int x = fromX; x <= toX; x++)
+                    painted[y][x] = true;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // every thread changes its own rows field by field, like many small reveals
+        for (int t = 0; t < 4; t++) {
+            int first = t * sizeY / 4;
+
+            futures.add(executor.submit(() -> {
+                CellSet changed = new CellSet();
+
+                for (int y = first; y < first + sizeY / 4; y++) {
+                    for (int x = 0; x < sizeX; x++) {
+                        changed.clear();
+                        changed.add(y, x);
+                        queue.cellsChanged(changed);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures)
+            future.get();
+
+        executor.shutdown();
+        awaitChanges(queue, sizeY * sizeX);
+
+        assertEquals(null, wrongThread.get(), "painted outside of the event dispatch thread");
+
+        for (int y = 0; y < sizeY; y++)
+            for (int x = 0; x < sizeX; x++)
+                assertTrue(painted[y][x], "field " + y + "x" + x + " wasn't repainted");
+
+        assertTrue(queue.getFrames() < sizeY * sizeX / 10, "changes weren't batched: " + queue);
+        assertTrue(queue.getMaxChangesPerFrame() > 1, "changes weren't batched: " + queue);
+        assertTrue(queue.getMaxLatencyNanos() > 0, "latency wasn't measured: " + queue);
+    }
+
+    @Test
+    public void frameRateTest() throws Exception {
+        List<Long> flushes = new ArrayList<>();
+        RenderQueue queue = new RenderQueue((fromY, fromX, toY, toX) -> {
+        });
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 60; i++) {
+            queue.post("time", () -> flushes.add(System.nanoTime()));
+            Thread.sleep(2);
+        }
+
+        awaitChanges(queue, 60);
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(queue.getFrames(), flushes.size());
+        assertTrue(flushes.size() <= elapsed / RenderQueue.FRAME_NANOS + 1,
+                flushes.size() + " frames in " + elapsed / 1_000_000 + " ms");
+
+        for (int i = 1; i < flushes.size(); i++)
+            assertTrue(flushes.get(i) - flushes.get(i - 1) >= RenderQueue.FRAME_NANOS - 1_000_000,
+                    "frames " + (i - 1) + " and " + i + " were too close");
+    }
+
+    @Test
+    public void latestUpdateTest() throws Exception {
+        List<String> texts = new ArrayList<>();
+        RenderQueue queue = new RenderQueue((fromY, fromX, toY, toX) -> {
+        });
+
+        // hold the event dispatch thread, so that all updates fall into one frame
+        SwingUtilities.invokeLater(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i <= 100; i++) {
+            String text = String.valueOf(i);
+            queue.post("label", () -> texts.add(text));
+        }
+
+        awaitChanges(queue, 101);
+
+        assertEquals(List.of("100"), texts, "older updates were applied");
+        assertEquals(1, queue.getFrames());
+    }
+
+    @Test
+    public void flushNowTest() throws Exception {
+        List<String> texts = new ArrayList<>();
+        RenderQueue queue = new RenderQueue((fromY, fromX, toY, toX) -> texts.add("cells"));
+
+        assertThrows(IllegalStateException.class, queue::flushNow);
+
+        SwingUtilities.invokeAndWait(() -> {
+            queue.post("label", () -> texts.add("label"));
+            queue.cellsChanged(0, 0, 1, 1, 4);
+            queue.flushNow();
+
+            assertEquals(List.of("label", "cells"), texts, "changes weren't applied right away");
+        });
+
+        // the frame scheduled by the changes finds nothing left
+        Thread.sleep(50);
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertEquals(1, queue.getFrames());
+        assertEquals(5, queue.getChanges());
+    }
+}
@@ -0,0 +1,49 @@
+package game.gui.tests;
+
+import java.awt.image.BufferedImage;
+
+import game.gui.TileAtlas;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+
+public class TileAtlasTest {
+    private static boolean samePixels(BufferedImage a, BufferedImage b) {
+        for (int y = 0; y < a.getHeight(); y++)
+            for (int x = 0; x < a.getWidth(); x++)
+                if (a.getRGB(x, y) != b.getRGB(x, y))
+                    return false;
+
+        return true;
+    }
+
+    @Test
+    public void tilesTest() {
+        for (int size : new int[] {8, 30, 90}) {
+            TileAtlas atlas = new TileAtlas(size, null);
+            int[] tiles = {TileAtlas.UNTOUCHED, TileAtlas.BOMB, TileAtlas.EXPLODED, TileAtlas.number(0),
+                    TileAtlas.number(1), TileAtlas.number(8)};
+
+            assertEquals(size, atlas.getCellSize());
+
+            for (int i = 0; i < tiles.length; i++) {
+                assertEquals(size, atlas.get(tiles[i]).getWidth());
+                assertEquals(size, atlas.get(tiles[i]).getHeight());
+
+                for (int j = i + 1; j < tiles.length; j++)
+                    assertFalse(samePixels(atlas.get(tiles[i]), atlas.get(tiles[j])),
+                            "tiles " + tiles[i] + " and " + tiles[j] + " look the same at " + size + "px");
+            }
+        }
+    }
+
+    @Test
+    public void invalidTest() {
+        assertThrows(IllegalArgumentException.class, () -> new TileAtlas(0, null));
+        assertThrows(IllegalArgumentException.class, () -> TileAtlas.number(9));
+        assertThrows(IllegalArgumentException.class, () -> TileAtlas.number(-1));
+    }
+}
@@ -0,0 +1,319 @@
+package game.solver.tests;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import game.Game;
+import game.GameEngine;
+import game.data.CellSet;
+import game.data.FieldCalculator;
+import game.data.FlatLevel;
+import game.data.FloodFill;
+import game.data.Level;
+import game.solver.Solution;
+import game.solver.Solver;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class SolverTest {
+    private static Set<Integer> fields(CellSet cells, int sizeX) {
+        Set<Integer> fields = new HashSet<>();
+
+        for (int i = 0; i < cells.size(); i++)
+            fields.add(cells.getY(i) * sizeX + cells.getX(i));
+
+        return fields;
+    }
+
+    private static boolean isRevealed(char value) {
+        return value >= 'A' && value <= 'I';
+    }
+
+    private static boolean isFlagged(char value) {
+        return value == Game.FLAGGED_BOMB || (value >= 'a' && value <= 'i');
+    }
+
+    private static void flag(Level level, int y, int x) {
+        char value = level.get(y, x);
+        level.set(y, x, value == Game.BOMB ? Game.FLAGGED_BOMB : (char) (value + GameEngine.FLAGGED_OFFSET));
+    }
+
+    @Test
+    public void patternTest() {
+        // 1-2-1 below three hidden fields: the outer ones are bombs
+        Level level = Level.fromExistingData(new char[][] {
+            {'@','2','@'},
+            {'B','C','B'}});
+
+        Solution solution = Solver.solve(level);
+
+        assertEquals(Set.of(1), fields(solution.getSafe(), 3), "wrong safe fields");
+        assertEquals(Set.of(0, 2), fields(solution.getMines(), 3), "wrong bombs");
+    }
+
+    @Test
+    public void flagTest() {
+        // the flag satisfies the 1, the other hidden neighbors are safe
+        Level level = Level.fromExistingData(new char[][] {
+            {'#','1','1'},
+            {'B','B','A'},
+            {'A','A','A'}});
+
+        Solution solution = Solver.solve(level);
+
+        assertEquals(Set.of(1, 2), fields(solution.getSafe(), 3), "wrong safe fields");
+        assertTrue(solution.getMines().isEmpty(), "flagged field reported");
+    }
+
+    @Test
+    public void guessTest() {
+        // two hidden fields, one bomb: nothing is certain
+        Level level = Level.fromExistingData(new char[][] {
+            {'@','1'},
+            {'B','B'}});
+
+        assertTrue(Solver.solve(level).isEmpty(), "a guess was reported as certain");
+        assertTrue(Solver.solve(level, -1).isEmpty(), "a guess was reported as certain");
+    }
+
+    @Test
+    public void bombCountTest() {
+        // the 1 has its bomb, the fields right of it aren't next to a number
+        Level level = Level.fromExistingData(new char[][] {{'#','B','0','0','0'}});
+
+        assertEquals(Set.of(2), fields(Solver.solve(level).getSafe(), 5), "wrong safe fields");
+        assertEquals(Set.of(2), fields(Solver.solve(level, 2).getSafe(), 5), "a guess was reported as certain");
+        assertTrue(Solver.solve(level, 2).getMines().isEmpty(), "a guess was reported as certain");
+
+        // no bomb left: every hidden field is safe
+        Solution none = Solver.solve(level, 1);
+        assertEquals(Set.of(2, 3, 4), fields(none.getSafe(), 5), "not all hidden fields are safe");
+        assertTrue(none.getMines().isEmpty(), "a safe field was reported as bomb");
+
+        // as many bombs left as undecided fields: all of them are bombs
+        Solution all = Solver.solve(level, 3);
+        assertEquals(Set.of(2), fields(all.getSafe(), 5), "wrong safe fields");
+        assertEquals(Set.of(3, 4), fields(all.getMines(), 5), "not all undecided fields are bombs");
+    }
+
+    @Test
+    public void contradictionTest() {
+        // a wrong flag: the 2 needs another bomb, the empty field has none
+        Level level = Level.fromExistingData(new char[][] {
+            {'#','1','1'},
+            {'B','C','A'}});
+
+        Solution solution = Solver.solve(level);
+
+        assertTrue(solution.isEmpty(), "a contradiction was solved");
+    }
+
+    @Test
+    public void argumentTest() {
+        assertThrows(IllegalArgumentException.class, () -> Solver.solve(null));
+        assertThrows(IllegalArgumentException.class, () -> Solver.solve(new FlatLevel(2048, 2049, Game.UNTOUCHED)));
+    }
+
+    /**
+     * a level whose even rows are revealed empty fields and whose odd rows are
+     * hidden, all hidden fields form one component.
+     */
+    private static Level stripes(int size) {
+        Level level = new FlatLevel(size, size, Game.UNTOUCHED);
+
+        for (int y = 0; y < size; y += 2)
+            for (int x = 0; x < size; x++)
+                level.set(y, x, (char) (Game.EMPTY + FloodFill.REVEALED_OFFSET));
+
+        return level;
+    }
+
+    @Test
+    public void limitTest() {
+        // 128 constraints of 128 fields fit into bitsets, 32768 don't and only
+        // use the first rule
+        for (int size : new int[] {16, 256}) {
+            Solution solution = Solver.solve(stripes(size));
+
+            assertEquals(size * size / 2, solution.getSafe().size(), "wrong number of safe fields");
+            assertTrue(solution.getMines().isEmpty(), "wrong bombs");
+        }
+
+        // too many frontier fields
+        assertTrue(Solver.solve(stripes(1024)).isEmpty(), "a level above the limit was solved");
+    }
+
+    /**
+     * compares the solver with trying every assignment of the frontier on
+     * small random boards.
+     */
+    @Test
+    public void bruteForceTest() {
+        Random random = new Random(42);
+        int compared = 0;
+
+        for (int round = 0; round < 2000; round++) {
+            int sizeY = 4 + random.nextInt(3);
+            int sizeX = 4 + random.nextInt(3);
+            Level level = Level.generateNew(sizeY, sizeX, 2 + random.nextInt(sizeY * sizeX / 4), random);
+            FieldCalculator.calculate(level);
+
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++) {
+                    char value = level.get(y, x);
+
+                    if (value == Game.BOMB && random.nextInt(4) == 0)
+                        flag(level, y, x);
+                    else if (value != Game.BOMB && random.nextInt(2) == 0)
+                        level.set(y, x, (char) (value + FloodFill.REVEALED_OFFSET));
+                }
+            }
+
+            // the hidden fields next to a number
+            CellSet frontier = new CellSet();
+
+            for (int y = 0; y < sizeY; y++) {
+                for (int x = 0; x < sizeX; x++) {
+                    char value = level.get(y, x);
+
+                    if (isRevealed(value) || isFlagged(value))
+                        continue;
+
+                    boolean next = false;
+
+                    for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++)
+                        for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++)
+                            next |= isRevealed(level.get(ny, nx));
+
+                    if (next)
+                        frontier.add(y, x);
+                }
+            }
+
+            if (frontier.size() > 12)
+                continue;
+
+            int[] bombsIn = new int[frontier.size()];
+            int solutions = 0;
+
+            for (int mask = 0; mask < 1 << frontier.size(); mask++) {
+                if (!satisfies(level, frontier, mask))
+                    continue;
+
+                solutions++;
+
+                for (int i = 0; i < frontier.size(); i++)
+                    if ((mask & 1 << i) != 0)
+                        bombsIn[i]++;
+            }
+
+            assertTrue(solutions > 0, "the real bombs must satisfy the numbers");
+
+            Set<Integer> safe = new HashSet<>();
+            Set<Integer> mines = new HashSet<>();
+
+            for (int i = 0; i < frontier.size(); i++) {
+                if (bombsIn[i] == 0)
+                    safe.add(frontier.getY(i) * sizeX + frontier.getX(i));
+                else if (bombsIn[i] == solutions)
+                    mines.add(frontier.getY(i) * sizeX + frontier.getX(i));
+            }
+
+            Solution solution = Solver.solve(level);
+
+            assertEquals(safe, fields(solution.getSafe(), sizeX), "wrong safe fields in round " + round);
+            assertEquals(mines, fields(solution.getMines(), sizeX), "wrong bombs in round " + round);
+            compared++;
+        }
+
+        assertTrue(compared > 1000, "too few boards compared");
+    }
+
+    private static boolean satisfies(Level level, CellSet frontier, int mask) {
+        int sizeY = level.getSizeY();
+        int sizeX = level.getSizeX();
+
+        for (int y = 0; y < sizeY; y++) {
+            for (int x = 0; x < sizeX; x++) {
+                char value = level.get(y, x);
+
+                if (!isRevealed(value))
+                    continue;
+
+                int bombs = 0;
+
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ny++)
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); nx++)
+                        if (isFlagged(level.get(ny, nx)))
+                            bombs++;
+
+                for (int i = 0; i < frontier.size(); i++)
+                    if ((mask & 1 << i) != 0 && Math.abs(frontier.getY(i) - y) <= 1
+                            && Math.abs(frontier.getX(i) - x) <= 1)
+                        bombs++;
+
+                if (bombs != value - 'A')
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * plays expert games: the solver's moves must never hit a bomb, a guess
+     * is made with knowledge of the bombs.
+     */
+    @Test
+    public void botTest() {
+        Random random = new Random(7);
+        int moves = 0;
+        int guesses = 0;
+
+        for (int game = 0; game < 50; game++) {
+            Level level = Level.generateNew(16, 30, 99, random);
+            FieldCalculator.calculate(level);
+            CellSet revealed = new CellSet();
+            int hidden = 16 * 30 - 99;
+
+            while (hidden > 0) {
+                Solution solution = Solver.solve(level, 99);
+                CellSet safe = solution.getSafe();
+                CellSet mines = solution.getMines();
+
+                for (int i = 0; i < mines.size(); i++) {
+                    assertEquals(Game.BOMB, level.get(mines.getY(i), mines.getX(i)), "a safe field was a bomb");
+                    flag(level, mines.getY(i), mines.getX(i));
+                }
+
+                for (int i = 0; i < safe.size(); i++) {
+                    assertFalse(level.get(safe.getY(i), safe.getX(i)) == Game.BOMB, "a bomb was safe");
+                    hidden -= FloodFill.reveal(level, safe.getY(i), safe.getX(i), revealed);
+                    moves++;
+                }
+
+                if (solution.isEmpty()) {
+                    int y;
+                    int x;
+
+                    do {
+                        y = random.nextInt(16);
+                        x = random.nextInt(30);
+                    } while (!FloodFill.isRevealable(level.get(y, x)));
+
+                    hidden -= FloodFill.reveal(level, y, x, revealed);
+                    guesses++;
+                }
+            }
+        }
+
+        assertTrue(moves > guesses * 5, "the solver found too few moves: " + moves + " moves, " + guesses
+                + " guesses");
+    }
+}
@@ -0,0 +1,137 @@
+package game.tests;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.BoardPool;
+import game.Game;
+import game.data.Level;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class BoardPoolTest {
+    private static final int[][] PRESETS = {{8, 8, 10}, {16, 30, 99}};
+
+    private static void assertReady(Level level, int y, int x, int b) {
+        int bombs = 0;
+
+        assertEquals(y, level.getSizeY());
+        assertEquals(x, level.getSizeX());
+
+        for (int i = 0; i < y; i++) {
+            for (int j = 0; j < x; j++) {
+                assertTrue(level.get(i, j) != Game.UNTOUCHED, "the numbers aren't calculated");
+
+                if (level.get(i, j) == Game.BOMB)
+                    bombs++;
+            }
+        }
+
+        assertEquals(b, bombs, "wrong number of bombs");
+    }
+
+    @Test
+    public void presetTest() throws Exception {
+        AtomicInteger tasks = new AtomicInteger();
+        Executor direct = task -> {
+            tasks.incrementAndGet();
+            task.run();
+        };
+        BoardPool pool = new BoardPool(direct, PRESETS);
+
+        // before the start nothing is prepared, small levels are generated
+        // by the caller
+        CompletableFuture<Level> first = pool.take(8, 8, 10);
+        assertTrue(first.isDone());
+        assertReady(first.get(), 8, 8, 10);
+        assertEquals(0, tasks.get(), "a level was prepared before the start");
+
+        pool.start();
+        assertEquals(2, pool.getPrepared(), "the presets weren't prepared");
+
+        CompletableFuture<Level> hard = pool.take(16, 30, 99);
+        assertTrue(hard.isDone(), "a prepared level wasn't ready");
+        assertReady(hard.get(), 16, 30, 99);
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+
+        // the taken level was replaced
+        assertEquals(2, pool.getPrepared());
+        assertNotSame(hard.get(), pool.take(16, 30, 99).get());
+        assertEquals(2, pool.getHits());
+    }
+
+    @Test
+    public void customSizeTest() throws Exception {
+        BoardPool pool = new BoardPool(Runnable::run, PRESETS);
+        pool.start();
+
+        assertReady(pool.take(100, 100, 1000).get(), 100, 100, 1000);
+        assertEquals(3, pool.getPrepared(), "the custom size wasn't prepared");
+        assertEquals(1, pool.getMisses());
+
+        pool.take(100, 100, 1000);
+        assertEquals(1, pool.getHits(), "the custom level wasn't prepared");
+
+        // only the last custom size is kept
+        pool.take(50, 70, 300);
+        assertEquals(3, pool.getPrepared());
+        pool.take(100, 100, 1000);
+        assertEquals(3, pool.getMisses(), "the old custom level was kept");
+    }
+
+    @Test
+    public void notReadyTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Executor slow = task -> new Thread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            task.run();
+        }).start();
+        BoardPool pool = new BoardPool(slow, PRESETS);
+
+        // the level can't be played before it is complete
+        CompletableFuture<Level> level = pool.take(300, 300, 9000);
+        assertFalse(level.isDone());
+
+        release.countDown();
+        assertReady(level.get(10, TimeUnit.SECONDS), 300, 300, 9000);
+    }
+
+    @Test
+    public void failureTest() {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("full");
+        };
+        BoardPool pool = new BoardPool(rejecting, PRESETS);
+
+        // a busy executor only keeps levels from being prepared
+        pool.start();
+        assertEquals(0, pool.getPrepared());
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> pool.take(300, 300, 10).get());
+        assertTrue(failure.getCause() instanceof RejectedExecutionException);
+
+        failure = assertThrows(ExecutionException.class, () -> pool.take(4, 4, 16).get());
+        assertTrue(failure.getCause() instanceof IllegalStateException, "too many bombs");
+
+        // too big to be kept
+        assertEquals(0, pool.getPrepared());
+        assertTrue(BoardPool.PREPARE_LIMIT < 5000L * 5000);
+    }
+}
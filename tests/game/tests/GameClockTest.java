@@ -0,0 +1,87 @@
+package game.tests;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import game.GameClock;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class GameClockTest {
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    public void pauseAndResumeTest() {
+        AtomicLong now = new AtomicLong(123_456_789L);
+        GameClock clock = new GameClock(now::get);
+
+        assertFalse(clock.isRunning());
+        assertEquals(0, clock.getElapsedMillis());
+
+        clock.resume();
+        now.addAndGet(1500 * MILLIS + 999_999);
+        assertTrue(clock.isRunning());
+        assertEquals(1500, clock.getElapsedMillis(), "millisecond resolution");
+
+        clock.pause();
+        now.addAndGet(60_000 * MILLIS);
+        assertEquals(1500, clock.getElapsedMillis(), "paused time was counted");
+
+        // resuming a running clock or pausing a paused one changes nothing
+        clock.pause();
+        clock.resume();
+        now.addAndGet(500 * MILLIS);
+        clock.resume();
+        assertEquals(2000, clock.getElapsedMillis(), "sub-millisecond remainders are kept");
+    }
+
+    @Test
+    public void resetTest() {
+        AtomicLong now = new AtomicLong();
+        GameClock clock = new GameClock(now::get);
+
+        clock.resume();
+        now.addAndGet(10_000 * MILLIS);
+        clock.reset(42_000);
+
+        assertFalse(clock.isRunning());
+        assertEquals(42_000, clock.getElapsedMillis());
+
+        clock.resume();
+        now.addAndGet(1 * MILLIS);
+        assertEquals(42_001, clock.getElapsedMillis());
+
+        assertThrows(IllegalArgumentException.class, () -> clock.reset(-1));
+        assertThrows(IllegalArgumentException.class, () -> new GameClock(null));
+    }
+
+    @Test
+    public void driftTest() throws InterruptedException {
+        GameClock clock = new GameClock();
+        long start = System.nanoTime();
+
+        clock.resume();
+
+        // a busy thread doesn't make the clock lose time, unlike counted sleeps
+        for (int i = 0; i < 20; i++) {
+            Thread.sleep(10);
+            busy();
+        }
+
+        long elapsed = (System.nanoTime() - start) / MILLIS;
+        long measured = clock.getElapsedMillis();
+
+        assertTrue(Math.abs(elapsed - measured) <= 2, "clock drifted: " + measured + " ms of " + elapsed + " ms");
+    }
+
+    private static void busy() {
+        long until = System.nanoTime() + 2 * MILLIS;
+
+        while (System.nanoTime() < until)
+            Thread.onSpinWait();
+    }
+}
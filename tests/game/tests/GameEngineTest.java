@@ -0,0 +1,472 @@
+package game.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import game.Game;
+import game.GameEngine;
+import game.GameListener;
+import game.data.CellSet;
+import game.data.FieldCalculator;
+import game.data.Level;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class GameEngineTest {
+    private static GameEngine loaded(char[][] data) {
+        Level level = Level.fromExistingData(data);
+        FieldCalculator.calculate(level);
+
+        GameEngine engine = new GameEngine();
+        engine.loadGame(level);
+        return engine;
+    }
+
+    @Test
+    public void victoryTest() {
+        GameEngine engine = loaded(new char[][] {{'O','O','O'}, {'O','O','O'}, {'O','O','@'}});
+        List<String> events = new ArrayList<>();
+
+        engine.addListener(new GameListener() {
+            @Override
+            public void fieldsChanged(GameEngine e, CellSet changed) {
+                events.add("changed:" + changed.size());
+            }
+
+            @Override
+            public void gameOver(GameEngine e, boolean victory) {
+                events.add("over:" + victory);
+            }
+        });
+
+        assertEquals(8, engine.getSafeFields(), "wrong number of safe fields");
+        assertEquals(1, engine.getNumBombs(), "wrong number of bombs");
+
+        assertEquals(8, engine.reveal(0, 0), "region not revealed");
+        assertFalse(engine.isRunning(), "game still running");
+        assertTrue(engine.isVictory(), "game not won");
+        assertEquals(List.of("changed:8", "over:true"), events);
+
+        // nothing happens after the game is over
+        assertEquals(0, engine.reveal(2, 2), "field revealed after game over");
+    }
+
+    @Test
+    public void flagAndDefeatTest() {
+        GameEngine engine = loaded(new char[][] {{'@','O'}, {'O','O'}});
+        boolean[] lost = new boolean[1];
+
+        engine.addListener(new GameListener() {
+            @Override
+            public void gameOver(GameEngine e, boolean victory) {
+                lost[0] = !victory;
+            }
+        });
+
+        assertTrue(engine.toggleFlag(0, 0), "bomb not flagged");
+        assertEquals(Game.FLAGGED_BOMB, engine.getField(0, 0));
+        assertEquals(0, engine.getBombCount(), "bomb counter not decremented");
+
+        assertTrue(engine.toggleFlag(0, 1), "field not flagged");
+        assertEquals(0, engine.reveal(0, 1), "flagged field was revealed");
+        assertTrue(engine.toggleFlag(0, 1), "field not unflagged");
+        assertEquals('1', engine.getField(0, 1));
+
+        assertTrue(engine.toggleFlag(0, 0), "bomb not unflagged");
+        assertEquals(-1, engine.getExplodedY(), "exploded before the game was lost");
+        assertEquals(0, engine.reveal(0, 0));
+        assertTrue(lost[0], "hitting a bomb must end the game");
+        assertFalse(engine.isRunning(), "game still running");
+
+        // moves after the game is over don't move the explosion
+        engine.reveal(1, 1);
+        assertEquals(0, engine.getExplodedY(), "wrong exploded bomb");
+        assertEquals(0, engine.getExplodedX(), "wrong exploded bomb");
+    }
+
+    @Test
+    public void loadRevealedAndFlaggedTest() {
+        // '#' flagged bomb, 'b' flagged 1, 'B' revealed 1
+        GameEngine engine = new GameEngine();
+        engine.loadGame(Level.fromExistingData(new char[][] {{'#','b'}, {'B','1'}}));
+
+        assertEquals(1, engine.getNumBombs(), "wrong number of bombs");
+        assertEquals(0, engine.getBombCount(), "wrong bomb counter");
+        assertEquals(2, engine.getSafeFields(), "wrong number of safe fields");
+        assertTrue(engine.isRunning(), "game not running");
+    }
+
+    @Test
+    public void independentEnginesTest() throws Exception {
+        final int games = 2000;
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        final List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < games; i++) {
+            results.add(pool.submit(() -> {
+                GameEngine engine = new GameEngine();
+                engine.newGame(9, 9, 10);
+
+                // a bot that knows where the bombs are, every game must be won
+                for (int y = 0; y < 9 && engine.isRunning(); y++)
+                    for (int x = 0; x < 9 && engine.isRunning(); x++)
+                        if (engine.getField(y, x) != Game.BOMB && ThreadLocalRandom.current().nextBoolean())
+                            engine.reveal(y, x);
+
+                for (int y = 0; y < 9 && engine.isRunning(); y++)
+                    for (int x = 0; x < 9 && engine.isRunning(); x++)
+                        if (engine.getField(y, x) != Game.BOMB)
+                            engine.reveal(y, x);
+
+                return engine.isVictory() && engine.getSafeFields() == 0;
+            }));
+        }
+
+        for (Future<Boolean> result : results)
+            assertTrue(result.get(), "a game was not won");
+
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static int count(GameEngine engine, char from, char to) {
+        int count = 0;
+
+        for (int y = 0; y < engine.getSizeY(); y++)
+            for (int x = 0; x < engine.getSizeX(); x++)
+                if (engine.getField(y, x) >= from && engine.getField(y, x) <= to)
+                    count++;
+
+        return count;
+    }
+
+    private static void runConcurrently(int threads, IntConsumerTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<?> future : futures)
+            future.get(60, TimeUnit.SECONDS);
+
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private interface IntConsumerTask {
+        void run(int thread) throws Exception;
+    }
+
+    @Test
+    public void concurrentRevealStressTest() throws Exception {
+        final int size = 300;
+        final int threads = 6;
+
+        Level level = Level.generateNew(size, size, size * size / 8, new Random(7));
+        FieldCalculator.calculate(level);
+
+        GameEngine engine = new GameEngine();
+        engine.loadGame(level);
+
+        final long safeFields = engine.getSafeFields();
+        final long numBombs = engine.getNumBombs();
+
+        List<int[]> safe = new ArrayList<>();
+        List<int[]> bombs = new ArrayList<>();
+
+        for (int y = 0; y < size; y++)
+            for (int x = 0; x < size; x++)
+                (engine.getField(y, x) == Game.BOMB ? bombs : safe).add(new int[] {y, x});
+
+        AtomicIntegerArray reported = new AtomicIntegerArray(size * size);
+        AtomicInteger gameOvers = new AtomicInteger();
+        AtomicLong revealed = new AtomicLong();
+
+        engine.addListener(new GameListener() {
+            @Override
+            public void moveMade(GameEngine e, int move, int positionY, int positionX) {
+                assertTrue(e.getSafeFields() >= 0, "negative number of safe fields");
+            }
+
+            @Override
+            public void fieldsChanged(GameEngine e, CellSet changed) {
+                for (int i = 0; i < changed.size(); i++)
+                    if (e.getField(changed.getY(i), changed.getX(i)) < 'a')
+                        reported.incrementAndGet(changed.getY(i) * size + changed.getX(i));
+            }
+
+            @Override
+            public void gameOver(GameEngine e, boolean victory) {
+                assertTrue(victory, "the game was lost");
+                gameOvers.incrementAndGet();
+            }
+        });
+
+        // most threads reveal every safe field in their own order, the others
+        // flag and unflag the bombs an even number of times meanwhile
+        runConcurrently(threads, thread -> {
+            if (thread < 2) {
+                for (int round = 0; round < 4; round++)
+                    for (int[] bomb : bombs)
+                        assertTrue(engine.toggleFlag(bomb[0], bomb[1]) || !engine.isRunning());
+            } else {
+                List<int[]> order = new ArrayList<>(safe);
+                Collections.shuffle(order, new Random(thread));
+
+                for (int[] field : order)
+                    revealed.addAndGet(engine.reveal(field[0], field[1]));
+            }
+        });
+
+        assertEquals(safeFields, revealed.get(), "a field was revealed twice or not at all");
+        assertEquals(0, engine.getSafeFields());
+        assertEquals(safeFields, count(engine, 'A', 'I'), "wrong number of revealed fields");
+        assertEquals(1, gameOvers.get(), "the end of the game was not reported exactly once");
+        assertTrue(engine.isVictory(), "game not won");
+
+        for (int[] field : safe)
+            assertEquals(1, reported.get(field[0] * size + field[1]),
+                    "field " + field[0] + "x" + field[1] + " was not reported exactly once");
+
+        // every bomb was flagged and unflagged by both flagging threads, as
+        // long as the game was running
+        assertEquals(numBombs - count(engine, Game.FLAGGED_BOMB, Game.FLAGGED_BOMB), engine.getBombCount(),
+                "bomb counter doesn't match the flags");
+    }
+
+    @Test
+    public void concurrentReplayTest() throws Exception {
+        final int size = 40;
+        final int threads = 4;
+
+        for (int game = 0; game < 20; game++) {
+            Level level = Level.generateNew(size, size, size * size / 6, new Random(game));
+            FieldCalculator.calculate(level);
+            Level original = level.copy();
+
+            GameEngine engine = new GameEngine();
+            engine.loadGame(level);
+
+            List<int[]> moves = Collections.synchronizedList(new ArrayList<>());
+
+            engine.addListener(new GameListener() {
+                @Override
+                public void moveMade(GameEngine e, int move, int positionY, int positionX) {
+                    moves.add(new int[] {move, positionY, positionX});
+                }
+            });
+
+            // half of the threads reveal safe fields, the others toggle flags
+            // on the same fields meanwhile
+            runConcurrently(threads, thread -> {
+                Random random = new Random(thread);
+
+                for (int i = 0; i < 2000; i++) {
+                    int y = random.nextInt(size);
+                    int x = random.nextInt(size);
+
+                    if (original.get(y, x) == Game.BOMB)
+                        continue;
+
+                    if (thread % 2 == 0)
+                        engine.reveal(y, x);
+                    else
+                        engine.toggleFlag(y, x);
+                }
+            });
+
+            // the reported moves replay to the same game
+            GameEngine replayed = new GameEngine();
+            replayed.loadGame(original);
+
+            for (int[] move : moves) {
+                if (move[0] == GameEngine.MOVE_REVEAL)
+                    replayed.reveal(move[1], move[2]);
+                else if ((move[0] == GameEngine.MOVE_FLAG) != replayed.isFlagged(move[1], move[2]))
+                    replayed.toggleFlag(move[1], move[2]);
+            }
+
+            for (int y = 0; y < size; y++)
+                for (int x = 0; x < size; x++)
+                    assertEquals(engine.getField(y, x), replayed.getField(y, x),
+                            "field " + y + "x" + x + " differs after replay of game " + game);
+
+            assertEquals(engine.getSafeFields(), replayed.getSafeFields(), "wrong number of safe fields");
+        }
+    }
+
+    @Test
+    public void concurrentFlagStressTest() throws Exception {
+        final int size = 64;
+        final int threads = 4;
+        final int toggles = 20_000;
+
+        GameEngine engine = new GameEngine();
+        engine.newGame(size, size, size * size / 5);
+
+        final long numBombs = engine.getNumBombs();
+        AtomicIntegerArray flips = new AtomicIntegerArray(size * size);
+
+        runConcurrently(threads, thread -> {
+            Random random = new Random(thread);
+
+            for (int i = 0; i < toggles; i++) {
+                int y = random.nextInt(size);
+                int x = random.nextInt(size);
+
+                assertTrue(engine.toggleFlag(y, x), "hidden field not toggled");
+                flips.incrementAndGet(y * size + x);
+            }
+        });
+
+        long flaggedBombs = 0;
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                // a field is flagged if it was toggled an odd number of times
+                assertEquals(flips.get(y * size + x) % 2 == 1, engine.isFlagged(y, x),
+                        "field " + y + "x" + x + " has the wrong flag");
+
+                if (engine.getField(y, x) == Game.FLAGGED_BOMB)
+                    flaggedBombs++;
+            }
+        }
+
+        assertEquals(numBombs - flaggedBombs, engine.getBombCount(), "bomb counter doesn't match the flags");
+    }
+
+    @Test
+    public void flagDuringRevealTest() throws Exception {
+        Level calculated = Level.fromExistingData(new char[][] {{'O','O','O','O','O','@'}});
+        FieldCalculator.calculate(calculated);
+
+        PausingLevel level = new PausingLevel(calculated);
+        GameEngine engine = new GameEngine();
+        engine.loadGame(level);
+
+        List<Integer> moves = Collections.synchronizedList(new ArrayList<>());
+
+        engine.addListener(new GameListener() {
+            @Override
+            public void moveMade(GameEngine e, int move, int positionY, int positionX) {
+                moves.add(move);
+            }
+        });
+
+        assertTrue(engine.toggleFlag(0, 2), "field not flagged");
+
+        // the region reads the flag, then another thread removes it before the
+        // region is complete
+        ExecutorService flagger = Executors.newSingleThreadExecutor();
+        level.pause(0, 2, () -> flagger.submit(() -> engine.toggleFlag(0, 2)).get(10, TimeUnit.SECONDS));
+
+        assertEquals(5, engine.reveal(0, 0), "region not continued behind the removed flag");
+        assertTrue(level.paused, "the region didn't read the flag");
+        assertEquals(5, count(engine, 'A', 'I'), "wrong number of revealed fields");
+        assertEquals(List.of(GameEngine.MOVE_FLAG, GameEngine.MOVE_UNFLAG, GameEngine.MOVE_REVEAL), moves,
+                "the moves were not reported in the order they took effect");
+
+        flagger.shutdown();
+        assertTrue(flagger.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * a level which runs a task the first time the current thread reads a
+     * flagged field.
+     */
+    private static final class PausingLevel implements Level {
+        private final Level level;
+        private Thread reader;
+        private int pauseY;
+        private int pauseX;
+        private Callable<Boolean> task;
+        private volatile boolean paused;
+
+        PausingLevel(Level level) {
+            this.level = level;
+        }
+
+        void pause(int positionY, int positionX, Callable<Boolean> task) {
+            this.reader = Thread.currentThread();
+            this.pauseY = positionY;
+            this.pauseX = positionX;
+            this.task = task;
+        }
+
+        @Override
+        public char get(int positionY, int positionX) {
+            char value = level.get(positionY, positionX);
+
+            if (!paused && Thread.currentThread() == reader && positionY == pauseY && positionX == pauseX
+                    && value >= 'a' && value <= 'i') {
+                paused = true;
+
+                try {
+                    assertTrue(task.call(), "the flag was not removed");
+                } catch (Exception e) {
+                    throw new AssertionError("the flag waited for the region", e);
+                }
+            }
+
+            return value;
+        }
+
+        @Override
+        public void set(int positionY, int positionX, char value) {
+            level.set(positionY, positionX, value);
+        }
+
+        @Override
+        public void increment(int positionY, int positionX) {
+            level.increment(positionY, positionX);
+        }
+
+        @Override
+        public boolean compareAndSet(int positionY, int positionX, char expected, char value) {
+            return level.compareAndSet(positionY, positionX, expected, value);
+        }
+
+        @Override
+        public int getSizeY() {
+            return level.getSizeY();
+        }
+
+        @Override
+        public int getSizeX() {
+            return level.getSizeX();
+        }
+
+        @Override
+        @Deprecated
+        public char[][] getLevelData() {
+            return level.getLevelData();
+        }
+    }
+}
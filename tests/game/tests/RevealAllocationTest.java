@@ -0,0 +1,91 @@
+package game.tests;
+
+import java.lang.management.ManagementFactory;
+
+import game.Game;
+import game.GameEngine;
+import game.GameListener;
+import game.data.CellSet;
+import game.data.FieldCalculator;
+import game.data.Level;
+import game.gui.RenderQueue;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+
+public class RevealAllocationTest {
+    private static final int SIZE = 600;
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void revealAllocationTest() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        allocatedBytes(threads);
+
+        // a bomb on every other field of every other row, so every safe field
+        // has a number and a reveal uncovers exactly one field
+        char[][] data = new char[SIZE][SIZE];
+
+        for (int y = 0; y < SIZE; y++)
+            for (int x = 0; x < SIZE; x++)
+                data[y][x] = y % 2 == 0 && x % 2 == 0 ? Game.BOMB : Game.UNTOUCHED;
+
+        Level level = Level.fromExistingData(data);
+        FieldCalculator.calculate(level);
+
+        GameEngine engine = new GameEngine();
+        RenderQueue queue = new RenderQueue((fromY, fromX, toY, toX) -> {
+        });
+        long[] counters = new long[1];
+
+        // the same path as the game, the engine reports to the render queue
+        engine.addListener(new GameListener() {
+            @Override
+            public void fieldsChanged(GameEngine engine, CellSet changed) {
+                queue.cellsChanged(changed);
+            }
+
+            @Override
+            public void countersChanged(GameEngine engine) {
+                counters[0] += engine.getBombCount();
+            }
+        });
+        engine.loadGame(level);
+
+        int reveals = 0;
+        long before = 0;
+        int measured = 0;
+
+        // the first half warms up the code, the second half is measured
+        for (int y = 0; y < SIZE; y++) {
+            if (y == SIZE / 2) {
+                before = allocatedBytes(threads);
+                measured = reveals;
+            }
+
+            for (int x = 0; x < SIZE; x++)
+                if (data[y][x] != Game.BOMB)
+                    reveals += engine.reveal(y, x);
+        }
+
+        long allocated = allocatedBytes(threads) - before;
+        measured = reveals - measured;
+
+        assertEquals(SIZE * SIZE - SIZE * SIZE / 4, reveals, "every reveal should uncover one field");
+        assertTrue(counters[0] > 0);
+
+        // only the scheduling of a frame allocates, which is less than a byte
+        // per reveal
+        assertEquals(0, allocated / measured, allocated + " bytes allocated by " + measured + " reveals");
+    }
+}
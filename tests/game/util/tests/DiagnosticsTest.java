@@ -0,0 +1,109 @@
+package game.util.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import game.util.Diagnostics;
+import game.util.Diagnostics.Severity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class DiagnosticsTest {
+    private ByteArrayOutputStream bytes;
+    private Severity threshold;
+
+    @BeforeEach
+    public void setUp() {
+        bytes = new ByteArrayOutputStream();
+        threshold = Diagnostics.getThreshold();
+        Diagnostics.setOutput(new PrintStream(bytes, true));
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Diagnostics.flush();
+        Diagnostics.setThreshold(threshold);
+        Diagnostics.setOutput(System.out);
+    }
+
+    @Test
+    public void thresholdTest() throws InterruptedException {
+        Diagnostics.setThreshold(Severity.INFO);
+
+        assertFalse(Diagnostics.isEnabled(Severity.DEBUG));
+        assertTrue(Diagnostics.isEnabled(Severity.ERROR));
+
+        Diagnostics.debug("test", "hidden");
+        Diagnostics.info("test", "first");
+        Diagnostics.error("test", "second", new IOException("cause"));
+
+        Diagnostics.setThreshold(Severity.OFF);
+        Diagnostics.error("test", "switched off", null);
+
+        Diagnostics.setThreshold(Severity.DEBUG);
+        Diagnostics.debug("input", "third");
+        Diagnostics.flush();
+
+        String[] lines = bytes.toString().split("\\R");
+
+        assertFalse(bytes.toString().contains("hidden"));
+        assertFalse(bytes.toString().contains("switched off"));
+        assertTrue(lines[0].endsWith(" INFO [" + Thread.currentThread().getName() + "] test: first"), lines[0]);
+        assertTrue(lines[1].endsWith(" ERROR [" + Thread.currentThread().getName() + "] test: second"), lines[1]);
+        assertEquals("java.io.IOException: cause", lines[2]);
+        assertTrue(bytes.toString().contains(" DEBUG [" + Thread.currentThread().getName() + "] input: third"));
+    }
+
+    @Test
+    public void ringBufferTest() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // an output that blocks, the writer falls behind
+        Diagnostics.setOutput(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                blocked.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                bytes.write(b);
+            }
+        }, true));
+        Diagnostics.setThreshold(Severity.INFO);
+
+        long dropped = Diagnostics.getDropped();
+        Diagnostics.info("test", "blocking");
+        blocked.await();
+
+        // the reporting thread doesn't wait for the output
+        long start = System.nanoTime();
+
+        for (int i = 0; i < Diagnostics.CAPACITY + 100; i++)
+            Diagnostics.info("test", "event " + i);
+
+        long elapsed = System.nanoTime() - start;
+
+        release.countDown();
+        Diagnostics.flush();
+
+        assertEquals(100, Diagnostics.getDropped() - dropped, "oldest events weren't dropped");
+        assertFalse(bytes.toString().contains("test: event 99" + System.lineSeparator()), "a dropped event was written");
+        assertTrue(bytes.toString().contains("test: event 100"));
+        assertTrue(bytes.toString().contains("test: event " + (Diagnostics.CAPACITY + 99)));
+        assertTrue(elapsed < 2_000_000_000L, "reporting waited for the output");
+    }
+}
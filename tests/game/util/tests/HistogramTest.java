@@ -0,0 +1,113 @@
+package game.util.tests;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import game.util.Histogram;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+
+public class HistogramTest {
+    private static void assertClose(long expected, long actual, String what) {
+        assertTrue(actual >= expected && actual <= expected + expected / 8,
+                what + ": expected " + expected + " (+12.5%) but was " + actual);
+    }
+
+    @Test
+    public void percentileTest() {
+        Histogram histogram = new Histogram("ns");
+
+        for (long v = 1; v <= 100_000; v++)
+            histogram.record(v);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(50_000.5, snapshot.getMean(), 0.001);
+        assertEquals(100_000, snapshot.getMax());
+        assertClose(50_000, snapshot.getP50(), "p50");
+        assertClose(90_000, snapshot.getP90(), "p90");
+        assertClose(99_000, snapshot.getP99(), "p99");
+        assertEquals("ns", snapshot.getUnit());
+    }
+
+    @Test
+    public void smallAndHugeValuesTest() {
+        Histogram histogram = new Histogram("fields");
+
+        histogram.record(-5);
+        histogram.record(0);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(4, snapshot.getCount());
+        assertEquals(0, snapshot.getP50(), "small values are exact");
+        assertEquals(Long.MAX_VALUE, snapshot.getMax());
+        assertEquals(Long.MAX_VALUE, snapshot.getP99());
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getP99());
+    }
+
+    @Test
+    public void concurrentTest() throws Exception {
+        Histogram histogram = new Histogram("ns");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 250_000; i++)
+                    histogram.record(i % 1000 + offset);
+            }));
+        }
+
+        for (Future<?> future : futures)
+            future.get();
+
+        executor.shutdown();
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_000_000, snapshot.getCount(), "records were lost");
+        assertEquals(1002, snapshot.getMax());
+    }
+
+    @Test
+    public void allocationFreeTest() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Histogram histogram = new Histogram("ns");
+        long id = Thread.currentThread().getId();
+
+        for (int i = 0; i < 100_000; i++)
+            histogram.recordSince(System.nanoTime() - i);
+
+        threads.getThreadAllocatedBytes(id);
+        long before = threads.getThreadAllocatedBytes(id);
+
+        for (int i = 0; i < 100_000; i++)
+            histogram.recordSince(System.nanoTime() - i);
+
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        assertEquals(0, allocated / 100_000, allocated + " bytes allocated by 100000 records");
+    }
+}
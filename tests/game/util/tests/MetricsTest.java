@@ -0,0 +1,58 @@
+package game.util.tests;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import game.GameEngine;
+import game.util.GameExecutors;
+import game.util.Histogram;
+import game.util.Metrics;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class MetricsTest {
+    @Test
+    public void snapshotTest() {
+        long before = Metrics.BOARD_GENERATION.getCount();
+
+        new GameEngine().newGame(100, 100, 1000);
+
+        Map<String, Histogram.Snapshot> snapshots = Metrics.snapshot();
+
+        assertEquals(before + 1, snapshots.get("BoardGeneration").getCount());
+        assertTrue(snapshots.get("CalculateFields").getMax() > 0, "calculating the fields wasn't measured");
+        assertTrue(snapshots.containsKey("RenderFlush"));
+    }
+
+    @Test
+    public void jmxTest() throws Exception {
+        Metrics.register();
+        Metrics.register();
+
+        Metrics.SAVE_BYTES.record(1234);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CompositeData saveBytes = (CompositeData) server.getAttribute(new ObjectName(Metrics.OBJECT_NAME),
+                "SaveBytes");
+
+        assertEquals("bytes", saveBytes.get("unit"));
+        assertTrue((Long) saveBytes.get("count") >= 1);
+        assertTrue((Long) saveBytes.get("max") >= 1234);
+
+        CompositeData[] queues = (CompositeData[]) server.getAttribute(new ObjectName(Metrics.OBJECT_NAME),
+                "TaskQueues");
+
+        assertEquals(GameExecutors.Subsystem.values().length, queues.length);
+        assertEquals("io", queues[0].get("name"));
+
+        server.invoke(new ObjectName(Metrics.OBJECT_NAME), "reset", null, null);
+        assertEquals(0, Metrics.SAVE_BYTES.getCount());
+    }
+}
@@ -0,0 +1,237 @@
+package game.util.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import game.GameEngine;
+import game.data.FieldCalculator;
+import game.data.Level;
+import game.util.MoveJournal;
+import game.util.SaveGame;
+import game.util.SaveGameUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class MoveJournalTest {
+    private static final char[][] BOARD = {
+        {'@','O','O','O','O'},
+        {'O','O','O','O','O'},
+        {'O','O','O','O','O'},
+        {'O','O','O','O','@'},
+    };
+
+    private Path file;
+
+    @BeforeEach
+    public void createFile() throws IOException {
+        file = Files.createTempFile("jminesweeper", ".sav");
+    }
+
+    @AfterEach
+    public void deleteFile() throws IOException {
+        MoveJournal.delete(file);
+        Files.deleteIfExists(file);
+    }
+
+    private static GameEngine newEngine() {
+        Level level = Level.fromExistingData(BOARD);
+        FieldCalculator.calculate(level);
+
+        GameEngine engine = new GameEngine();
+        engine.loadGame(level);
+        return engine;
+    }
+
+    private static SaveGame snapshot(GameEngine engine) {
+        return new SaveGame(engine.getLevel().copy(), engine.getNumBombs(), engine.getBombCount(), engine.getSafeFields(),
+                0);
+    }
+
+    private GameEngine load() throws IOException {
+        GameEngine engine = new GameEngine();
+        engine.loadGame(SaveGameUtility.readSaveGame(file).getLevel());
+        MoveJournal.replay(file, engine);
+        return engine;
+    }
+
+    private static void assertSameGame(GameEngine expected, GameEngine actual) {
+        assertEquals(expected.getBombCount(), actual.getBombCount(), "wrong bomb counter");
+        assertEquals(expected.getSafeFields(), actual.getSafeFields(), "wrong number of safe fields");
+
+        for (int y = 0; y < expected.getSizeY(); y++)
+            for (int x = 0; x < expected.getSizeX(); x++)
+                assertEquals(expected.getField(y, x), actual.getField(y, x), "position " + y + "," + x + " differs");
+    }
+
+    @Test
+    public void replayTest() throws IOException {
+        GameEngine engine = newEngine();
+        SaveGameUtility.saveBinary(file, snapshot(engine));
+
+        MoveJournal journal = MoveJournal.start(file, engine, () -> snapshot(engine), Runnable::run, 60000, 1000);
+
+        engine.toggleFlag(0, 0);
+        engine.toggleFlag(3, 0);
+        engine.toggleFlag(3, 0);
+        engine.toggleFlag(0, 4);
+        engine.reveal(3, 1);
+
+        assertEquals(5, journal.getRecords(), "wrong number of journaled moves");
+        journal.flush();
+
+        // the snapshot was not touched, only the moves were written
+        assertEquals(4 + 5 * MoveJournal.RECORD_SIZE, Files.size(MoveJournal.journalPath(file)));
+        assertSameGame(engine, load());
+
+        journal.close();
+    }
+
+    @Test
+    public void heldTest() throws IOException {
+        GameEngine engine = newEngine();
+        SaveGameUtility.saveBinary(file, snapshot(engine));
+
+        // the journal of an older snapshot must not survive the release
+        MoveJournal old = MoveJournal.start(file, engine, () -> snapshot(engine), Runnable::run, 60000, 1000);
+        engine.toggleFlag(0, 0);
+        old.close();
+
+        SaveGame saveGame = new SaveGame(engine.getLevel().copy(), engine.getNumBombs(), engine.getBombCount(),
+                engine.getSafeFields(), 0);
+        MoveJournal journal = MoveJournal.hold(file, engine, () -> snapshot(engine), Runnable::run, 60000, 1);
+
+        engine.toggleFlag(0, 4);
+        engine.reveal(3, 1);
+        journal.flush();
+        journal.compact();
+
+        assertTrue(journal.isHeld(), "journal was released");
+        assertEquals(4 + MoveJournal.RECORD_SIZE, Files.size(MoveJournal.journalPath(file)),
+                "held moves were written");
+
+        // the snapshot is in place, now the moves are written
+        SaveGameUtility.saveBinary(file, saveGame);
+        journal.release();
+
+        assertFalse(journal.isHeld(), "journal still held");
+        assertEquals(4 + 2 * MoveJournal.RECORD_SIZE, Files.size(MoveJournal.journalPath(file)),
+                "wrong number of journaled moves");
+        assertSameGame(engine, load());
+
+        journal.close();
+    }
+
+    @Test
+    public void closeHeldTest() throws IOException {
+        GameEngine engine = newEngine();
+        MoveJournal journal = MoveJournal.hold(file, engine, () -> snapshot(engine), Runnable::run, 60000, 1000);
+
+        engine.toggleFlag(0, 0);
+        journal.close();
+        journal.release();
+
+        assertFalse(Files.exists(MoveJournal.journalPath(file)), "a closed journal was written");
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+        GameEngine engine = newEngine();
+        SaveGameUtility.saveBinary(file, snapshot(engine));
+
+        MoveJournal journal = MoveJournal.start(file, engine, () -> snapshot(engine), Runnable::run, 60000, 1000);
+        engine.toggleFlag(0, 0);
+        journal.flush();
+
+        GameEngine expected = load();
+
+        engine.toggleFlag(3, 4);
+        journal.close();
+
+        // a crash in the middle of writing the last record
+        try (FileChannel channel = FileChannel.open(MoveJournal.journalPath(file), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        GameEngine recovered = load();
+
+        assertSameGame(expected, recovered);
+        assertFalse(recovered.isFlagged(3, 4), "torn move was replayed");
+
+        // moves are appended behind the last complete record
+        journal = MoveJournal.start(file, recovered, () -> snapshot(recovered), Runnable::run, 60000, 1000);
+        recovered.toggleFlag(0, 4);
+        journal.close();
+
+        assertTrue(load().isFlagged(0, 4), "move after the torn record was lost");
+    }
+
+    @Test
+    public void corruptRecordTest() throws IOException {
+        GameEngine engine = newEngine();
+        SaveGameUtility.saveBinary(file, snapshot(engine));
+
+        MoveJournal journal = MoveJournal.start(file, engine, () -> snapshot(engine), Runnable::run, 60000, 1000);
+        engine.toggleFlag(0, 0);
+        journal.flush();
+
+        GameEngine expected = load();
+
+        engine.toggleFlag(3, 4);
+        engine.toggleFlag(0, 4);
+        journal.close();
+
+        // the second record is broken, the third one is intact
+        try (FileChannel channel = FileChannel.open(MoveJournal.journalPath(file), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), 4 + MoveJournal.RECORD_SIZE + 1);
+        }
+
+        GameEngine recovered = load();
+
+        assertSameGame(expected, recovered);
+
+        // the moves behind the broken record are dropped, new moves are not
+        // appended behind them
+        journal = MoveJournal.start(file, recovered, () -> snapshot(recovered), Runnable::run, 60000, 1000);
+        assertEquals(1, journal.getRecords(), "records behind the broken one were kept");
+
+        recovered.toggleFlag(1, 1);
+        journal.close();
+
+        assertSameGame(recovered, load());
+    }
+
+    @Test
+    public void compactTest() throws IOException {
+        GameEngine engine = newEngine();
+        SaveGameUtility.saveBinary(file, snapshot(engine));
+
+        MoveJournal journal = MoveJournal.start(file, engine, () -> snapshot(engine), Runnable::run, 60000, 1000);
+
+        for (int i = 0; i < 11; i++)
+            engine.toggleFlag(1, 1);
+
+        journal.compact();
+
+        assertEquals(0, journal.getRecords(), "journal not emptied");
+        assertEquals(4, Files.size(MoveJournal.journalPath(file)), "journal not truncated");
+        assertTrue(SaveGameUtility.verify(file), "snapshot is broken");
+
+        engine.reveal(3, 1);
+        journal.close();
+
+        GameEngine loaded = load();
+
+        assertSameGame(engine, loaded);
+        assertTrue(loaded.isFlagged(1, 1), "compacted move was lost");
+    }
+}
@@ -0,0 +1,117 @@
+package game.util.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import game.data.FieldCalculator;
+import game.data.Level;
+import game.util.Progress;
+import game.util.SaveGame;
+import game.util.SaveGameTasks;
+import game.util.SaveGameUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+
+public class SaveGameTasksTest {
+    private Path file;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("jminesweeper", ".sav");
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    private static Level level(int sizeY, int sizeX, int numBombs) {
+        Level level = Level.generateNew(sizeY, sizeX, numBombs);
+        FieldCalculator.calculate(level);
+        return level;
+    }
+
+    @Test
+    public void saveAndLoadTest() throws Exception {
+        Level level = level(300, 700, 20000);
+        long[] last = new long[2];
+        Progress progress = (done, total) -> {
+            assertTrue(done >= last[0], "progress went backwards");
+            last[0] = done;
+            last[1] = total;
+        };
+
+        SaveGameTasks.save(file, new SaveGame(level, 20000, 20000, 190000, 1234), executor, progress).get();
+
+        assertEquals(SaveGameUtility.HEADER_SIZE + 300 * 700, last[1], "wrong total");
+        assertEquals(last[1], last[0], "save not completed");
+
+        SaveGame loaded = SaveGameTasks.load(file, true, executor, Progress.NONE).get();
+
+        assertEquals(1234, loaded.getElapsedMillis());
+        for (int y = 0; y < level.getSizeY(); y++)
+            for (int x = 0; x < level.getSizeX(); x++)
+                assertEquals(level.get(y, x), loaded.getLevel().get(y, x), "level differs at " + y + "," + x);
+    }
+
+    @Test
+    public void cancelledSaveTest() throws Exception {
+        Level level = level(100, 100, 1000);
+        SaveGameUtility.saveBinary(file, new SaveGame(level, 1000, 1000, 9000, 0));
+        byte[] before = Files.readAllBytes(file);
+
+        Progress cancelled = new Progress() {
+            @Override
+            public void update(long done, long total) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        };
+
+        assertThrows(CancellationException.class, () -> SaveGameTasks
+                .save(file, new SaveGame(level(2000, 2000, 100), 100, 100, 0, 0), executor, cancelled).get());
+
+        assertArrayEquals(before, Files.readAllBytes(file), "existing savegame was changed");
+
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.filter(p -> p.getFileName().toString().startsWith(file.getFileName().toString()))
+                    .count(), "temporary file left behind");
+        }
+    }
+
+    @Test
+    public void corruptLoadTest() throws Exception {
+        SaveGameUtility.saveBinary(file, new SaveGame(level(50, 50, 100), 100, 100, 2400, 0));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), SaveGameUtility.HEADER_SIZE + 17);
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> SaveGameTasks.load(file, true, executor, Progress.NONE).get());
+
+        assertTrue(e.getCause() instanceof IOException, "corrupt savegame was loaded");
+    }
+}
@@ -0,0 +1,187 @@
+package game.util.tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import game.Game;
+import game.GameEngine;
+import game.data.FieldCalculator;
+import game.data.Level;
+import game.util.SaveGame;
+import game.util.SaveGameUtility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+
+
+public class SaveGameUtilityTest {
+    private Path file;
+
+    @BeforeEach
+    public void createFile() throws IOException {
+        file = Files.createTempFile("jminesweeper", ".sav");
+    }
+
+    @AfterEach
+    public void deleteFile() throws IOException {
+        file.toFile().setWritable(true);
+        Files.deleteIfExists(file);
+    }
+
+    private static void assertSameLevel(Level expected, Level actual) {
+        assertEquals(expected.getSizeY(), actual.getSizeY(), "wrong vertical size");
+        assertEquals(expected.getSizeX(), actual.getSizeX(), "wrong horizontal size");
+
+        for (int y = 0; y < expected.getSizeY(); y++)
+            for (int x = 0; x < expected.getSizeX(); x++)
+                assertEquals(expected.get(y, x), actual.get(y, x), "position " + y + "," + x + " differs");
+    }
+
+    @Test
+    public void binaryRoundTripTest() throws IOException {
+        Level level = Level.generateNew(37, 91, 500);
+        FieldCalculator.calculate(level);
+
+        SaveGameUtility.saveBinary(file, new SaveGame(level, 500, 480, 1234, 65432));
+
+        assertTrue(SaveGameUtility.isBinary(file), "binary format not detected");
+        assertTrue(SaveGameUtility.verify(file), "checksum does not match");
+        assertEquals(SaveGameUtility.HEADER_SIZE + 37 * 91, Files.size(file), "one byte per field expected");
+
+        SaveGame loaded = SaveGameUtility.readSaveGame(file);
+
+        assertTrue(loaded.hasCounters(), "counters missing");
+        assertEquals(500, loaded.getNumBombs());
+        assertEquals(480, loaded.getBombCount());
+        assertEquals(1234, loaded.getSafeFields());
+        assertEquals(65432, loaded.getElapsedMillis());
+        assertSameLevel(level, loaded.getLevel());
+
+        // changes to a loaded level must not be written back into the file
+        char old = loaded.getLevel().get(0, 0);
+        loaded.getLevel().set(0, 0, 'x');
+        assertEquals(old, SaveGameUtility.readSaveGame(file).getLevel().get(0, 0), "file was changed");
+    }
+
+    @Test
+    public void readOnlyFileTest() throws IOException {
+        Level level = Level.generateNew(37, 91, 500);
+        FieldCalculator.calculate(level);
+
+        SaveGameUtility.saveBinary(file, new SaveGame(level, 500, 480, 1234, 65432));
+
+        // the owner can't take write access away from root
+        assertTrue(file.toFile().setWritable(false));
+        assumeFalse(Files.isWritable(file), "the file is still writable");
+
+        SaveGame loaded = SaveGameUtility.readSaveGame(file);
+
+        assertEquals(480, loaded.getBombCount());
+        assertSameLevel(level, loaded.getLevel());
+
+        loaded.getLevel().set(0, 0, 'x');
+        assertEquals('x', loaded.getLevel().get(0, 0), "level can't be changed");
+    }
+
+    @Test
+    public void corruptedFileTest() throws IOException {
+        SaveGameUtility.saveBinary(file, new SaveGame(Level.generateNew(10, 10, 10), 10, 10, 90, 0));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'x'}), SaveGameUtility.HEADER_SIZE + 42);
+        }
+
+        assertFalse(SaveGameUtility.verify(file), "corruption not detected");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(SaveGameUtility.HEADER_SIZE + 50);
+        }
+
+        assertThrows(IOException.class, () -> SaveGameUtility.readSaveGame(file));
+    }
+
+    @Test
+    public void compressedRoundTripTest() throws IOException {
+        GameEngine engine = new GameEngine();
+        engine.newGame(200, 300, 9000);
+
+        for (int y = 0; y < 200 && engine.isRunning(); y += 7)
+            for (int x = 0; x < 300 && engine.isRunning(); x += 11)
+                if (engine.getField(y, x) == Game.BOMB)
+                    engine.toggleFlag(y, x);
+                else if ((x + y) % 3 == 0)
+                    engine.toggleFlag(y, x);
+                else
+                    engine.reveal(y, x);
+
+        Level level = engine.getLevel();
+        SaveGameUtility.saveCompressed(file, new SaveGame(level, 9000, engine.getBombCount(), engine.getSafeFields(), 77));
+
+        assertTrue(SaveGameUtility.isBinary(file), "binary format not detected");
+        assertTrue(SaveGameUtility.isCompressed(file), "compression not detected");
+        assertTrue(SaveGameUtility.verify(file), "checksum does not match");
+        assertTrue(Files.size(file) < 200 * 300 / 4, "savegame is not compressed: " + Files.size(file));
+
+        SaveGame loaded = SaveGameUtility.readSaveGame(file);
+
+        assertEquals(engine.getBombCount(), loaded.getBombCount());
+        assertEquals(77, loaded.getElapsedMillis());
+        assertSameLevel(level, loaded.getLevel());
+    }
+
+    @Test
+    public void compressedIrregularLevelTest() throws IOException {
+        // numbers which don't match the bombs and values unknown to the game
+        Level level = Level.fromExistingData(new char[][] {
+            {'O','@','5','x'},
+            {'#','9','B','0'},
+            {'c','\u00ff','@','Z'}});
+
+        SaveGameUtility.saveCompressed(file, new SaveGame(level));
+
+        assertSameLevel(level, SaveGameUtility.readSaveGame(file).getLevel());
+    }
+
+    @Test
+    public void corruptedCompressedFileTest() throws IOException {
+        SaveGameUtility.saveCompressed(file, new SaveGame(Level.generateNew(100, 100, 2000), 2000, 2000, 8000, 0));
+
+        long size = Files.size(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x55, 0x55}), size / 2);
+        }
+
+        assertThrows(IOException.class, () -> SaveGameUtility.readSaveGame(file));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size / 3);
+        }
+
+        assertThrows(IOException.class, () -> SaveGameUtility.readSaveGame(file));
+    }
+
+    @Test
+    public void textFormatTest() throws IOException {
+        Level level = Level.fromExistingData(new char[][] {{'O','@','A'}, {'b','#','1'}});
+
+        SaveGameUtility.saveToFile(file, level);
+
+        assertFalse(SaveGameUtility.isBinary(file), "text format detected as binary");
+
+        SaveGame loaded = SaveGameUtility.readSaveGame(file);
+
+        assertFalse(loaded.hasCounters(), "text format has no counters");
+        assertSameLevel(level, loaded.getLevel());
+    }
+}
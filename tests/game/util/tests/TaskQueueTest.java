@@ -0,0 +1,169 @@
+package game.util.tests;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.util.GameExecutors;
+import game.util.GameExecutors.Mode;
+import game.util.Histogram;
+import game.util.TaskQueue;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+
+public class TaskQueueTest {
+    @Test
+    public void boundedTest() throws Exception {
+        ExecutorService executor = GameExecutors.newExecutor(Mode.FIXED, 8);
+        Histogram waits = new Histogram("ns");
+        TaskQueue queue = new TaskQueue("test", executor, 2, 3, waits);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            queue.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertEquals(3, queue.getStatistics().getQueued(), "wrong number of waiting tasks");
+        assertThrows(RejectedExecutionException.class, () -> queue.execute(() -> {
+        }));
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS), "tasks didn't finish");
+
+        // the last task has to leave the queue, too
+        for (int i = 0; i < 100 && queue.getStatistics().getActive() > 0; i++)
+            Thread.sleep(10);
+
+        TaskQueue.Statistics statistics = queue.getStatistics();
+
+        assertTrue(maxRunning.get() <= 2, maxRunning.get() + " tasks ran at once");
+        assertEquals(0, statistics.getActive());
+        assertEquals(5, statistics.getSubmitted());
+        assertEquals(1, statistics.getRejected());
+        assertEquals(5, statistics.getCompleted());
+        assertEquals(5, waits.getCount(), "the waits weren't recorded");
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void errorTest() throws Exception {
+        ExecutorService executor = GameExecutors.newExecutor(Mode.FIXED, 2);
+        TaskQueue queue = new TaskQueue("test", executor, 1, 10, new Histogram("ns"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(3);
+
+        queue.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            throw new AssertionError("an error of a task");
+        });
+
+        for (int i = 0; i < 3; i++)
+            queue.execute(ran::countDown);
+
+        // the tasks waiting behind the error still run
+        release.countDown();
+        assertTrue(ran.await(10, TimeUnit.SECONDS), "the waiting tasks didn't run");
+
+        for (int i = 0; i < 100 && queue.getStatistics().getActive() > 0; i++)
+            Thread.sleep(10);
+
+        assertEquals(0, queue.getStatistics().getActive(), "a slot was leaked");
+        assertEquals(4, queue.getStatistics().getCompleted());
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void noStarvationTest() throws Exception {
+        // a thread for every task the queues may run at once
+        ExecutorService executor = GameExecutors.newExecutor(Mode.WORK_STEALING, 3);
+        TaskQueue busy = new TaskQueue("busy", executor, 2, 100, new Histogram("ns"));
+        TaskQueue other = new TaskQueue("other", executor, 1, 10, new Histogram("ns"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+
+        for (int i = 0; i < 50; i++) {
+            busy.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        other.execute(ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS), "the busy queue starved the other one");
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failingTaskTest() throws Exception {
+        ExecutorService executor = GameExecutors.newExecutor(Mode.FIXED, 1);
+        TaskQueue queue = new TaskQueue("failing", executor, 1, 10, new Histogram("ns"));
+        CountDownLatch ran = new CountDownLatch(1);
+
+        queue.execute(() -> {
+            throw new IllegalStateException("expected by the test");
+        });
+        queue.execute(ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS), "a failing task stopped the queue");
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void modesTest() throws Exception {
+        for (Mode mode : Mode.values()) {
+            ExecutorService executor;
+
+            try {
+                executor = GameExecutors.newExecutor(mode, 2);
+            } catch (UnsupportedOperationException e) {
+                assumeTrue(mode == Mode.VIRTUAL, mode + " not supported");
+                continue;
+            }
+
+            CountDownLatch ran = new CountDownLatch(1);
+            executor.execute(ran::countDown);
+
+            assertTrue(ran.await(5, TimeUnit.SECONDS), mode + " didn't run the task");
+            executor.shutdown();
+        }
+
+        assertTrue(GameExecutors.getMode() != null);
+        assertEquals(GameExecutors.Subsystem.values().length, GameExecutors.getStatistics().size());
+    }
+}